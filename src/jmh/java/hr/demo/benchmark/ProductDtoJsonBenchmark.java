@@ -0,0 +1,53 @@
+package hr.demo.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.demo.dto.ProductDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the product DTO as done for every request and response body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductDtoJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private ProductDTO productDTO;
+
+    private String productJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = new ObjectMapper();
+        productDTO = new ProductDTO("0123456789", "product_1", new BigDecimal("19.99"), new BigDecimal("21.11"), true, "opis", "1");
+        productJson = objectMapper.writeValueAsString(productDTO);
+    }
+
+    @Benchmark
+    public String serializeProductDTO() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(productDTO);
+    }
+
+    @Benchmark
+    public ProductDTO deserializeProductDTO() throws JsonProcessingException {
+        return objectMapper.readValue(productJson, ProductDTO.class);
+    }
+}
@@ -0,0 +1,98 @@
+package hr.demo.benchmark;
+
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.Product;
+import hr.demo.model.ProductCategory;
+import hr.demo.utility.ProductMapper;
+import hr.demo.utility.ProductMapperImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a page of products to DTOs with the generated {@link ProductMapper}, against the previous hand-written
+ * mapping that converted the category id of every product to a new string. Run with -prof gc and compare
+ * gc.alloc.rate.norm (bytes/op):
+ * <pre>
+ * ./mvnw -Pbenchmark verify -Djmh.args="ProductMapperBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductMapperBenchmark {
+
+    private static final int CATEGORIES = 20;
+
+    @Param({"100"})
+    private int pageSize;
+
+    private ProductMapper productMapper;
+
+    private List<Product> page;
+
+    @Setup
+    public void setUp() {
+        productMapper = new ProductMapperImpl();
+        page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Product product = new Product((long) i, String.format("%010d", i), "product_" + i, new BigDecimal("19.99"), new BigDecimal("21.11"),
+                    "opis", true, new ProductCategory((long) (1000 + i % CATEGORIES)), null);
+            product.setVersion(0L);
+            product.setUpdatedAt(Instant.now());
+            page.add(product);
+        }
+    }
+
+    @Benchmark
+    public List<ProductDTO> mapPage() {
+        List<ProductDTO> content = new ArrayList<>(page.size());
+        for (Product product : page) {
+            content.add(productMapper.map(product));
+        }
+        return content;
+    }
+
+    @Benchmark
+    public List<ProductDTO> mapPageWithCategoryIdPerProduct() {
+        List<ProductDTO> content = new ArrayList<>(page.size());
+        for (Product product : page) {
+            content.add(mapWithCategoryIdPerProduct(product));
+        }
+        return content;
+    }
+
+    /**
+     * The mapping as it was before the generated mapper.
+     */
+    private static ProductDTO mapWithCategoryIdPerProduct(Product product) {
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setName(product.getName());
+        productDTO.setCode(product.getCode());
+        productDTO.setDescription(product.getDescription());
+        productDTO.setCategoryId(product.getCategory().getId().toString());
+        productDTO.setIsAvailable(product.getIsAvailable());
+        productDTO.setPriceEUR(product.getPriceEur());
+        productDTO.setPriceUSD(product.getPriceUsd());
+        productDTO.setVersion(product.getVersion());
+        productDTO.setUpdatedAt(product.getUpdatedAt());
+        return productDTO;
+    }
+}
@@ -0,0 +1,101 @@
+package hr.demo.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import hr.demo.DemoCodeApplication;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.ProductCategory;
+import hr.demo.service.ExchangeRateProvider;
+import hr.demo.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end service calls against an embedded H2 database (profile "benchmark", see application-benchmark.properties).
+ * The table is seeded with {@value #SEED_ROWS} products before measuring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductPersistenceBenchmark {
+
+    static final int SEED_ROWS = 10_000;
+
+    private ConfigurableApplicationContext context;
+
+    private ProductService productService;
+
+    private String categoryId;
+
+    private final Pageable firstPage = PageRequest.of(0, 20);
+
+    private final Pageable deepPage = PageRequest.of(SEED_ROWS / 20 - 1, 20);
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        context = new SpringApplicationBuilder(DemoCodeApplication.class)
+                .profiles("benchmark")
+                .web(WebApplicationType.NONE)
+                .run();
+
+        context.getBean(ExchangeRateProvider.class)
+                .update(new ExchangeRate("USD", new BigDecimal("1.0557"), LocalDate.now(), Instant.now()));
+        productService = context.getBean(ProductService.class);
+
+        ProductCategory category = new ProductCategory();
+        category.setCategoryName("benchmark");
+        categoryId = String.valueOf(productService.createCategory(category).getId());
+
+        List<ProductDTO> products = new ArrayList<>(SEED_ROWS);
+        for (int i = 0; i < SEED_ROWS; i++) {
+            products.add(new ProductDTO("product_" + i, BigDecimal.valueOf(i % 1000 + 1), "benchmark product", true, categoryId));
+        }
+        productService.createProducts(products);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ProductDTO createProduct() throws JsonProcessingException {
+        return productService.createProduct("product", new BigDecimal("19.99"), "benchmark product", true, categoryId);
+    }
+
+    @Benchmark
+    public Page<ProductDTO> findAllFirstPage() {
+        return productService.findAll(firstPage);
+    }
+
+    @Benchmark
+    public Page<ProductDTO> findAllDeepPage() {
+        return productService.findAll(deepPage);
+    }
+}
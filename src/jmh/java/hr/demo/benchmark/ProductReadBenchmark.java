@@ -0,0 +1,127 @@
+package hr.demo.benchmark;
+
+import hr.demo.DemoCodeApplication;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.Product;
+import hr.demo.model.ProductCategory;
+import hr.demo.repository.ProductRepo;
+import hr.demo.service.ExchangeRateProvider;
+import hr.demo.service.ProductService;
+import hr.demo.utility.ProductMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the list and detail reads that load managed {@link Product} entities and map them to DTOs
+ * with the DTO projection queries of {@link ProductRepo}, against an embedded H2 database (profile "benchmark").
+ * Products are spread over {@value #CATEGORIES} categories, so the entity path also pays for loading categories.
+ * Allocation per operation is reported with:
+ * <pre>
+ * ./mvnw -Pbenchmark verify -Djmh.args="ProductReadBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductReadBenchmark {
+
+    static final int SEED_ROWS = 10_000;
+
+    static final int CATEGORIES = 100;
+
+    @Param({"20", "500"})
+    public int pageSize;
+
+    private ConfigurableApplicationContext context;
+
+    private ProductRepo productRepo;
+
+    private ProductMapper productMapper;
+
+    private ProductService productService;
+
+    private Pageable page;
+
+    private String code;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(DemoCodeApplication.class)
+                .profiles("benchmark")
+                .web(WebApplicationType.NONE)
+                .run();
+
+        context.getBean(ExchangeRateProvider.class)
+                .update(new ExchangeRate("USD", new BigDecimal("1.0557"), LocalDate.now(), Instant.now()));
+        productRepo = context.getBean(ProductRepo.class);
+        productMapper = context.getBean(ProductMapper.class);
+        productService = context.getBean(ProductService.class);
+
+        List<String> categoryIds = new ArrayList<>(CATEGORIES);
+        for (int i = 0; i < CATEGORIES; i++) {
+            ProductCategory category = context.getBean(ProductService.class).createCategory(new ProductCategory(null, "category_" + i));
+            categoryIds.add(String.valueOf(category.getId()));
+        }
+
+        List<ProductDTO> products = new ArrayList<>(SEED_ROWS);
+        for (int i = 0; i < SEED_ROWS; i++) {
+            products.add(new ProductDTO("product_" + i, BigDecimal.valueOf(i % 1000 + 1), "benchmark product", true, categoryIds.get(i % CATEGORIES)));
+        }
+        code = productService.createProducts(products).get(SEED_ROWS / 2).getCode();
+        page = PageRequest.of(1, pageSize, Sort.by("priceEur"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<ProductDTO> findAllEntities() {
+        return productRepo.findAll(page).map(productMapper::map);
+    }
+
+    @Benchmark
+    public Page<ProductDTO> findAllProjection() {
+        return productRepo.findAllProductDTOs(page);
+    }
+
+    @Benchmark
+    public ProductDTO findByCodeEntity() {
+        return productMapper.map(productRepo.findByCode(code));
+    }
+
+    @Benchmark
+    public ProductDTO findByCodeProjection() {
+        return productRepo.findProductDTOByCode(code);
+    }
+}
@@ -0,0 +1,79 @@
+package hr.demo.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.Product;
+import hr.demo.model.ProductCategory;
+import hr.demo.service.ExchangeRateProvider;
+import hr.demo.service.ProductCodeGenerator;
+import hr.demo.serviceimpl.ProductServiceImpl;
+import hr.demo.utility.ProductMapper;
+import hr.demo.utility.ProductMapperImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory hot paths of product creation and reads: code generation, entity to DTO mapping and USD price calculation.
+ * Code generation no longer probes the database (see ProductCodeGenerator), so there is no separate
+ * benchmark for the old checkWhetherCodeExists loop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    private ProductServiceImpl productService;
+
+    private ProductMapper productMapper;
+
+    private Product product;
+
+    private BigDecimal priceInEur;
+
+    @Setup
+    public void setUp() {
+        ExchangeRateProvider exchangeRateProvider = new ExchangeRateProvider(null);
+        exchangeRateProvider.update(new ExchangeRate("USD", new BigDecimal("1.0557"), LocalDate.now(), Instant.now()));
+
+        productService = new ProductServiceImpl();
+        ReflectionTestUtils.setField(productService, "exchangeRateProvider", exchangeRateProvider);
+        ReflectionTestUtils.setField(productService, "productCodeGenerator", new ProductCodeGenerator(0));
+
+        productMapper = new ProductMapperImpl();
+        product = new Product(1L, "0123456789", "product_1", new BigDecimal("19.99"), new BigDecimal("21.11"), "opis", true, new ProductCategory(1L), "1");
+        priceInEur = new BigDecimal("19.99");
+    }
+
+    @Benchmark
+    public String generateProductCode() {
+        return productService.generateProductCode();
+    }
+
+    @Benchmark
+    public ProductDTO mapProduct() {
+        return productMapper.map(product);
+    }
+
+    @Benchmark
+    public BigDecimal calculatePriceInUSD() throws JsonProcessingException {
+        return productService.calculatePriceInUSD(priceInEur);
+    }
+}
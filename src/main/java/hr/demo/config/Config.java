@@ -1,9 +1,18 @@
 package hr.demo.config;
 
-import hr.demo.dto.ProductDTO;
-import hr.demo.utility.ProductMapper;
-import hr.demo.utility.ProductMapperImpl;
+import java.time.Duration;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 import org.springframework.context.annotation.Configuration;
@@ -16,20 +25,48 @@ public class Config {
 	
 	public Config() {}
 
+	/**
+	 * RestTemplate backed by a pooled Apache HttpClient, so connections to HNB are kept alive and reused
+	 * and a slow or unreachable HNB can never hold a request thread longer than the configured timeouts.
+	 */
 	@Bean
-	public RestTemplate restTemplate() {
-	    return new RestTemplate();
+	public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+	    return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
 	}
 
-	@Bean
-	public ProductMapper productMapper() {
-		return new ProductMapperImpl();
-	}
+	@Bean(destroyMethod = "close")
+	public CloseableHttpClient httpClient(
+			@Value("${http.client.connect-timeout:2s}") Duration connectTimeout,
+			@Value("${http.client.read-timeout:5s}") Duration readTimeout,
+			@Value("${http.client.pool-timeout:1s}") Duration poolTimeout,
+			@Value("${http.client.keep-alive:30s}") Duration keepAlive,
+			@Value("${http.client.max-connections:20}") int maxConnections,
+			@Value("${http.client.max-connections-per-route:10}") int maxConnectionsPerRoute) {
 
-	@Bean
-	public ProductDTO productDTO() {
-		return new ProductDTO();
+		PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+				.setMaxConnTotal(maxConnections)
+				.setMaxConnPerRoute(maxConnectionsPerRoute)
+				.setDefaultConnectionConfig(ConnectionConfig.custom()
+						.setConnectTimeout(Timeout.of(connectTimeout))
+						.setSocketTimeout(Timeout.of(readTimeout))
+						.setValidateAfterInactivity(TimeValue.ofSeconds(2))
+						.build())
+				.build();
+
+		return HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(RequestConfig.custom()
+						.setConnectionRequestTimeout(Timeout.of(poolTimeout))
+						.setResponseTimeout(Timeout.of(readTimeout))
+						.setConnectionKeepAlive(TimeValue.of(keepAlive))
+						.build())
+				// retries are done by Resilience4j around the HNB call, with backoff
+				.disableAutomaticRetries()
+				.evictExpiredConnections()
+				.evictIdleConnections(TimeValue.of(keepAlive))
+				.build();
 	}
 
 
+
 }
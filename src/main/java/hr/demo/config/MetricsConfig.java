@@ -0,0 +1,189 @@
+package hr.demo.config;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import hr.demo.dto.ExchangeRate;
+import hr.demo.model.ProductCategory;
+import hr.demo.service.ExchangeRateProvider;
+import hr.demo.service.ProductChangeRelay;
+import hr.demo.service.ProductCodeGenerator;
+import hr.demo.service.ProductIngestService;
+import hr.demo.service.ProductPageCache;
+import hr.demo.service.ProductRepricingProgress;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Metrics that are not provided by Spring Boot out of the box.
+ * <p>
+ * HTTP requests ("http.server.requests") and the product cache ("cache.*") are measured by Spring Boot,
+ * this class adds service timers (@Timed), repository timers, the code generation retry counter,
+ * the age of the exchange rate held in memory, Hibernate cache hit ratios, USD repricing progress, the lag of the product change relay, the cache of encoded product pages and the asynchronous ingestion queue. Everything is published on /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Makes @Timed work on Spring beans such as ProductServiceImpl and HnbCallerService.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    /**
+     * Adds {@link RepositoryMetricsListener} to every Spring Data repository.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        RepositoryMetricsListener listener = new RepositoryMetricsListener(meterRegistry);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+                    repositoryFactoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(listener));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder productCodeGeneratorMetrics(ProductCodeGenerator productCodeGenerator) {
+        return registry -> FunctionCounter.builder("product.code.generation.retries", productCodeGenerator, ProductCodeGenerator::getRetryCount)
+                .description("Retries of the lock-free product code generator caused by concurrent requests")
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder exchangeRateMetrics(ExchangeRateProvider exchangeRateProvider) {
+        return registry -> Gauge.builder("hnb.exchange.rate.age", exchangeRateProvider, MetricsConfig::exchangeRateAgeSeconds)
+                .description("Seconds since the exchange rate held in memory was fetched from HNB")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    /**
+     * Hit ratios of the Hibernate second-level cache of product categories and of the query cache. Hit and miss
+     * counts per region are published by Spring Boot as hibernate.second.level.cache.requests and hibernate.cache.query.requests.
+     */
+    @Bean
+    public MeterBinder hibernateCacheHitRatioMetrics(ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        return registry -> entityManagerFactory.ifAvailable(factory -> {
+            Statistics statistics = factory.unwrap(SessionFactory.class).getStatistics();
+            String region = ProductCategory.CACHE_REGION;
+            Gauge.builder("hibernate.second.level.cache.hit.ratio", statistics, stats -> {
+                        CacheRegionStatistics regionStatistics = stats.getDomainDataRegionStatistics(region);
+                        return regionStatistics == null ? Double.NaN : ratio(regionStatistics.getHitCount(), regionStatistics.getMissCount());
+                    })
+                    .description("Share of second-level cache lookups answered from the cache")
+                    .tag("region", region)
+                    .register(registry);
+            Gauge.builder("hibernate.cache.query.hit.ratio", statistics, stats -> ratio(stats.getQueryCacheHitCount(), stats.getQueryCacheMissCount()))
+                    .description("Share of cacheable query executions answered from the query cache")
+                    .register(registry);
+        });
+    }
+
+    /**
+     * Progress of the USD repricing run started by an exchange rate change.
+     */
+    @Bean
+    public MeterBinder productRepricingMetrics(ProductRepricingProgress progress) {
+        return registry -> {
+            Gauge.builder("product.repricing.running", progress, p -> p.isRunning() ? 1 : 0)
+                    .description("1 while stored USD prices are being recomputed for a new exchange rate")
+                    .register(registry);
+            Gauge.builder("product.repricing.progress", progress, ProductRepricingProgress::getCompletedRatio)
+                    .description("Share of the catalog walked by the current or last repricing run")
+                    .register(registry);
+            FunctionCounter.builder("product.repricing.products", progress, ProductRepricingProgress::getRepricedProducts)
+                    .description("Products whose USD price was recomputed for a new exchange rate")
+                    .register(registry);
+            FunctionCounter.builder("product.repricing.chunks", progress, ProductRepricingProgress::getChunks)
+                    .description("Chunks of product ids walked by repricing runs")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Published changes and lag of the product change relay, blocking stack only.
+     */
+    @Bean
+    public MeterBinder productChangeRelayMetrics(ObjectProvider<ProductChangeRelay> productChangeRelay) {
+        return registry -> productChangeRelay.ifAvailable(relay -> {
+            FunctionCounter.builder("product.changes.published", relay, ProductChangeRelay::getPublishedChanges)
+                    .description("Product changes published from the outbox to the sink by this instance")
+                    .register(registry);
+            Gauge.builder("product.changes.relay.lag", relay, ProductChangeRelay::getLagSeconds)
+                    .description("Seconds since the oldest product change the sink has not received was written")
+                    .baseUnit("seconds")
+                    .register(registry);
+        });
+    }
+
+    /**
+     * Hits, misses, evictions and size of the cache of encoded product pages, published as cache.* with cache=productPages.
+     */
+    @Bean
+    public MeterBinder productPageCacheMetrics(ObjectProvider<ProductPageCache> productPageCache) {
+        return registry -> productPageCache.ifAvailable(cache -> CaffeineCacheMetrics.monitor(registry, cache.getCache(), "productPages"));
+    }
+
+    /**
+     * Queue and outcomes of the asynchronous product ingestion, only when product.ingest.enabled=true.
+     */
+    @Bean
+    public MeterBinder productIngestMetrics(ObjectProvider<ProductIngestService> productIngestService) {
+        return registry -> productIngestService.ifAvailable(ingest -> {
+            Gauge.builder("product.ingest.queue.size", ingest, ProductIngestService::getQueueSize)
+                    .description("Products accepted for asynchronous creation and not yet taken into a batch")
+                    .register(registry);
+            Gauge.builder("product.ingest.queue.capacity", ingest, ProductIngestService::getCapacity)
+                    .description("Products the ingestion queue holds before creates are rejected with 503")
+                    .register(registry);
+            FunctionCounter.builder("product.ingest.accepted", ingest, ProductIngestService::getAcceptedCount)
+                    .description("Creates accepted into the ingestion queue")
+                    .register(registry);
+            FunctionCounter.builder("product.ingest.rejected", ingest, ProductIngestService::getRejectedCount)
+                    .description("Creates rejected with 503 because the ingestion queue was full")
+                    .register(registry);
+            FunctionCounter.builder("product.ingest.created", ingest, ProductIngestService::getCreatedCount)
+                    .description("Queued creates written to the database")
+                    .register(registry);
+            FunctionCounter.builder("product.ingest.failed", ingest, ProductIngestService::getFailedCount)
+                    .description("Queued creates that could not be written")
+                    .register(registry);
+            FunctionCounter.builder("product.ingest.batches", ingest, ProductIngestService::getBatchCount)
+                    .description("Micro-batches written by the ingestion worker")
+                    .register(registry);
+            FunctionCounter.builder("product.ingest.retries", ingest, ProductIngestService::getRetryCount)
+                    .description("Writes of ingested products tried again after a transient failure")
+                    .register(registry);
+        });
+    }
+
+    private static double ratio(long hits, long misses) {
+        return hits + misses == 0 ? Double.NaN : (double) hits / (hits + misses);
+    }
+
+    private static double exchangeRateAgeSeconds(ExchangeRateProvider exchangeRateProvider) {
+        ExchangeRate snapshot = exchangeRateProvider.getSnapshot();
+        return snapshot == null ? Double.NaN : Duration.between(snapshot.getFetchedAt(), Instant.now()).toSeconds();
+    }
+}
@@ -0,0 +1,41 @@
+package hr.demo.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records the duration of every Spring Data repository method call as the "product.repository" timer,
+ * tagged with the repository, the method, the outcome and the exception if one was thrown.
+ */
+public class RepositoryMetricsListener implements RepositoryMethodInvocationListener {
+
+    public static final String METRIC_NAME = "product.repository";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public RepositoryMetricsListener(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void afterInvocation(RepositoryMethodInvocation invocation) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        Throwable error = invocation.getResult() == null ? null : invocation.getResult().getError();
+        Timer.builder(METRIC_NAME)
+                .description("Time spent in repository methods")
+                .tag("repository", invocation.getRepositoryInterface().getSimpleName())
+                .tag("method", invocation.getMethod().getName())
+                .tag("state", invocation.getResult() == null ? "UNKNOWN" : invocation.getResult().getState().name())
+                .tag("exception", error == null ? "none" : error.getClass().getSimpleName())
+                .register(registry)
+                .record(invocation.getDuration(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,84 @@
+package hr.demo.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnJava;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Opt-in mode that runs request handling, async MVC work (e.g. the export stream) and scheduled jobs
+ * (the HNB exchange rate refresh) on virtual threads instead of platform thread pools.
+ * <p>
+ * Enabled with app.virtual-threads.enabled=true and only on Java 21 or newer. The project is still built
+ * for Java 17, so the virtual thread API is looked up reflectively. Virtual threads are not a limited
+ * resource anymore, so concurrency towards Postgres is bounded by the "database" bulkhead on
+ * ProductServiceImpl, which is sized to the Hikari pool.
+ *
+ * @author Zoran Džoić
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnJava(JavaVersion.TWENTY_ONE)
+@ConditionalOnProperty(name = "app.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+	private static final Logger logger = LoggerFactory.getLogger(VirtualThreadsConfig.class);
+
+	@Bean
+	public TomcatProtocolHandlerCustomizer<?> virtualThreadRequestExecutor() {
+		logger.info("Handling requests on virtual threads");
+		return protocolHandler -> protocolHandler.setExecutor(newThreadPerTaskExecutor(virtualThreadFactory("http-")));
+	}
+
+	@Bean(name = { TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+			AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME })
+	public AsyncTaskExecutor applicationTaskExecutor() {
+		return new TaskExecutorAdapter(newThreadPerTaskExecutor(virtualThreadFactory("task-")));
+	}
+
+	@Bean
+	public ThreadPoolTaskScheduler taskScheduler() {
+		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+		taskScheduler.setThreadFactory(virtualThreadFactory("scheduling-"));
+		return taskScheduler;
+	}
+
+	/**
+	 * Equivalent of {@code Thread.ofVirtual().name(prefix, 0).factory()}.
+	 */
+	static ThreadFactory virtualThreadFactory(String prefix) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Virtual threads are not available on Java " + Runtime.version(), e);
+		}
+	}
+
+	/**
+	 * Equivalent of {@code Executors.newThreadPerTaskExecutor(threadFactory)}.
+	 */
+	static ExecutorService newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+		try {
+			Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			return (ExecutorService) method.invoke(null, threadFactory);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Virtual threads are not available on Java " + Runtime.version(), e);
+		}
+	}
+}
@@ -5,31 +5,56 @@ import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import hr.demo.exceptions.ProductNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import hr.demo.dto.CursorPage;
+import hr.demo.dto.ProductChangeDTO;
+import hr.demo.dto.ProductChangePage;
+import hr.demo.dto.ProductCategoryDTO;
 import hr.demo.dto.ProductDTO;
+import hr.demo.dto.ProductIngestStatus;
+import hr.demo.dto.ProductPatchDTO;
+import hr.demo.dto.ProductPricesDTO;
 import hr.demo.model.ProductCategory;
-import hr.demo.repository.ProductCategoryRepo;
+import hr.demo.service.ProductExportService;
+import hr.demo.service.ProductIngestService;
+import hr.demo.service.ProductPageCache;
+import hr.demo.service.ProductPriceCalculator;
 import hr.demo.service.ProductService;
 import hr.demo.utility.HttpResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 
+import java.math.BigDecimal;
 import java.util.Date;
+import java.util.List;
 
 /**
  * A REST controller that provides APIs for managing products.
@@ -37,69 +62,289 @@ import java.util.Date;
  * The following APIs are provided:
  * <p>
  * /products  - Returns a list of all products in the database.
- * /products/add-product: Adds a new product to the database.
+ * /products/export - Streams the whole catalog as NDJSON or CSV.
+ * /products/changes - Returns the product changes after a position, for consumers syncing incrementally.
+ * /products/add-product: Adds a new product to the database, with {@code Prefer: respond-async} queues it instead.
+ * /products/ingest/{id} Returns the status of a queued product.
+ * /products/add-products: Adds many products to the database in one request.
+ * /products/search Searches products by words of their name and description.
+ * /products/categories Returns all categories with the number of their products and their price range.
+ * /products/categories/{categoryId}/products Returns a page of the products of one category.
  * /products/{code} Returns the product by the specified code.
+ * /products/product/{code}/prices Returns the price of the product in the configured currencies.
  * /products/update-product Updates the product containing the specified code.
+ * /products/product/{code} (PATCH) Changes only the given fields of the product.
  * /products/delete/{code} Deletes the product by the specified code.
+ * <p>
+ * The product detail and the pages of /products carry a strong ETag and Last-Modified and are answered with
+ * 304 Not Modified when the client already has the current version.
  *
  * @author Zoran Džoić
  */
 @RestController
+@Profile("!reactive")
+@Validated
 @RequestMapping("/products")
 public class ProductController {
     public static final String PRODUCT_DELETED_SUCCESSFULLY = "Product successfully deleted.";
     public static final String PRODUCT_WAS_NOT_FOUND = "The product was not found.";
+    public static final String CATEGORY_WAS_NOT_FOUND = "The category was not found.";
+    public static final String CATEGORY_DOES_NOT_EXIST = "The category of the product does not exist.";
+    public static final String PRODUCT_ALREADY_EXISTS = "A product with this code already exists.";
+    public static final String INGEST_WAS_NOT_FOUND = "The queued product was not found, its status may have expired.";
+    public static final String RESPOND_ASYNC = "respond-async";
+    public static final String PRODUCT_WAS_CHANGED = "The product was changed in the meantime, read it again and retry.";
+    public static final int MAX_BULK_SIZE = 10000;
+    public static final int MAX_PAGE_SIZE = 2000;
+    public static final int MAX_SEARCH_SIZE = 100;
+    public static final int MAX_CHANGES_SIZE = 1000;
 
     Logger logger = LoggerFactory.getLogger(ProductController.class);
 
 
     private final ProductService productService;
 
-    @Autowired(required = false)
-    ProductCategoryRepo productCatRepo;
+    private final ProductExportService productExportService;
+
+    private final ProductPriceCalculator productPriceCalculator;
+
+    private final ProductPageCache productPageCache;
+
+    private final ObjectProvider<ProductIngestService> productIngestService;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductExportService productExportService, ProductPriceCalculator productPriceCalculator,
+                             ProductPageCache productPageCache, ObjectProvider<ProductIngestService> productIngestService) {
         this.productService = productService;
+        this.productExportService = productExportService;
+        this.productPriceCalculator = productPriceCalculator;
+        this.productPageCache = productPageCache;
+        this.productIngestService = productIngestService;
     }
 
     /**
      * Adds a new product to the database.
+     * <p>
+     * With {@code Prefer: respond-async} and product.ingest.enabled=true the product is only validated and queued,
+     * it is written together with other queued products in one batch (see {@link ProductIngestService}). The response
+     * is then 202 Accepted with the status URL in Location, or 503 with Retry-After when the queue is full.
+     * Without the ingestion the preference is ignored and the product is written right away.
      *
      * @param product The product to be added.
-     * @return A response entity containing the newly created product.
+     * @param prefer The Prefer request header.
+     * @return A response entity containing the newly created product, or the status of the queued one.
      */
     @PostMapping("/add-product")
-    public ResponseEntity<ProductDTO> createProduct(@RequestBody @Valid ProductDTO productDTO) throws JsonProcessingException {
+    public ResponseEntity<?> createProduct(@RequestBody @Valid ProductDTO productDTO,
+                                           @RequestHeader(name = "Prefer", required = false) String prefer) throws JsonProcessingException {
+
+        ProductIngestService ingestService = productIngestService.getIfAvailable();
+        if (ingestService != null && prefer != null && prefer.contains(RESPOND_ASYNC)) {
+            ProductIngestStatus status = ingestService.submit(productDTO);
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentContextPath().path("/products/ingest/{id}").buildAndExpand(status.getId()).toUri())
+                    .header("Preference-Applied", RESPOND_ASYNC)
+                    .body(status);
+        }
 
         ProductDTO savedProduct = productService.createProduct(productDTO.getName(), productDTO.getPriceEUR(), productDTO.getDescription(), productDTO.getIsAvailable(), productDTO.getCategoryId());
-        logger.debug("Saved product under the code " + savedProduct.getCode());
+        logger.debug("Saved product under the code {}", savedProduct.getCode());
         return new ResponseEntity<ProductDTO>(savedProduct, HttpStatus.CREATED);
     }
 
+    /**
+     * Returns the status of a product queued by /products/add-product with {@code Prefer: respond-async}:
+     * ACCEPTED while it waits for its batch, CREATED with the product, or FAILED with the reason.
+     *
+     * @param id The id from the Location of the 202 response.
+     * @return A response entity containing the status.
+     */
+    @GetMapping("/ingest/{id}")
+    public ResponseEntity<ProductIngestStatus> getIngestStatus(@PathVariable String id) {
+        ProductIngestService ingestService = productIngestService.getIfAvailable();
+        ProductIngestStatus status = ingestService == null ? null : ingestService.getStatus(id);
+        if (status == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, INGEST_WAS_NOT_FOUND);
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(status);
+    }
+
+    /**
+     * Adds many products to the database in a single request, e.g. when loading a catalog.
+     * The exchange rate is resolved once and the products are written with batched inserts.
+     *
+     * @param productDTOs The products to be added, at most {@value #MAX_BULK_SIZE}.
+     * @return A response entity containing the newly created products.
+     */
+    @PostMapping("/add-products")
+    public ResponseEntity<List<ProductDTO>> createProducts(@RequestBody @Size(min = 1, max = MAX_BULK_SIZE) List<@Valid ProductDTO> productDTOs) throws JsonProcessingException {
+
+        List<ProductDTO> savedProducts = productService.createProducts(productDTOs);
+        logger.debug("Saved {} products in bulk", savedProducts.size());
+        return new ResponseEntity<List<ProductDTO>>(savedProducts, HttpStatus.CREATED);
+    }
+
     /**
      * Returns a list of all products in the database.
      * url: http://localhost:8089/products?page=0&size=3
+     * The ETag is the feed position of the newest product change, which grows with every committed product write. It is
+     * read before the page, so a request with a matching If-None-Match is answered with 304 after an index lookup,
+     * without running the page and count queries. The first pages are sent from {@link ProductPageCache} as
+     * JSON encoded for the same catalog version.
      *
-     * @return A response entity containing a list of products.
+     * @return A page of products, as encoded JSON for the cached pages, or null when the request was answered
+     *         with 304 Not Modified.
      * @throws ResponseStatusException If the response status code is not 200 OK.
      */
     @GetMapping
-    public Page<ProductDTO> findAllPaged(Pageable pageable) {
-        return productService.findAll(pageable);
+    public ResponseEntity<?> findAllPaged(Pageable pageable, WebRequest request) {
+        ProductChangeDTO latestChange = productService.getLatestChange();
+        if (latestChange != null && request.checkNotModified(catalogETag(latestChange), latestChange.getChangedAt().toEpochMilli())) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (latestChange != null && productPageCache.isCached(pageable)) {
+            return response.contentType(MediaType.APPLICATION_JSON)
+                    .body(productPageCache.getPage(latestChange.getChangeId(), pageable, () -> productService.findAll(pageable)));
+        }
+        return response.body(productService.findAll(pageable));
     }
 
+    /**
+     * Returns a page of products using keyset paging; selected whenever the cursor parameter is present.
+     * url: http://localhost:8089/products?cursor=&size=20&sort=priceEur,desc
+     * The next page is requested with the nextCursor value from the response.
+     *
+     * @param cursor continuation token, empty for the first page
+     * @param size page size
+     * @param sort productId (default), priceEur,asc or priceEur,desc
+     * @return A page of products with the token for the next page.
+     * @throws ResponseStatusException If the cursor or sort is invalid.
+     */
+    @GetMapping(params = "cursor")
+    public CursorPage<ProductDTO> findAllAfter(@RequestParam String cursor,
+                                               @RequestParam(defaultValue = "20") int size,
+                                               @RequestParam(defaultValue = "productId") String sort) {
+        try {
+            return productService.findAllAfter(cursor, Math.max(1, Math.min(size, MAX_PAGE_SIZE)), sort);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the product changes after the given position, oldest first, each with the current state of its product.
+     * url: http://localhost:8089/products/changes?since=0&limit=500
+     * The next page is requested with the nextSince value from the response; a consumer that has read the catalog
+     * once only reads what changed from then on.
+     *
+     * @param since id of the last change already read, 0 for the oldest change still kept
+     * @param limit maximum number of changes, at most {@value #MAX_CHANGES_SIZE}
+     * @return A page of changes with the position to continue from.
+     */
+    @GetMapping("/changes")
+    public ProductChangePage getChanges(@RequestParam(defaultValue = "0") long since,
+                                        @RequestParam(defaultValue = "500") int limit) {
+        return productService.getChanges(Math.max(0, since), Math.max(1, Math.min(limit, MAX_CHANGES_SIZE)));
+    }
+
+    /**
+     * Streams all products to the client without loading the catalog into memory.
+     * url: http://localhost:8089/products/export?format=csv
+     *
+     * @param format ndjson (default) or csv
+     * @return A response entity whose body is written row by row as products are read from the database.
+     * @throws ResponseStatusException If the format is not supported.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "ndjson") String format) {
+        ProductExportService.Format exportFormat;
+        try {
+            exportFormat = ProductExportService.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage());
+        }
+
+        StreamingResponseBody body = outputStream -> productExportService.export(exportFormat, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=products." + exportFormat.getExtension())
+                .body(body);
+    }
 
     @PostMapping("/add-product-category")
     public ResponseEntity<ProductCategory> addNewCategory(@RequestBody ProductCategory productCategory) {
 
-        ProductCategory pc = this.productCatRepo.save(productCategory);
+        ProductCategory pc = this.productService.createCategory(productCategory);
 
         return new ResponseEntity<ProductCategory>(pc, HttpStatus.CREATED);
     }
 
+    /**
+     * Searches products by words of their name and description, every word is matched as a prefix.
+     * url: http://localhost:8089/products/search?q=red+sho&available=true&categoryId=1&minPrice=10&maxPrice=50
+     *
+     * @param q search text
+     * @param available only available (true) or unavailable (false) products, both if omitted
+     * @param categoryId only products of the category, all if omitted
+     * @param minPrice lowest EUR price, inclusive
+     * @param maxPrice highest EUR price, inclusive
+     * @param page page number
+     * @param size page size, at most {@value #MAX_SEARCH_SIZE}
+     * @return matching products, best match first
+     * @throws ResponseStatusException If the search text has no word to search for or the price range is empty.
+     */
+    @GetMapping("/search")
+    public List<ProductDTO> search(@RequestParam String q,
+                                   @RequestParam(required = false) Boolean available,
+                                   @RequestParam(required = false) Long categoryId,
+                                   @RequestParam(required = false) BigDecimal minPrice,
+                                   @RequestParam(required = false) BigDecimal maxPrice,
+                                   @RequestParam(defaultValue = "0") int page,
+                                   @RequestParam(defaultValue = "20") int size) {
+        try {
+            return productService.search(q, available, categoryId, minPrice, maxPrice, Math.max(0, page), Math.max(1, Math.min(size, MAX_SEARCH_SIZE)));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns all categories with the number of their products, available products and their EUR price range.
+     * url: http://localhost:8089/products/categories
+     *
+     * @return categories ordered by name
+     */
+    @GetMapping("/categories")
+    public List<ProductCategoryDTO> findAllCategories() {
+        return productService.findAllCategories();
+    }
+
+    /**
+     * Returns a page of the products of one category.
+     * url: http://localhost:8089/products/categories/1/products?page=0&size=20&sort=priceEur,asc
+     *
+     * @param categoryId The id of the category.
+     * @return A page of products of the category.
+     * @throws ResponseStatusException If there is no such category.
+     */
+    @GetMapping("/categories/{categoryId}/products")
+    public Page<ProductDTO> findAllByCategory(@PathVariable("categoryId") Long categoryId, Pageable pageable) {
+        Page<ProductDTO> products = productService.findAllByCategory(categoryId, pageable);
+
+        if (products == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, CATEGORY_WAS_NOT_FOUND);
+        }
+        return products;
+    }
+
     /**
      * Returns the product with the specified code.
+     * The ETag is the version of the product, Last-Modified the time of its last write. The product comes from
+     * the cache, and a request with a matching If-None-Match is answered with 304 without serializing it.
      *
      * @param code. The code of the product to be retrieved.
      * @return A response entity containing the product.
@@ -112,23 +357,93 @@ public class ProductController {
         if (product == null) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, PRODUCT_WAS_NOT_FOUND);
         } else {
-            return new ResponseEntity<>(product, HttpStatus.OK);
+            return productResponse(product).body(product);
+        }
+    }
+
+    /**
+     * @return response builder with the validators of a product, ETag "v" followed by its version
+     */
+    static ResponseEntity.BodyBuilder productResponse(ProductDTO product) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag("v" + product.getVersion())
+                .cacheControl(CacheControl.noCache());
+        return product.getUpdatedAt() == null ? response : response.lastModified(product.getUpdatedAt());
+    }
+
+    /**
+     * @return ETag of the whole catalog, "c" followed by the feed position of the newest product change
+     */
+    static String catalogETag(ProductChangeDTO latestChange) {
+        return "c" + latestChange.getChangeId();
+    }
+
+    /**
+     * Returns the EUR price of the product converted to other currencies with the HNB rates held in memory.
+     * url: http://localhost:8089/products/product/{code}/prices?currency=USD&currency=GBP
+     *
+     * @param code The code of the product.
+     * @param currency Currencies to convert to, all configured ones (product.price.currencies) if omitted.
+     * @return Prices of the product by currency code.
+     * @throws ResponseStatusException If there is no such product or a currency is not configured.
+     * @throws JsonProcessingException If no rates were loaded yet and the cold-start call to HNB fails.
+     */
+    @GetMapping("/product/{code}/prices")
+    public ProductPricesDTO getProductPrices(@PathVariable("code") String code,
+                                             @RequestParam(required = false) List<String> currency) throws JsonProcessingException {
+        ProductDTO product = productService.getProductByCode(code);
+
+        if (product == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, PRODUCT_WAS_NOT_FOUND);
+        }
+        try {
+            return productPriceCalculator.calculate(product, currency);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage());
         }
     }
 
     /**
      * Updates the product with the specified code.
-     * This method updates the product's name, price, description, and availability.
+     * This method updates the product's name, price, description, and availability. With "version" in the body
+     * the update is applied only if the product still has that version.
      *
      * @param product The product to be updated.
      * @return A response entity containing the updated product.
-     * @throws ResponseStatusException If the response status code is not 200 OK.
+     * @throws ResponseStatusException If there is no such product.
+     * @throws org.springframework.dao.OptimisticLockingFailureException If the product has a different version
+     *         or was changed concurrently, answered with 409 Conflict.
      */
     @PutMapping("/update-product")
     public ResponseEntity<Object> updateProduct(@RequestBody @Valid ProductDTO productDTO) throws JsonProcessingException {
-            ProductDTO updatedProduct = productService.updateProduct(productDTO.getCode(), productDTO.getName(), productDTO.getPriceEUR(), productDTO.getDescription(), productDTO.getIsAvailable());
+        try {
+            ProductDTO updatedProduct = productService.updateProduct(productDTO.getCode(), productDTO.getName(), productDTO.getPriceEUR(), productDTO.getDescription(), productDTO.getIsAvailable(), productDTO.getVersion());
 
             return new ResponseEntity<>(updatedProduct, HttpStatus.OK);
+        } catch (ProductNotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, PRODUCT_WAS_NOT_FOUND);
+        }
+    }
+
+    /**
+     * Changes only the fields present in the body, e.g. {"priceEUR": 12.50}. With "version" in the body
+     * the change is applied only if the product still has that version.
+     * url: http://localhost:8089/products/product/{code}
+     *
+     * @param code The code of the product to be changed.
+     * @param patch The fields to change.
+     * @return The product after the change, with its new version.
+     * @throws ResponseStatusException If there is no such product.
+     * @throws org.springframework.dao.OptimisticLockingFailureException If the product has a different version
+     *         or was changed concurrently, answered with 409 Conflict.
+     */
+    @PatchMapping("/product/{code}")
+    public ProductDTO patchProduct(@PathVariable("code") String code, @RequestBody @Valid ProductPatchDTO patch) throws JsonProcessingException {
+        try {
+            return productService.patchProduct(code, patch);
+        } catch (ProductNotFoundException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, PRODUCT_WAS_NOT_FOUND);
+        }
     }
 
     /**
@@ -0,0 +1,37 @@
+package hr.demo.dto;
+
+import java.util.List;
+
+/**
+ * A page read with keyset paging. Unlike {@link org.springframework.data.domain.Page} it carries no total count,
+ * only the token for the next page, which is null once the last page has been reached.
+ *
+ * @param <T> type of the page content
+ * @author Zoran Džoić
+ */
+public class CursorPage<T> {
+
+	private final List<T> content;
+
+	private final int size;
+
+	private final String nextCursor;
+
+	public CursorPage(List<T> content, int size, String nextCursor) {
+		this.content = content;
+		this.size = size;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<T> getContent() {
+		return content;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+}
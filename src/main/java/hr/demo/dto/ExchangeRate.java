@@ -0,0 +1,72 @@
+package hr.demo.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Immutable snapshot of a single HNB middle exchange rate together with the date
+ * HNB declared it effective for and the moment we fetched it.
+ *
+ * @author Zoran Džoić
+ */
+public final class ExchangeRate {
+
+	/**
+	 * Currency of the stored product prices besides EUR.
+	 */
+	public static final String USD = "USD";
+
+	private final String currency;
+
+	private final BigDecimal middleRate;
+
+	private final LocalDate effectiveDate;
+
+	private final Instant fetchedAt;
+
+	public ExchangeRate(String currency, BigDecimal middleRate, LocalDate effectiveDate, Instant fetchedAt) {
+		this.currency = currency;
+		this.middleRate = middleRate;
+		this.effectiveDate = effectiveDate;
+		this.fetchedAt = fetchedAt;
+	}
+
+	public String getCurrency() {
+		return currency;
+	}
+
+	public BigDecimal getMiddleRate() {
+		return middleRate;
+	}
+
+	public LocalDate getEffectiveDate() {
+		return effectiveDate;
+	}
+
+	public Instant getFetchedAt() {
+		return fetchedAt;
+	}
+
+	/**
+	 * @param rateDate effective date of the rate a price was computed with, null if unknown
+	 * @param rate the rate a price was computed with, null if unknown
+	 * @return true if the price has to be recomputed with this rate: it was computed with a rate of an older date,
+	 *         or of the same date with another value (a correction)
+	 */
+	public boolean supersedes(LocalDate rateDate, BigDecimal rate) {
+		if (effectiveDate == null) {
+			return false;
+		}
+		if (rateDate == null || rateDate.isBefore(effectiveDate)) {
+			return true;
+		}
+		return rateDate.isEqual(effectiveDate) && (rate == null || rate.compareTo(middleRate) != 0);
+	}
+
+	@Override
+	public String toString() {
+		return "ExchangeRate [currency=" + currency + ", middleRate=" + middleRate + ", effectiveDate=" + effectiveDate
+				+ ", fetchedAt=" + fetchedAt + "]";
+	}
+}
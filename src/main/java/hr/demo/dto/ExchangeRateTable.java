@@ -0,0 +1,86 @@
+package hr.demo.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of a whole HNB exchange rate list, one {@link ExchangeRate} per currency.
+ * <p>
+ * The list is fetched with one call and swapped in as a whole, so readers always see the rates
+ * of one list and never a mix of two.
+ *
+ * @author Zoran Džoić
+ */
+public final class ExchangeRateTable {
+
+	private final Map<String, ExchangeRate> rates;
+
+	private ExchangeRateTable(Map<String, ExchangeRate> rates) {
+		this.rates = Collections.unmodifiableMap(rates);
+	}
+
+	/**
+	 * @param rates rates of the list, a later rate of the same currency replaces an earlier one
+	 * @return rate table
+	 */
+	public static ExchangeRateTable of(Collection<ExchangeRate> rates) {
+		Map<String, ExchangeRate> byCurrency = new LinkedHashMap<>();
+		for (ExchangeRate rate : rates) {
+			byCurrency.put(rate.getCurrency(), rate);
+		}
+		return new ExchangeRateTable(byCurrency);
+	}
+
+	/**
+	 * Returns a copy of this table with the rate of one currency added or replaced.
+	 *
+	 * @param rate the new rate
+	 * @return new rate table, this one is left unchanged
+	 */
+	public ExchangeRateTable with(ExchangeRate rate) {
+		Map<String, ExchangeRate> byCurrency = new LinkedHashMap<>(rates);
+		byCurrency.put(rate.getCurrency(), rate);
+		return new ExchangeRateTable(byCurrency);
+	}
+
+	/**
+	 * @param currency ISO 4217 currency code, e.g. "USD"
+	 * @return rate of the currency, or null if the list has none
+	 */
+	public ExchangeRate getRate(String currency) {
+		return rates.get(currency);
+	}
+
+	/**
+	 * @return currency codes of the list, in the order HNB returned them
+	 */
+	public Set<String> getCurrencies() {
+		return rates.keySet();
+	}
+
+	/**
+	 * @return the latest date any rate of the list is effective for, or null if unknown
+	 */
+	public LocalDate getEffectiveDate() {
+		return rates.values().stream().map(ExchangeRate::getEffectiveDate).filter(date -> date != null)
+				.max(LocalDate::compareTo).orElse(null);
+	}
+
+	/**
+	 * @return the moment the oldest rate of the table was fetched, or null for an empty table
+	 */
+	public Instant getFetchedAt() {
+		return rates.values().stream().map(ExchangeRate::getFetchedAt).filter(fetchedAt -> fetchedAt != null)
+				.min(Instant::compareTo).orElse(null);
+	}
+
+	@Override
+	public String toString() {
+		return "ExchangeRateTable [currencies=" + rates.keySet() + ", effectiveDate=" + getEffectiveDate() + "]";
+	}
+}
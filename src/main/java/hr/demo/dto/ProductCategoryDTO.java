@@ -0,0 +1,87 @@
+package hr.demo.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Category with the aggregates of its products, returned by GET /products/categories.
+ *
+ * @author Zoran Džoić
+ */
+public class ProductCategoryDTO {
+
+	private Long id;
+
+	private String categoryName;
+
+	private long productCount;
+
+	private long availableCount;
+
+	private BigDecimal minPriceEUR;
+
+	private BigDecimal maxPriceEUR;
+
+	public ProductCategoryDTO() {}
+
+	public ProductCategoryDTO(Long id, String categoryName, long productCount, long availableCount, BigDecimal minPriceEUR, BigDecimal maxPriceEUR) {
+		this.id = id;
+		this.categoryName = categoryName;
+		this.productCount = productCount;
+		this.availableCount = availableCount;
+		this.minPriceEUR = minPriceEUR;
+		this.maxPriceEUR = maxPriceEUR;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getCategoryName() {
+		return categoryName;
+	}
+
+	public void setCategoryName(String categoryName) {
+		this.categoryName = categoryName;
+	}
+
+	public long getProductCount() {
+		return productCount;
+	}
+
+	public void setProductCount(long productCount) {
+		this.productCount = productCount;
+	}
+
+	public long getAvailableCount() {
+		return availableCount;
+	}
+
+	public void setAvailableCount(long availableCount) {
+		this.availableCount = availableCount;
+	}
+
+	public BigDecimal getMinPriceEUR() {
+		return minPriceEUR;
+	}
+
+	public void setMinPriceEUR(BigDecimal minPriceEUR) {
+		this.minPriceEUR = minPriceEUR;
+	}
+
+	public BigDecimal getMaxPriceEUR() {
+		return maxPriceEUR;
+	}
+
+	public void setMaxPriceEUR(BigDecimal maxPriceEUR) {
+		this.maxPriceEUR = maxPriceEUR;
+	}
+
+	@Override
+	public String toString() {
+		return "ProductCategoryDTO [id=" + id + ", categoryName=" + categoryName + ", productCount=" + productCount + "]";
+	}
+}
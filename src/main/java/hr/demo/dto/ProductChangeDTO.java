@@ -0,0 +1,77 @@
+package hr.demo.dto;
+
+import java.time.Instant;
+
+/**
+ * One write of a product, read from the outbox by GET /products/changes and by the relay.
+ * <p>
+ * The outbox only records which product changed and to which version, {@link #getProduct()} is the state
+ * of the product when the change is read. A consumer keeps a product only if the change is not older than
+ * the version it already has, so several changes of the same product applied in any order end in the latest state.
+ *
+ * @author Zoran Džoić
+ */
+public class ProductChangeDTO {
+
+	public enum Type {
+		CREATED, UPDATED, DELETED
+	}
+
+	private final long changeId;
+
+	private final String code;
+
+	private final Type type;
+
+	private final long version;
+
+	private final Instant changedAt;
+
+	private final ProductDTO product;
+
+	/**
+	 * @param changeId position of the change in the feed, increasing
+	 * @param code product code
+	 * @param type kind of the write
+	 * @param version version of the product after the write, a deletion counts as one more write
+	 * @param changedAt moment of the write
+	 * @param product current state of the product, null if it has been deleted since
+	 */
+	public ProductChangeDTO(long changeId, String code, Type type, long version, Instant changedAt, ProductDTO product) {
+		this.changeId = changeId;
+		this.code = code;
+		this.type = type;
+		this.version = version;
+		this.changedAt = changedAt;
+		this.product = product;
+	}
+
+	public long getChangeId() {
+		return changeId;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public Instant getChangedAt() {
+		return changedAt;
+	}
+
+	public ProductDTO getProduct() {
+		return product;
+	}
+
+	@Override
+	public String toString() {
+		return "ProductChangeDTO [changeId=" + changeId + ", code=" + code + ", type=" + type + ", version=" + version + ", changedAt=" + changedAt + "]";
+	}
+}
@@ -0,0 +1,40 @@
+package hr.demo.dto;
+
+import java.util.List;
+
+/**
+ * A page of the change feed, returned by GET /products/changes.
+ * <p>
+ * The next page is read with {@code since=nextSince}; the feed never ends, a page with fewer changes
+ * than requested only means the consumer has caught up for now.
+ *
+ * @author Zoran Džoić
+ */
+public class ProductChangePage {
+
+	private final List<ProductChangeDTO> changes;
+
+	private final long nextSince;
+
+	public ProductChangePage(List<ProductChangeDTO> changes, long nextSince) {
+		this.changes = changes;
+		this.nextSince = nextSince;
+	}
+
+	/**
+	 * @param changes changes read after {@code since}, ordered by position
+	 * @param since position the changes were read after
+	 * @return page continuing after the last change, or at {@code since} if there was none
+	 */
+	public static ProductChangePage of(List<ProductChangeDTO> changes, long since) {
+		return new ProductChangePage(changes, changes.isEmpty() ? since : changes.get(changes.size() - 1).getChangeId());
+	}
+
+	public List<ProductChangeDTO> getChanges() {
+		return changes;
+	}
+
+	public long getNextSince() {
+		return nextSince;
+	}
+}
@@ -1,6 +1,7 @@
 package hr.demo.dto;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
 import org.hibernate.validator.constraints.Length;
 
@@ -9,7 +10,19 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
-import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * A product as sent to and received from clients.
+ * <p>
+ * Kept as a class with setters rather than a record: it is also the request body of add-product, add-products and
+ * update-product, where clients send only some of the fields and the validation annotations sit on the fields, and
+ * existing clients and tests build it field by field. A record would not allocate less either, mapping a product
+ * creates exactly one DTO; the per-product garbage of mapping was the category id string, see
+ * {@link hr.demo.utility.CategoryIds}. Instances are shared by the product cache and must not be changed
+ * once they are returned by the service.
+ *
+ * @author Zoran Džoić
+ */
 public class ProductDTO {
 
 	@NotEmpty(message = "Name can not be empty")
@@ -31,6 +44,16 @@ public class ProductDTO {
 	@NotEmpty(message = "Category ID can not be empty")
 	private String categoryId;
 
+	/**
+	 * Version of the product when it was read, sent back with PATCH to detect concurrent changes.
+	 */
+	private Long version;
+
+	/**
+	 * Time of the last write of the product, sent as Last-Modified with the product detail.
+	 */
+	private Instant updatedAt;
+
 	public ProductDTO(String code, String name, BigDecimal priceEur, BigDecimal priceUsd, Boolean isAvailable, String description, String categoryId) {
 		this.code = code;
 		this.name = name;
@@ -41,6 +64,17 @@ public class ProductDTO {
 		this.categoryId = categoryId;
 	}
 
+	public ProductDTO(String code, String name, BigDecimal priceEur, BigDecimal priceUsd, Boolean isAvailable, String description, String categoryId, Long version) {
+		this(code, name, priceEur, priceUsd, isAvailable, description, categoryId);
+		this.version = version;
+	}
+
+	public ProductDTO(String code, String name, BigDecimal priceEur, BigDecimal priceUsd, Boolean isAvailable, String description, String categoryId,
+			Long version, Instant updatedAt) {
+		this(code, name, priceEur, priceUsd, isAvailable, description, categoryId, version);
+		this.updatedAt = updatedAt;
+	}
+
     public ProductDTO(String name, BigDecimal priceEur, String description, Boolean isAvailable, String categoryId) {
 		this.name = name;
 		this.priceEUR = priceEur;
@@ -102,6 +136,22 @@ public class ProductDTO {
 		this.categoryId = categoryId;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public Instant getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public void setUpdatedAt(Instant updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+
 	public ProductDTO() {}
 
 	@Override
@@ -0,0 +1,88 @@
+package hr.demo.dto;
+
+import java.time.Instant;
+
+/**
+ * State of a product create accepted by the asynchronous ingestion (POST /products/add-product with
+ * {@code Prefer: respond-async}), returned by GET /products/ingest/{id}.
+ * <p>
+ * A status is replaced as a whole when the create is written or fails, so a reader never sees a mix of two states.
+ *
+ * @author Zoran Džoić
+ */
+public class ProductIngestStatus {
+
+	public enum State {
+		ACCEPTED, CREATED, FAILED
+	}
+
+	/**
+	 * Why a create failed: the product itself is invalid (e.g. its category does not exist), it conflicts with a
+	 * stored one, or anything else. The details are only logged.
+	 */
+	public enum Failure {
+		VALIDATION, CONFLICT, INTERNAL
+	}
+
+	private final String id;
+
+	private final State state;
+
+	private final Instant acceptedAt;
+
+	private final ProductDTO product;
+
+	private final Failure error;
+
+	/**
+	 * @param id id of the accepted create, part of its status URL
+	 * @param state where the create is
+	 * @param acceptedAt moment the create was queued
+	 * @param product the created product, null until the create is written
+	 * @param error why the create failed, null unless it did
+	 */
+	public ProductIngestStatus(String id, State state, Instant acceptedAt, ProductDTO product, Failure error) {
+		this.id = id;
+		this.state = state;
+		this.acceptedAt = acceptedAt;
+		this.product = product;
+		this.error = error;
+	}
+
+	public static ProductIngestStatus accepted(String id) {
+		return new ProductIngestStatus(id, State.ACCEPTED, Instant.now(), null, null);
+	}
+
+	public ProductIngestStatus created(ProductDTO product) {
+		return new ProductIngestStatus(id, State.CREATED, acceptedAt, product, null);
+	}
+
+	public ProductIngestStatus failed(Failure error) {
+		return new ProductIngestStatus(id, State.FAILED, acceptedAt, null, error);
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public Instant getAcceptedAt() {
+		return acceptedAt;
+	}
+
+	public ProductDTO getProduct() {
+		return product;
+	}
+
+	public Failure getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return "ProductIngestStatus [id=" + id + ", state=" + state + ", acceptedAt=" + acceptedAt + ", error=" + error + "]";
+	}
+}
@@ -0,0 +1,86 @@
+package hr.demo.dto;
+
+import java.math.BigDecimal;
+
+import org.hibernate.validator.constraints.Length;
+
+import jakarta.validation.constraints.DecimalMin;
+
+/**
+ * Body of PATCH /products/product/{code}. Only the fields that are present are changed, null means "keep".
+ * <p>
+ * With {@link #version} set, the patch is applied only if the product still has that version, so a client
+ * does not overwrite a change it has not seen.
+ *
+ * @author Zoran Džoić
+ */
+public class ProductPatchDTO {
+
+	@Length(min = 3, max = 15, message = "The name must be at least 3 characters long and maximum 15 characters long.")
+	private String name;
+
+	@Length(min = 1, message = "Description can not be empty")
+	private String description;
+
+	@DecimalMin(value = "0", inclusive = false, message = "Price must be greater than zero")
+	private BigDecimal priceEUR;
+
+	private Boolean isAvailable;
+
+	private Long version;
+
+	public ProductPatchDTO() {}
+
+	public ProductPatchDTO(String name, BigDecimal priceEUR, String description, Boolean isAvailable, Long version) {
+		this.name = name;
+		this.priceEUR = priceEUR;
+		this.description = description;
+		this.isAvailable = isAvailable;
+		this.version = version;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+
+	public BigDecimal getPriceEUR() {
+		return priceEUR;
+	}
+
+	public void setPriceEUR(BigDecimal priceEUR) {
+		this.priceEUR = priceEUR;
+	}
+
+	public Boolean getIsAvailable() {
+		return isAvailable;
+	}
+
+	public void setIsAvailable(Boolean isAvailable) {
+		this.isAvailable = isAvailable;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	@Override
+	public String toString() {
+		return "ProductPatchDTO [name=" + name + ", priceEUR=" + priceEUR + ", isAvailable=" + isAvailable + ", version=" + version + "]";
+	}
+}
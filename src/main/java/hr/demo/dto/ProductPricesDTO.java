@@ -0,0 +1,55 @@
+package hr.demo.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * EUR price of a product converted to other currencies, returned by GET /products/product/{code}/prices.
+ *
+ * @author Zoran Džoić
+ */
+public class ProductPricesDTO {
+
+	private final String code;
+
+	private final BigDecimal priceEUR;
+
+	private final LocalDate rateDate;
+
+	private final Map<String, BigDecimal> prices;
+
+	/**
+	 * @param code product code
+	 * @param priceEUR price in EUR
+	 * @param rateDate effective date of the HNB list the prices were calculated with
+	 * @param prices prices by ISO 4217 currency code
+	 */
+	public ProductPricesDTO(String code, BigDecimal priceEUR, LocalDate rateDate, Map<String, BigDecimal> prices) {
+		this.code = code;
+		this.priceEUR = priceEUR;
+		this.rateDate = rateDate;
+		this.prices = prices;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public BigDecimal getPriceEUR() {
+		return priceEUR;
+	}
+
+	public LocalDate getRateDate() {
+		return rateDate;
+	}
+
+	public Map<String, BigDecimal> getPrices() {
+		return prices;
+	}
+
+	@Override
+	public String toString() {
+		return "ProductPricesDTO [code=" + code + ", priceEUR=" + priceEUR + ", rateDate=" + rateDate + ", prices=" + prices + "]";
+	}
+}
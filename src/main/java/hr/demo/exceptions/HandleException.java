@@ -5,6 +5,9 @@ import hr.demo.controller.ProductController;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.web.servlet.error.ErrorController;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -16,28 +19,53 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+
+import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static java.time.LocalDateTime.now;
 import static org.springframework.http.HttpStatus.*;
 
 import hr.demo.utility.HttpResponse;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @RestControllerAdvice
+@Profile("!reactive")
 public class HandleException extends ResponseEntityExceptionHandler implements ErrorController {
 
     Logger logger = LoggerFactory.getLogger(ProductController.class);
 
+    public static final String UNIQUE_VIOLATION = "23505";
+
+    // PostgreSQL reports a missing referenced row as 23503, H2 as 23506
+    public static final Set<String> FOREIGN_KEY_VIOLATIONS = Set.of("23503", "23506");
+
+    private final MeterRegistry meterRegistry;
+
+    public HandleException(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    private void countError(Exception exception, HttpStatusCode statusCode) {
+        meterRegistry.counter("product.errors", "exception", exception.getClass().getSimpleName(), "status", String.valueOf(statusCode.value())).increment();
+    }
+
     @Override
     protected ResponseEntity<Object> handleExceptionInternal(Exception exception, Object body, HttpHeaders headers, HttpStatusCode statusCode, WebRequest request) {
         logger.error(exception.getMessage());
+        countError(exception, statusCode);
         return new ResponseEntity<>(new HttpResponse(now().toString(), statusCode.value(), resolve(statusCode.value()), exception.getMessage(), exception.getMessage()), statusCode);
     }
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException exception, HttpHeaders headers, HttpStatusCode statusCode, WebRequest request) {
         logger.error(exception.getMessage());
+        countError(exception, statusCode);
         List<FieldError> fieldErrors = exception.getBindingResult().getFieldErrors();
         String fieldMessage = fieldErrors.stream().map(FieldError::getDefaultMessage).collect(Collectors.joining(", "));
         return new ResponseEntity<>(new HttpResponse(now().toString(), statusCode.value(), resolve(statusCode.value()), fieldMessage, exception.getMessage()), statusCode);
@@ -45,18 +73,93 @@ public class HandleException extends ResponseEntityExceptionHandler implements E
     @ExceptionHandler(SQLIntegrityConstraintViolationException.class)
     public ResponseEntity<HttpResponse> SQLIntegrityConstraintViolationException(SQLIntegrityConstraintViolationException exception) {
         logger.error(exception.getMessage());
+        countError(exception, BAD_REQUEST);
         return new ResponseEntity<>(new HttpResponse(now().toString(), BAD_REQUEST.value(), BAD_REQUEST, exception.getMessage(), exception.getMessage()), HttpStatusCode.valueOf(BAD_REQUEST.value()));
     }
 
+    /**
+     * A product referencing a category that does not exist (400) or a product code that is already taken (409),
+     * told apart by the SQL state, without passing the database message on to the client. Any other violation
+     * is a server error.
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<?> handleDataIntegrityViolationException(DataIntegrityViolationException exception) {
+        String sqlState = sqlState(exception);
+        if (UNIQUE_VIOLATION.equals(sqlState)) {
+            logger.warn(exception.getMessage());
+            countError(exception, CONFLICT);
+            return new ResponseEntity<>(new HttpResponse(now().toString(), CONFLICT.value(), CONFLICT, ProductController.PRODUCT_ALREADY_EXISTS, ProductController.PRODUCT_ALREADY_EXISTS), HttpStatusCode.valueOf(CONFLICT.value()));
+        }
+        if (FOREIGN_KEY_VIOLATIONS.contains(sqlState)) {
+            logger.warn(exception.getMessage());
+            countError(exception, BAD_REQUEST);
+            return new ResponseEntity<>(new HttpResponse(now().toString(), BAD_REQUEST.value(), BAD_REQUEST, ProductController.CATEGORY_DOES_NOT_EXIST, ProductController.CATEGORY_DOES_NOT_EXIST), HttpStatusCode.valueOf(BAD_REQUEST.value()));
+        }
+        return exception(exception);
+    }
+
+    /**
+     * @return SQL state of the first SQLException in the causes, null if there is none
+     */
+    public static String sqlState(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                return sqlException.getSQLState();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A write based on an older version of a product, see {@link hr.demo.model.Product#getVersion()}.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<HttpResponse> handleOptimisticLockingFailureException(OptimisticLockingFailureException exception) {
+        logger.warn(exception.getMessage());
+        countError(exception, CONFLICT);
+        return new ResponseEntity<>(new HttpResponse(now().toString(), CONFLICT.value(), CONFLICT, ProductController.PRODUCT_WAS_CHANGED, exception.getMessage()), HttpStatusCode.valueOf(CONFLICT.value()));
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<HttpResponse> handleConstraintViolationException(ConstraintViolationException exception) {
+        logger.error(exception.getMessage());
+        countError(exception, BAD_REQUEST);
+        String violationMessage = exception.getConstraintViolations().stream().map(ConstraintViolation::getMessage).distinct().collect(Collectors.joining(", "));
+        return new ResponseEntity<>(new HttpResponse(now().toString(), BAD_REQUEST.value(), BAD_REQUEST, violationMessage, exception.getMessage()), HttpStatusCode.valueOf(BAD_REQUEST.value()));
+    }
+
     @ExceptionHandler(JsonProcessingException.class)
     public ResponseEntity<String> handleJsonProcessingException(JsonProcessingException e) {
         logger.error(e.getMessage());
+        countError(e, BAD_REQUEST);
         return ResponseEntity.status(BAD_REQUEST).body(e.getMessage());
     }
 
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<HttpResponse> handleBulkheadFullException(BulkheadFullException exception) {
+        logger.warn(exception.getMessage());
+        countError(exception, SERVICE_UNAVAILABLE);
+        return ResponseEntity.status(SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new HttpResponse(now().toString(), SERVICE_UNAVAILABLE.value(), SERVICE_UNAVAILABLE, "The service is busy, please retry.", exception.getMessage()));
+    }
+
+    /**
+     * The asynchronous ingestion queue is full, the product was not queued.
+     */
+    @ExceptionHandler(IngestQueueFullException.class)
+    public ResponseEntity<HttpResponse> handleIngestQueueFullException(IngestQueueFullException exception) {
+        logger.warn(exception.getMessage());
+        countError(exception, SERVICE_UNAVAILABLE);
+        return ResponseEntity.status(SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new HttpResponse(now().toString(), SERVICE_UNAVAILABLE.value(), SERVICE_UNAVAILABLE, "Too many products are waiting to be written, please retry.", exception.getMessage()));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> exception(Exception e) {
         logger.error(e.getMessage());
+        countError(e, INTERNAL_SERVER_ERROR);
         return new ResponseEntity<>("Internal server error", HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
@@ -0,0 +1,15 @@
+package hr.demo.exceptions;
+
+public class IngestQueueFullException extends RuntimeException {
+
+    private final int capacity;
+
+    public IngestQueueFullException(int capacity) {
+        super("The ingest queue is full (" + capacity + " products).");
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -2,43 +2,56 @@ package hr.demo.model;
 
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import hr.demo.dto.ProductDTO;
-import hr.demo.utility.ProductMapper;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 
 import jakarta.validation.constraints.NotEmpty;
 
 /**
  * The Product entity represents a product in the database.
+ * <p>
+ * Updates write only the changed columns (dynamic update), so a change of the name does not rewrite prices
+ * the repricing job may have changed in the meantime.
  *
  * @author Zoran Džoić
  */
 @Entity
-@Table(name = "product")
-public class Product implements ProductMapper {
+@DynamicUpdate
+@Table(name = "product", indexes = {
+		@Index(name = "product_code_uidx", columnList = "code", unique = true),
+		@Index(name = "product_category_price_idx", columnList = "category_id, price_eur, product_id"),
+		@Index(name = "product_price_eur_id_idx", columnList = "price_eur, product_id")
+})
+public class Product {
 	
 	@Id
-	@SequenceGenerator(name = "ingemark-seq2", initialValue = 1, allocationSize = 1)
+	@SequenceGenerator(name = "ingemark-seq2", initialValue = 1, allocationSize = 50)
 	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingemark-seq2")
+	@Column(name = "product_id")
 	private Long productId; 
 	
 	@Column(name = "code", length = 10)
@@ -53,14 +66,46 @@ public class Product implements ProductMapper {
 	@Column(name = "price_usd")
 	private BigDecimal priceUsd;
 	
+	/**
+	 * Effective date of the HNB rate {@link #priceUsd} was computed with, products with an older date
+	 * are repriced when a new rate is published, see {@link hr.demo.service.ProductRepricingService}.
+	 */
+	@Column(name = "usd_rate_date")
+	private LocalDate usdRateDate;
+
+	/**
+	 * The HNB rate {@link #priceUsd} was computed with, so a rate corrected on the same date is repriced as well.
+	 */
+	@Column(name = "usd_rate")
+	private BigDecimal usdRate;
+
 	@Column(name = "description")
 	private String description;
 	
 	@Column(name = "is_available")
 	private Boolean isAvailable;
+
+	/**
+	 * Incremented on every write; a write of an entity read with an older version fails with an
+	 * optimistic locking exception instead of overwriting a concurrent change.
+	 */
+	@Version
+	@Column(name = "version", nullable = false)
+	private Long version;
+
+	/**
+	 * Time of the last write, set by Hibernate on insert and on every update that changes a column.
+	 */
+	@UpdateTimestamp
+	@Column(name = "updated_at", nullable = false)
+	private Instant updatedAt;
 	
+	/**
+	 * Loaded lazily: reading products never selects their categories, and {@code getCategory().getId()}
+	 * is answered by the proxy from the foreign key without initializing it.
+	 */
 	@JsonBackReference
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "category_id")
 	private ProductCategory category;
 	
@@ -146,6 +191,38 @@ public class Product implements ProductMapper {
 		this.priceUsd = priceUsd;
 	}
 
+	public LocalDate getUsdRateDate() {
+		return usdRateDate;
+	}
+
+	public void setUsdRateDate(LocalDate usdRateDate) {
+		this.usdRateDate = usdRateDate;
+	}
+
+	public BigDecimal getUsdRate() {
+		return usdRate;
+	}
+
+	public void setUsdRate(BigDecimal usdRate) {
+		this.usdRate = usdRate;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public Instant getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public void setUpdatedAt(Instant updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+
 	public String getDescription() {
 		return description;
 	}
@@ -3,8 +3,12 @@ package hr.demo.model;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -16,9 +20,23 @@ import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotEmpty;
 
+/**
+ * Category of products. Categories are small reference data that is only ever added, so they are kept
+ * in the Hibernate second-level cache: loading a category by id does not reach the database once it was read or saved.
+ *
+ * @author Zoran Džoić
+ */
 @Entity
 @Table(name = "product-category")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ProductCategory.CACHE_REGION)
 public class ProductCategory {
+
+	/**
+	 * Second-level cache region of categories, configured in application.conf.
+	 */
+	public static final String CACHE_REGION = "product-category";
+
 	 
 	@Id
 	@SequenceGenerator(name = "ingemark-seq", initialValue = 1, allocationSize = 1)
@@ -30,6 +48,10 @@ public class ProductCategory {
 	@NotEmpty
     public String categoryName;
 
+    /**
+     * Inverse side of {@link Product#getCategory()}, lazy. Products are created by setting their category,
+     * this collection is not maintained on create.
+     */
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "category")
     private Set<Product> products;
     
@@ -0,0 +1,67 @@
+package hr.demo.model;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Precomputed aggregates of the products of one category, so the category overview does not scan products.
+ * <p>
+ * A row is created together with its category. Counts are changed by deltas in the same transaction as
+ * every product write, min and max EUR price are re-read from the (category_id, price_eur) index,
+ * see {@link hr.demo.repository.ProductCategoryStatsRepo#applyChange}.
+ *
+ * @author Zoran Džoić
+ */
+@Entity
+@Table(name = "product_category_stats")
+public class ProductCategoryStats {
+
+	@Id
+	@Column(name = "category_id")
+	private Long categoryId;
+
+	@Column(name = "product_count", nullable = false)
+	private long productCount;
+
+	@Column(name = "available_count", nullable = false)
+	private long availableCount;
+
+	@Column(name = "min_price_eur")
+	private BigDecimal minPriceEur;
+
+	@Column(name = "max_price_eur")
+	private BigDecimal maxPriceEur;
+
+	public ProductCategoryStats() {}
+
+	/**
+	 * Aggregates of a new, empty category.
+	 */
+	public ProductCategoryStats(Long categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public Long getCategoryId() {
+		return categoryId;
+	}
+
+	public long getProductCount() {
+		return productCount;
+	}
+
+	public long getAvailableCount() {
+		return availableCount;
+	}
+
+	public BigDecimal getMinPriceEur() {
+		return minPriceEur;
+	}
+
+	public BigDecimal getMaxPriceEur() {
+		return maxPriceEur;
+	}
+}
@@ -1,11 +1,31 @@
 package hr.demo.repository;
 
+import java.util.List;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import hr.demo.model.ProductCategory;
+import jakarta.persistence.QueryHint;
 import org.springframework.stereotype.Repository;
 
+/**
+ * Categories are read through the Hibernate second-level cache, see {@link ProductCategory}.
+ *
+ * @author Zoran Džoić
+ */
 @Repository
 public interface ProductCategoryRepo extends JpaRepository<ProductCategory, Long>{
 
+	/**
+	 * Returns all categories from the query cache. Hibernate invalidates the cached result whenever
+	 * a category is saved, e.g. by POST /products/add-product-category.
+	 *
+	 * @return all categories
+	 */
+	@Override
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	List<ProductCategory> findAll();
+
 }
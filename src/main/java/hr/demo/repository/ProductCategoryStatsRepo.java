@@ -0,0 +1,72 @@
+package hr.demo.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import hr.demo.dto.ProductCategoryDTO;
+import hr.demo.model.ProductCategoryStats;
+
+/**
+ * Reads and maintains the per-category aggregates of {@link ProductCategoryStats}.
+ *
+ * @author Zoran Džoić
+ */
+@Repository
+public interface ProductCategoryStatsRepo extends JpaRepository<ProductCategoryStats, Long> {
+
+	String LOCK = "select category_id from product_category_stats where category_id = :categoryId for update";
+
+	String PRODUCT_CATEGORY_DTO = "new hr.demo.dto.ProductCategoryDTO(c.id, c.categoryName, s.productCount, s.availableCount, s.minPriceEur, s.maxPriceEur)";
+
+	/**
+	 * Returns all categories with their aggregates, joined on the primary keys, without touching products.
+	 *
+	 * @return categories ordered by name
+	 */
+	@Query("select " + PRODUCT_CATEGORY_DTO + " from ProductCategory c join ProductCategoryStats s on s.categoryId = c.id order by c.categoryName, c.id")
+	List<ProductCategoryDTO> findAllCategoryDTOs();
+
+	/**
+	 * @param categoryId category id
+	 * @return the category with its aggregates, or null if there is no such category
+	 */
+	@Query("select " + PRODUCT_CATEGORY_DTO + " from ProductCategory c join ProductCategoryStats s on s.categoryId = c.id where c.id = :categoryId")
+	ProductCategoryDTO findCategoryDTOById(@Param("categoryId") Long categoryId);
+
+	/**
+	 * Locks the aggregates row of a category until the end of the transaction, see {@link #applyChange}.
+	 *
+	 * @param categoryId category id
+	 * @return the category id, or null if the category has no aggregates row
+	 */
+	@Query(value = LOCK, nativeQuery = true)
+	Long lockByCategoryId(@Param("categoryId") Long categoryId);
+
+	/**
+	 * Applies a product write to the aggregates of its category. Must run in the transaction of the write,
+	 * pending product changes are flushed first. Counts are changed by the given deltas, min and max price
+	 * are re-read with two seeks on the (category_id, price_eur) index instead of scanning the category,
+	 * which also covers deleting or re-pricing the cheapest or most expensive product.
+	 * <p>
+	 * The row has to be locked with {@link #lockByCategoryId} first: under READ COMMITTED an update that waits
+	 * for the row lock of a concurrent write still computes min and max from the snapshot taken before it waited,
+	 * without the products that write committed. A statement that starts once the lock is held sees them.
+	 *
+	 * @param categoryId category of the written products
+	 * @param productDelta change of the number of products
+	 * @param availableDelta change of the number of available products
+	 * @return number of updated rows, 0 if the category has no aggregates row
+	 */
+	@Modifying(flushAutomatically = true)
+	@Query("update ProductCategoryStats s set s.productCount = s.productCount + :productDelta, "
+			+ "s.availableCount = s.availableCount + :availableDelta, "
+			+ "s.minPriceEur = (select min(p.priceEur) from Product p where p.category.id = :categoryId), "
+			+ "s.maxPriceEur = (select max(p.priceEur) from Product p where p.category.id = :categoryId) "
+			+ "where s.categoryId = :categoryId")
+	int applyChange(@Param("categoryId") Long categoryId, @Param("productDelta") long productDelta, @Param("availableDelta") long availableDelta);
+}
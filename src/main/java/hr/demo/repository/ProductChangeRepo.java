@@ -0,0 +1,190 @@
+package hr.demo.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import hr.demo.dto.ProductChangeDTO;
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.Product;
+
+/**
+ * The product change outbox over JDBC, appended in the transaction of the product write.
+ *
+ * @author Zoran Džoić
+ */
+@Repository
+@Profile("!reactive")
+public class ProductChangeRepo {
+
+	/**
+	 * Row of {@code product_change_relay} holding the last assigned feed position.
+	 */
+	public static final String FEED_POSITION = "feed";
+
+	static final String INSERT = "insert into product_change (product_code, change_type, product_version, changed_at) values (:code, :type, :version, :changedAt)";
+
+	static final String FIND_AFTER = "select c.feed_position, c.product_code, c.change_type, c.product_version, c.changed_at, "
+			+ "p.code, p.name, p.price_eur, p.price_usd, p.is_available, p.description, p.category_id, p.version, p.updated_at "
+			+ "from product_change c left join product p on p.code = c.product_code "
+			+ "where c.feed_position > :since order by c.feed_position limit :limit";
+
+	static final String FIND_LATEST = "select feed_position, product_code, change_type, product_version, changed_at "
+			+ "from product_change where feed_position is not null order by feed_position desc limit 1";
+
+	static final String FIND_UNPOSITIONED = "select change_id from product_change where feed_position is null order by change_id limit :limit";
+
+	static final String ASSIGN_POSITION = "update product_change set feed_position = :position where change_id = :changeId";
+
+	static final String LOCK_RELAY_POSITION = "select last_position from product_change_relay where relay_name = :relayName for update";
+
+	static final String SAVE_RELAY_POSITION = "update product_change_relay set last_position = :lastPosition where relay_name = :relayName";
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+
+	public ProductChangeRepo(NamedParameterJdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Appends one change per product in one JDBC batch, must run in the transaction of the write.
+	 *
+	 * @param type kind of the write
+	 * @param products written products, with the version they have after the write (before it, for deletions)
+	 */
+	public void append(ProductChangeDTO.Type type, List<Product> products) {
+		Timestamp changedAt = Timestamp.from(Instant.now());
+		SqlParameterSource[] changes = new SqlParameterSource[products.size()];
+		for (int i = 0; i < changes.length; i++) {
+			Product product = products.get(i);
+			changes[i] = new MapSqlParameterSource("code", product.getCode())
+					.addValue("type", type.name())
+					.addValue("version", changeVersion(type, product.getVersion()))
+					.addValue("changedAt", changedAt);
+		}
+		jdbcTemplate.batchUpdate(INSERT, changes);
+	}
+
+	/**
+	 * Assigns feed positions to committed changes without one, must run in a transaction.
+	 *
+	 * @param limit maximum number of changes to position
+	 * @return number of positioned changes
+	 */
+	public int assignPositions(int limit) {
+		long position = lockRelayPosition(FEED_POSITION);
+		List<Long> changeIds = jdbcTemplate.queryForList(FIND_UNPOSITIONED, new MapSqlParameterSource("limit", limit), Long.class);
+		if (changeIds.isEmpty()) {
+			return 0;
+		}
+		SqlParameterSource[] positions = new SqlParameterSource[changeIds.size()];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = new MapSqlParameterSource("position", ++position).addValue("changeId", changeIds.get(i));
+		}
+		jdbcTemplate.batchUpdate(ASSIGN_POSITION, positions);
+		saveRelayPosition(FEED_POSITION, position);
+		return positions.length;
+	}
+
+	/**
+	 * @return true if a committed change has no position yet, read without locking
+	 */
+	public boolean hasUnpositionedChanges() {
+		return !jdbcTemplate.queryForList(FIND_UNPOSITIONED, new MapSqlParameterSource("limit", 1), Long.class).isEmpty();
+	}
+
+	/**
+	 * Reads changes with the current state of their products.
+	 *
+	 * @param since position of the last change already read, 0 for the first read
+	 * @param limit maximum number of changes
+	 * @return positioned changes ordered by position
+	 */
+	public List<ProductChangeDTO> findAfter(long since, int limit) {
+		return jdbcTemplate.query(FIND_AFTER, new MapSqlParameterSource("since", since).addValue("limit", limit),
+				ProductChangeRepo::toProductChangeDTO);
+	}
+
+	/**
+	 * Reads the newest positioned change, whose position versions the whole catalog.
+	 *
+	 * @return the newest positioned change without its product, or null if there is none
+	 */
+	public ProductChangeDTO findLatest() {
+		List<ProductChangeDTO> latest = jdbcTemplate.query(FIND_LATEST, (rs, rowNum) -> toProductChangeDTO(rs, null));
+		return latest.isEmpty() ? null : latest.get(0);
+	}
+
+	/**
+	 * Reads the position of a relay and locks it until the end of the transaction.
+	 *
+	 * @param relayName name of the relay
+	 * @return position of the last published change
+	 */
+	public long lockRelayPosition(String relayName) {
+		return jdbcTemplate.queryForObject(LOCK_RELAY_POSITION,
+				new MapSqlParameterSource("relayName", relayName), Long.class);
+	}
+
+	/**
+	 * @param relayName name of the relay
+	 * @return position of the last published change, without waiting for a relay that is publishing
+	 */
+	public long findRelayPosition(String relayName) {
+		return jdbcTemplate.queryForObject("select last_position from product_change_relay where relay_name = :relayName",
+				new MapSqlParameterSource("relayName", relayName), Long.class);
+	}
+
+	public void saveRelayPosition(String relayName, long lastPosition) {
+		jdbcTemplate.update(SAVE_RELAY_POSITION,
+				new MapSqlParameterSource("lastPosition", lastPosition).addValue("relayName", relayName));
+	}
+
+	/**
+	 * @param position position of the last published change
+	 * @return moment of the oldest change after it or without a position, null if there is none
+	 */
+	public Instant findOldestChangedAtAfter(long position) {
+		Timestamp changedAt = jdbcTemplate.queryForObject("select min(changed_at) from product_change where feed_position > :position or feed_position is null",
+				new MapSqlParameterSource("position", position), Timestamp.class);
+		return changedAt == null ? null : changedAt.toInstant();
+	}
+
+	/**
+	 * Removes old changes, always keeping the newest one.
+	 *
+	 * @param before changes older than this are removed
+	 * @param maxPosition changes after this position are kept
+	 * @return number of removed changes
+	 */
+	public int deleteOlderThan(Instant before, long maxPosition) {
+		return jdbcTemplate.update("delete from product_change where changed_at < :before and feed_position <= :maxPosition "
+				+ "and feed_position < (select max(feed_position) from product_change)",
+				new MapSqlParameterSource("before", Timestamp.from(before)).addValue("maxPosition", maxPosition));
+	}
+
+	/**
+	 * A deletion counts as one more write, so it is newer than the last state.
+	 */
+	static long changeVersion(ProductChangeDTO.Type type, Long version) {
+		long current = version == null ? 0 : version;
+		return type == ProductChangeDTO.Type.DELETED ? current + 1 : current;
+	}
+
+	private static ProductChangeDTO toProductChangeDTO(ResultSet rs, int rowNum) throws SQLException {
+		return toProductChangeDTO(rs, rs.getString("code") == null ? null : ProductSearchRepo.toProductDTO(rs, rowNum));
+	}
+
+	private static ProductChangeDTO toProductChangeDTO(ResultSet rs, ProductDTO product) throws SQLException {
+		return new ProductChangeDTO(rs.getLong("feed_position"), rs.getString("product_code"), ProductChangeDTO.Type.valueOf(rs.getString("change_type")),
+				rs.getLong("product_version"), rs.getTimestamp("changed_at").toInstant(), product);
+	}
+}
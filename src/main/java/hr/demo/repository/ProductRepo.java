@@ -1,17 +1,22 @@
 package hr.demo.repository;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.stream.Stream;
 
 import hr.demo.dto.ProductDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import hr.demo.model.Product;
+import jakarta.persistence.QueryHint;
 
 /**
  * The `ProductRepo` interface provides methods for accessing products from the database.
@@ -20,10 +25,83 @@ import hr.demo.model.Product;
  */
 @Repository
 public interface ProductRepo extends JpaRepository<Product, Long> {
+
+	/**
+	 * JPQL constructor expression selecting the columns of a {@link ProductDTO} from a product aliased p.
+	 */
+	String PRODUCT_DTO = "new hr.demo.dto.ProductDTO(p.code, p.name, p.priceEur, p.priceUsd, p.isAvailable, p.description, "
+			+ "cast(p.category.id as String), p.version, p.updatedAt)";
 	
 	Page<Product> findAll(Pageable pageable);
+
+	/**
+	 * Reads a page of products straight into {@link ProductDTO}s. Only the product columns are selected,
+	 * the category id is taken from the foreign key column, so no entities are managed and no category is loaded.
+	 * Sort properties of the pageable are entity properties, e.g. priceEur.
+	 *
+	 * @param pageable page, size and sort
+	 * @return page of products
+	 */
+	@Query(value = "select " + PRODUCT_DTO + " from Product p", countQuery = "select count(p) from Product p")
+	Page<ProductDTO> findAllProductDTOs(Pageable pageable);
 	
 	public List<Product> findAll();
+
+	/**
+	 * Reads a page of the products of one category into {@link ProductDTO}s. Sorted by priceEur (and productId)
+	 * the page is a range scan of the (category_id, price_eur, product_id) index. No count query is issued,
+	 * the number of products of the category is kept in {@link hr.demo.model.ProductCategoryStats}.
+	 *
+	 * @param categoryId category id
+	 * @param pageable page, size and sort
+	 * @return products of the page
+	 */
+	@Query("select " + PRODUCT_DTO + " from Product p where p.category.id = :categoryId")
+	List<ProductDTO> findProductDTOsByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+	/**
+	 * Keyset paging by product id: returns the products that follow the given id.
+	 * The pageable only limits the result size, no count query is issued.
+	 *
+	 * @param lastId id of the last product of the previous page, 0 for the first page
+	 * @param pageable page size
+	 * @return next products ordered by id
+	 */
+	@Query("select p from Product p where p.productId > :lastId order by p.productId asc")
+	List<Product> findNextById(@Param("lastId") Long lastId, Pageable pageable);
+
+	@Query("select p from Product p order by p.priceEur asc, p.productId asc")
+	List<Product> findFirstByPriceAsc(Pageable pageable);
+
+	/**
+	 * Keyset paging by EUR price with the product id as tie breaker.
+	 *
+	 * @param lastPrice price of the last product of the previous page
+	 * @param lastId id of the last product of the previous page
+	 * @param pageable page size
+	 * @return next products ordered by price and id
+	 */
+	@Query("select p from Product p where (p.priceEur, p.productId) > (:lastPrice, :lastId) order by p.priceEur asc, p.productId asc")
+	List<Product> findNextByPriceAsc(@Param("lastPrice") BigDecimal lastPrice, @Param("lastId") Long lastId, Pageable pageable);
+
+	@Query("select p from Product p order by p.priceEur desc, p.productId desc")
+	List<Product> findFirstByPriceDesc(Pageable pageable);
+
+	@Query("select p from Product p where (p.priceEur, p.productId) < (:lastPrice, :lastId) order by p.priceEur desc, p.productId desc")
+	List<Product> findNextByPriceDesc(@Param("lastPrice") BigDecimal lastPrice, @Param("lastId") Long lastId, Pageable pageable);
+
+	/**
+	 * Streams all products through a forward-only JDBC cursor, fetching rows in chunks instead of
+	 * loading the whole table. Must be consumed inside a transaction and closed afterwards.
+	 *
+	 * @return stream of all products, categories are not loaded
+	 */
+	@QueryHints({
+			@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query("select p from Product p")
+	Stream<Product> streamAll();
 	
 	/**
 	 * Finds a product by its ID.
@@ -41,6 +119,15 @@ public interface ProductRepo extends JpaRepository<Product, Long> {
 	 */
 	Product findByCode(String code);
 
+	/**
+	 * Finds a product by its code and selects it straight into a {@link ProductDTO}, see {@link #findAllProductDTOs}.
+	 *
+	 * @param code the product code
+	 * @return the product, or null if not found
+	 */
+	@Query("select " + PRODUCT_DTO + " from Product p where p.code = :code")
+	ProductDTO findProductDTOByCode(@Param("code") String code);
+
 	/**
 	 * Checks if a product with the given code exists.
 	 *
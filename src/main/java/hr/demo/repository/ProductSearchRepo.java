@@ -0,0 +1,67 @@
+package hr.demo.repository;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+
+import hr.demo.dto.ProductDTO;
+import hr.demo.utility.CategoryIds;
+import hr.demo.utility.ProductSearchQuery;
+
+/**
+ * Product search over JDBC, the statement depends on the filters given so it is built by
+ * {@link ProductSearchQuery} instead of being a fixed JPQL query. Rows are read straight into
+ * {@link ProductDTO}s, like the projections of {@link ProductRepo}.
+ *
+ * @author Zoran Džoić
+ */
+@Repository
+@Profile("!reactive")
+public class ProductSearchRepo {
+
+	private static final String COLUMNS = "code, name, price_eur, price_usd, is_available, description, category_id, version, updated_at";
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+
+	private final boolean fullText;
+
+	public ProductSearchRepo(NamedParameterJdbcTemplate jdbcTemplate, DataSource dataSource) throws MetaDataAccessException {
+		this.jdbcTemplate = jdbcTemplate;
+		this.fullText = "PostgreSQL".equals(JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+	}
+
+	/**
+	 * @param query search words and filters
+	 * @param offset number of results to skip
+	 * @param limit page size
+	 * @return matching products, best match first on PostgreSQL
+	 */
+	public List<ProductDTO> search(ProductSearchQuery query, long offset, int limit) {
+		return jdbcTemplate.query(query.toSql(COLUMNS, fullText), query.parameters(fullText, offset, limit), ProductSearchRepo::toProductDTO);
+	}
+
+	/**
+	 * Maps the product columns of a row, also used for the products joined to changes by {@link ProductChangeRepo}.
+	 */
+	static ProductDTO toProductDTO(ResultSet rs, int rowNum) throws SQLException {
+		Long categoryId = rs.getObject("category_id", Long.class);
+		return new ProductDTO(rs.getString("code"), rs.getString("name"), rs.getBigDecimal("price_eur"), rs.getBigDecimal("price_usd"),
+				rs.getObject("is_available", Boolean.class), rs.getString("description"), CategoryIds.of(categoryId),
+				rs.getObject("version", Long.class), toInstant(rs.getTimestamp("updated_at")));
+	}
+
+	static Instant toInstant(Timestamp timestamp) {
+		return timestamp == null ? null : timestamp.toInstant();
+	}
+}
@@ -0,0 +1,37 @@
+package hr.demo.service;
+
+import hr.demo.dto.ExchangeRate;
+
+/**
+ * Published by {@link ExchangeRateProvider} when a USD rate with a different value or effective date
+ * replaces the one held in memory, including the first rate after start.
+ *
+ * @author Zoran Džoić
+ */
+public final class ExchangeRateChangedEvent {
+
+	private final ExchangeRate previous;
+
+	private final ExchangeRate current;
+
+	public ExchangeRateChangedEvent(ExchangeRate previous, ExchangeRate current) {
+		this.previous = previous;
+		this.current = current;
+	}
+
+	/**
+	 * @return the replaced rate, null for the first rate after start
+	 */
+	public ExchangeRate getPrevious() {
+		return previous;
+	}
+
+	public ExchangeRate getCurrent() {
+		return current;
+	}
+
+	@Override
+	public String toString() {
+		return "ExchangeRateChangedEvent [previous=" + previous + ", current=" + current + "]";
+	}
+}
@@ -0,0 +1,202 @@
+package hr.demo.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ExchangeRateTable;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+
+/**
+ * Keeps the current HNB exchange rate list in memory as an immutable {@link ExchangeRateTable}, so that product
+ * writes and price calculations in any currency never wait on HNB.
+ * <p>
+ * The rate is refreshed in the background on a schedule (HNB publishes a new list once per business day).
+ * A failed refresh keeps serving the last known rate (stale-while-revalidate); only a cold start with no
+ * rate at all falls back to a synchronous call.
+ * <p>
+ * Every USD rate that differs from the previous one in value or effective date is announced with an
+ * {@link ExchangeRateChangedEvent}, which starts the repricing of stored USD prices. Other currencies are
+ * not stored, their prices are calculated from the table when asked for (see {@link ProductPriceCalculator}).
+ *
+ * @author Zoran Džoić
+ */
+@Service
+public class ExchangeRateProvider {
+
+	Logger logger = LoggerFactory.getLogger(ExchangeRateProvider.class);
+
+	private final HnbCallerService hnbCallerService;
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	private final AtomicReference<ExchangeRateTable> rates = new AtomicReference<>();
+
+	private final ReentrantLock coldStartLock = new ReentrantLock();
+
+	@Value("${hnb.exchange-rate.refresh-on-startup:true}")
+	private boolean refreshOnStartup = true;
+
+	/**
+	 * Provider that does not announce rate changes, for use outside of a Spring context.
+	 */
+	public ExchangeRateProvider(HnbCallerService hnbCallerService) {
+		this(hnbCallerService, null);
+	}
+
+	@Autowired
+	public ExchangeRateProvider(HnbCallerService hnbCallerService, ApplicationEventPublisher eventPublisher) {
+		this.hnbCallerService = hnbCallerService;
+		this.eventPublisher = eventPublisher;
+	}
+
+	/**
+	 * Loads the rates once the application is up, so the first product write already finds it in memory.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUp() {
+		if (refreshOnStartup) {
+			refresh();
+		}
+	}
+
+	/**
+	 * Fetches a fresh rate list from HNB and swaps it in, by default at 08:05 on business days. On failure the
+	 * previous snapshot stays in place.
+	 */
+	@Scheduled(cron = "${hnb.exchange-rate.refresh-cron:0 5 8 * * MON-FRI}", zone = "Europe/Zagreb")
+	public void refresh() {
+		try {
+			update(hnbCallerService.getExchangeRateTable());
+		} catch (CallNotPermittedException e) {
+			logger.warn("HNB circuit breaker is open, keeping {}", rates.get());
+		} catch (Exception e) {
+			logger.warn("Refreshing exchange rates failed, keeping {}: {}", rates.get(), e.getMessage());
+		}
+	}
+
+	/**
+	 * Replaces the current snapshot with a whole rate list.
+	 *
+	 * @param exchangeRateTable the new rates
+	 */
+	public void update(ExchangeRateTable exchangeRateTable) {
+		ExchangeRateTable previous = rates.getAndSet(exchangeRateTable);
+		logger.debug("Exchange rates updated from {} to {}", previous, exchangeRateTable);
+		publishIfChanged(usdRate(previous), usdRate(exchangeRateTable));
+	}
+
+	/**
+	 * Replaces the rate of one currency, the other rates of the snapshot stay in place.
+	 *
+	 * @param exchangeRate the new rate
+	 */
+	public void update(ExchangeRate exchangeRate) {
+		ExchangeRateTable previous = rates.getAndUpdate(table -> table == null ? ExchangeRateTable.of(List.of(exchangeRate)) : table.with(exchangeRate));
+		logger.debug("{} exchange rate updated to {}", exchangeRate.getCurrency(), exchangeRate);
+		if (ExchangeRate.USD.equals(exchangeRate.getCurrency())) {
+			publishIfChanged(usdRate(previous), exchangeRate);
+		}
+	}
+
+	private static ExchangeRate usdRate(ExchangeRateTable table) {
+		return table == null ? null : table.getRate(ExchangeRate.USD);
+	}
+
+	private void publishIfChanged(ExchangeRate previous, ExchangeRate current) {
+		if (eventPublisher == null || current == null) {
+			return;
+		}
+		if (previous == null || previous.getMiddleRate().compareTo(current.getMiddleRate()) != 0
+				|| !Objects.equals(previous.getEffectiveDate(), current.getEffectiveDate())) {
+			eventPublisher.publishEvent(new ExchangeRateChangedEvent(previous, current));
+		}
+	}
+
+	/**
+	 * Returns the current USD rate without any I/O, or null if no rate has been loaded yet.
+	 *
+	 * @return current USD rate or null
+	 */
+	public ExchangeRate getSnapshot() {
+		return usdRate(rates.get());
+	}
+
+	/**
+	 * Returns the current rate table without any I/O, or null if no rates have been loaded yet.
+	 *
+	 * @return current rate table or null
+	 */
+	public ExchangeRateTable getTableSnapshot() {
+		return rates.get();
+	}
+
+	/**
+	 * Returns the current rate table. Only when nothing has been loaded yet does this call HNB synchronously.
+	 *
+	 * @return current rate table
+	 * @throws JsonProcessingException if the cold-start call to HNB returns an unreadable response
+	 */
+	public ExchangeRateTable getExchangeRateTable() throws JsonProcessingException {
+		ExchangeRateTable current = rates.get();
+		if (current != null) {
+			return current;
+		}
+		// a lock instead of synchronized, so a virtual thread waiting on HNB does not pin its carrier thread
+		coldStartLock.lock();
+		try {
+			current = rates.get();
+			if (current == null) {
+				current = hnbCallerService.getExchangeRateTable();
+				rates.set(current);
+				publishIfChanged(null, usdRate(current));
+			}
+			return current;
+		} finally {
+			coldStartLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the current USD rate. Only when nothing has been loaded yet does this call HNB synchronously.
+	 *
+	 * @return current USD rate
+	 * @throws JsonProcessingException if the cold-start call to HNB returns an unreadable response
+	 * @throws IllegalStateException if the HNB list has no USD rate
+	 */
+	public ExchangeRate getUSDExchangeRate() throws JsonProcessingException {
+		return HnbCallerService.usdRate(getExchangeRateTable());
+	}
+
+	/**
+	 * @return current USD middle exchange rate
+	 * @throws JsonProcessingException if the cold-start call to HNB returns an unreadable response
+	 */
+	public BigDecimal getUSDMiddleExchangeRate() throws JsonProcessingException {
+		return getUSDExchangeRate().getMiddleRate();
+	}
+
+	/**
+	 * @return the date HNB declared the current rate effective for, or null if unknown
+	 */
+	public LocalDate getEffectiveDate() {
+		ExchangeRate current = getSnapshot();
+		return current == null ? null : current.getEffectiveDate();
+	}
+}
@@ -0,0 +1,53 @@
+package hr.demo.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import hr.demo.dto.ProductChangeDTO;
+
+/**
+ * Appends published changes to a local file as NDJSON, one change per line, enabled with {@code product.changes.sink.file}.
+ * A batch is written with one call and forced to disk before the relay moves its position.
+ *
+ * @author Zoran Džoić
+ */
+@Service
+@ConditionalOnProperty("product.changes.sink.file")
+public class FileProductChangeSink implements ProductChangeSink {
+
+	private final Path file;
+
+	private final ObjectMapper objectMapper;
+
+	public FileProductChangeSink(@Value("${product.changes.sink.file}") Path file, ObjectMapper objectMapper) {
+		this.file = file;
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public void publish(List<ProductChangeDTO> changes) throws IOException {
+		ByteArrayOutputStream lines = new ByteArrayOutputStream();
+		for (ProductChangeDTO change : changes) {
+			lines.write(objectMapper.writeValueAsBytes(change));
+			lines.write('\n');
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+		}
+	}
+}
@@ -1,9 +1,13 @@
 package hr.demo.service;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -13,9 +17,20 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ExchangeRateTable;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.retry.annotation.Retry;
+import io.micrometer.core.annotation.Timed;
+
 /**
  * This is a helper class that fires an API call to an external resource, namely HNB API
- * that we need to calculate price in USD for every newly added product.
+ * that we need to calculate prices in other currencies than EUR. One call returns the whole
+ * exchange rate list, so supporting one more currency does not add a call.
+ * <p>
+ * Calls are retried with exponential backoff and guarded by the "hnb" circuit breaker (see resilience4j.* properties),
+ * so an HNB outage fails fast instead of tying up threads. Falling back to the last good rate is done by
+ * {@link ExchangeRateProvider}, which keeps serving its snapshot when a call fails.
  * 
  * @author Zoran Džoić
  */
@@ -23,33 +38,80 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class HnbCallerService {
 	
+	    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	    public static final String RESILIENCE_NAME = "hnb";
+
 	    private final RestTemplate restTemplate;
 
-	    public HnbCallerService(RestTemplate restTemplate) {
+	    private final String url;
+
+	    public HnbCallerService(RestTemplate restTemplate,
+	    		@Value("${hnb.api.url:https://api.hnb.hr/tecajn-eur/v3}") String url) {
 	        this.restTemplate = restTemplate;
+	        this.url = url;
 	    }
 
 	    /**
-	     * Makes a call to HNB API, takes middle exchange rate for USD out of the response and returns it.
-	     * 
-	     * @return middle exchange rate for USD
+	     * Makes one call to HNB API and returns the middle exchange rates of all currencies of the list.
+	     *
+	     * @return rate table of the current HNB list
 	     * @throws JsonProcessingException if there is an error processing JSON
+	     * @throws io.github.resilience4j.circuitbreaker.CallNotPermittedException if the circuit breaker is open
 	     */
-	    public BigDecimal getUSDMiddleExchangeRate() throws JsonProcessingException {
-	    	 String url = "https://api.hnb.hr/tecajn-eur/v3?valuta=USD" ;
+	    @Timed(value = "hnb.client", description = "Time spent calling the HNB exchange rate API")
+	    @Retry(name = RESILIENCE_NAME)
+	    @CircuitBreaker(name = RESILIENCE_NAME)
+	    public ExchangeRateTable getExchangeRateTable() throws JsonProcessingException {
 		        String response = restTemplate.getForObject(url, String.class);
 
-		        ObjectMapper objectMapper = new ObjectMapper();
+		        return parseExchangeRateTable(response);
+	    }
 
+	    /**
+	     * @param exchangeRateTable rate table of a HNB list
+	     * @return USD rate of the list
+	     * @throws IllegalStateException if the list has no USD rate
+	     */
+	    public static ExchangeRate usdRate(ExchangeRateTable exchangeRateTable) {
+		        ExchangeRate usdRate = exchangeRateTable.getRate(ExchangeRate.USD);
+		        if (usdRate == null) {
+		        	throw new IllegalStateException("HNB exchange rate list has no USD rate");
+		        }
+		        return usdRate;
+	    }
+
+	    /**
+	     * Reads all rates out of a HNB API response (a JSON array with one object per currency, "valuta" is the
+	     * currency code, "srednji_tecaj" the middle rate with a decimal comma). Shared with {@link ReactiveHnbCallerService}.
+	     *
+	     * @param response body returned by the HNB API
+	     * @return rate table of the list
+	     * @throws JsonProcessingException if there is an error processing JSON
+	     */
+	    public static ExchangeRateTable parseExchangeRateTable(String response) throws JsonProcessingException {
 		        TypeReference<List<LinkedHashMap<String, Object>>> typeReference = new TypeReference<List<LinkedHashMap<String, Object>>>() {};
 
-		        List<LinkedHashMap<String, Object>> exchangeRates = objectMapper.readValue(response, typeReference);
+		        List<LinkedHashMap<String, Object>> exchangeRates = OBJECT_MAPPER.readValue(response, typeReference);
+
+		        Instant fetchedAt = Instant.now();
+
+		        List<ExchangeRate> rates = new ArrayList<>(exchangeRates.size());
+		        for (LinkedHashMap<String, Object> exchangeRate : exchangeRates) {
+		        	String currency = (String) exchangeRate.get("valuta");
+		        	String middleExchangeRateString = (String) exchangeRate.get("srednji_tecaj");
+		        	if (currency == null || middleExchangeRateString == null) {
+		        		continue;
+		        	}
+
+		        	String noCommaMiddleExchangeRateString = middleExchangeRateString.replace(",", ".");
 
-		        String middleExchangeRateString = (String) exchangeRates.get(0).get("srednji_tecaj");
-		        
-		        String noCommaMiddleExchangeRateString = middleExchangeRateString.replace(",", ".");
+		        	String effectiveDate = (String) exchangeRate.get("datum_primjene");
 
-		        return new BigDecimal(noCommaMiddleExchangeRateString);
+		        	rates.add(new ExchangeRate(currency, new BigDecimal(noCommaMiddleExchangeRateString),
+		        			effectiveDate == null ? null : LocalDate.parse(effectiveDate), fetchedAt));
+		        }
+		        return ExchangeRateTable.of(rates);
 	    }
 
 }
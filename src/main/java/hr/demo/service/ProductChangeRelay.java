@@ -0,0 +1,145 @@
+package hr.demo.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import hr.demo.dto.ProductChangeDTO;
+import hr.demo.repository.ProductChangeRepo;
+
+/**
+ * Publishes the product changes of the outbox to the {@link ProductChangeSink} in the order of their feed positions.
+ * See the "Product change relay" section of the README.
+ *
+ * @author Zoran Džoić
+ */
+@Service
+@Profile("!reactive")
+public class ProductChangeRelay {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductChangeRelay.class);
+
+	static final String RELAY_NAME = "sink";
+
+	private final ProductChangeRepo productChangeRepo;
+
+	private final ObjectProvider<ProductChangeSink> sink;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final AtomicLong publishedChanges = new AtomicLong();
+
+	private volatile Instant oldestPendingChangedAt;
+
+	@Value("${product.changes.relay.batch-size:500}")
+	private int batchSize = 500;
+
+	@Value("${product.changes.retention:7d}")
+	private Duration retention = Duration.ofDays(7);
+
+	public ProductChangeRelay(ProductChangeRepo productChangeRepo, ObjectProvider<ProductChangeSink> sink, TransactionTemplate transactionTemplate) {
+		this.productChangeRepo = productChangeRepo;
+		this.sink = sink;
+		this.transactionTemplate = transactionTemplate;
+	}
+
+	/**
+	 * Publishes batches until the outbox holds no more unpublished changes.
+	 *
+	 * @return number of published changes
+	 */
+	@Scheduled(fixedDelayString = "${product.changes.relay.interval:PT1S}")
+	public long relay() {
+		ProductChangeSink productChangeSink = sink.getIfAvailable();
+		if (productChangeSink == null) {
+			return 0;
+		}
+		long published = 0;
+		try {
+			assignPositions();
+			int batch;
+			do {
+				batch = transactionTemplate.execute(status -> publishBatch(productChangeSink));
+				published += batch;
+			} while (batch == batchSize);
+		} catch (RuntimeException e) {
+			logger.warn("Publishing product changes failed after {} changes, retrying on the next run", published, e);
+		} finally {
+			oldestPendingChangedAt = productChangeRepo.findOldestChangedAtAfter(productChangeRepo.findRelayPosition(RELAY_NAME));
+		}
+		return published;
+	}
+
+	/**
+	 * Gives committed changes their positions in the feed, must not be called in a transaction.
+	 *
+	 * @return number of positioned changes
+	 */
+	public int assignPositions() {
+		if (!productChangeRepo.hasUnpositionedChanges()) {
+			return 0;
+		}
+		int positioned = 0;
+		int batch;
+		do {
+			batch = transactionTemplate.execute(status -> productChangeRepo.assignPositions(batchSize));
+			positioned += batch;
+		} while (batch == batchSize);
+		return positioned;
+	}
+
+	private int publishBatch(ProductChangeSink productChangeSink) {
+		long position = productChangeRepo.lockRelayPosition(RELAY_NAME);
+		List<ProductChangeDTO> changes = productChangeRepo.findAfter(position, batchSize);
+		if (changes.isEmpty()) {
+			return 0;
+		}
+		try {
+			productChangeSink.publish(changes);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		productChangeRepo.saveRelayPosition(RELAY_NAME, changes.get(changes.size() - 1).getChangeId());
+		publishedChanges.addAndGet(changes.size());
+		logger.debug("Published {} product changes up to position {}", changes.size(), changes.get(changes.size() - 1).getChangeId());
+		return changes.size();
+	}
+
+	/**
+	 * Removes changes older than {@code product.changes.retention}; with a sink only those it has already published.
+	 */
+	@Scheduled(cron = "${product.changes.cleanup-cron:0 30 3 * * *}")
+	public int removeOldChanges() {
+		long maxPosition = sink.getIfAvailable() == null ? Long.MAX_VALUE : productChangeRepo.findRelayPosition(RELAY_NAME);
+		int removed = productChangeRepo.deleteOlderThan(Instant.now().minus(retention), maxPosition);
+		logger.info("Removed {} product changes older than {}", removed, retention);
+		return removed;
+	}
+
+	/**
+	 * @return number of changes published by this instance
+	 */
+	public long getPublishedChanges() {
+		return publishedChanges.get();
+	}
+
+	/**
+	 * @return seconds since the oldest change the sink has not received yet was written, 0 if it has received all of them
+	 */
+	public double getLagSeconds() {
+		Instant oldest = oldestPendingChangedAt;
+		return oldest == null ? 0 : Math.max(0, Duration.between(oldest, Instant.now()).toMillis() / 1000.0);
+	}
+}
@@ -0,0 +1,25 @@
+package hr.demo.service;
+
+import java.io.IOException;
+import java.util.List;
+
+import hr.demo.dto.ProductChangeDTO;
+
+/**
+ * Destination the {@link ProductChangeRelay} publishes product changes to, e.g. a file or a message broker.
+ * <p>
+ * Delivery is at least once: a batch that was published but whose relay position could not be saved is
+ * published again, so consumers skip changes with an id they have already seen.
+ *
+ * @author Zoran Džoić
+ */
+public interface ProductChangeSink {
+
+	/**
+	 * Publishes a batch of changes. Returns only once the batch is stored, a batch that fails is retried as a whole.
+	 *
+	 * @param changes changes ordered by id
+	 * @throws IOException if the batch could not be published
+	 */
+	void publish(List<ProductChangeDTO> changes) throws IOException;
+}
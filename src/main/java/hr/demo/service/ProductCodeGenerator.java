@@ -0,0 +1,109 @@
+package hr.demo.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Generates unique 10 character product codes without asking the database.
+ * <p>
+ * Every code encodes a 59 bit number in the 62 character alphabet:
+ * <pre>
+ *   | 41 bits: milliseconds since 2023-01-01 | 8 bits: node id | 10 bits: sequence within the millisecond |
+ * </pre>
+ * Within one instance the (millisecond, sequence) pair only ever grows, it is advanced with a CAS loop so
+ * no lock is taken. Different instances are told apart by the node id ({@code product.code.node-id}), which
+ * has to be unique per running instance. The unique index on {@code product.code} stays as the final guard.
+ *
+ * @author Zoran Džoić
+ */
+@Service
+public class ProductCodeGenerator {
+
+	static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+	static final int CODE_LENGTH = 10;
+
+	static final long EPOCH_MILLIS = 1672531200000L;
+
+	static final int NODE_BITS = 8;
+
+	static final int SEQUENCE_BITS = 10;
+
+	static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+	private final long nodeId;
+
+	private final LongSupplier clock;
+
+	/**
+	 * Last issued (milliseconds since epoch << SEQUENCE_BITS | sequence).
+	 */
+	private final AtomicLong lastTick = new AtomicLong();
+
+	/**
+	 * Number of times the CAS loop had to retry because another thread issued a code at the same time.
+	 */
+	private final LongAdder retries = new LongAdder();
+
+	@Autowired
+	public ProductCodeGenerator(@Value("${product.code.node-id:0}") int nodeId) {
+		this(nodeId, System::currentTimeMillis);
+	}
+
+	ProductCodeGenerator(int nodeId, LongSupplier clock) {
+		if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+			throw new IllegalArgumentException("product.code.node-id must be between 0 and " + MAX_NODE_ID + ", was " + nodeId);
+		}
+		this.nodeId = nodeId;
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns the next code. If more than 1024 codes are requested within one millisecond, or the clock
+	 * moves backwards, the generator keeps counting forward instead of waiting, so codes never repeat.
+	 *
+	 * @return a new unique product code
+	 */
+	public String nextCode() {
+		long last = lastTick.get();
+		long tick = Math.max((clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS, last + 1);
+		while (!lastTick.compareAndSet(last, tick)) {
+			retries.increment();
+			last = lastTick.get();
+			tick = Math.max((clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS, last + 1);
+		}
+
+		long millis = tick >>> SEQUENCE_BITS;
+		long sequence = tick & SEQUENCE_MASK;
+		return encode((millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence);
+	}
+
+	/**
+	 * @return how many times code generation had to retry because of contention
+	 */
+	public long getRetryCount() {
+		return retries.sum();
+	}
+
+	/**
+	 * Encodes a non-negative number smaller than 62^10 as a fixed length base 62 string.
+	 *
+	 * @param value number to encode
+	 * @return 10 character code
+	 */
+	static String encode(long value) {
+		char[] code = new char[CODE_LENGTH];
+		for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+			code[i] = ALPHABET.charAt((int) (value % ALPHABET.length()));
+			value /= ALPHABET.length();
+		}
+		return new String(code);
+	}
+}
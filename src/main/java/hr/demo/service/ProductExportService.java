@@ -0,0 +1,174 @@
+package hr.demo.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.Product;
+import hr.demo.repository.ProductRepo;
+import hr.demo.serviceimpl.ProductServiceImpl;
+import hr.demo.utility.ProductMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Writes the whole product catalog to an output stream as NDJSON or CSV.
+ * <p>
+ * Products are read through a database cursor and detached right after they are written,
+ * so memory usage does not depend on the size of the catalog. The cursor holds a connection for the whole export,
+ * so an export takes a permit of the "database" bulkhead like the writes and scans of {@link ProductServiceImpl}.
+ *
+ * @author Zoran Džoić
+ */
+@Service
+@Profile("!reactive")
+public class ProductExportService {
+
+	/**
+	 * Rows written between two flushes of the output stream; matches the JDBC fetch size of {@link ProductRepo#streamAll()}.
+	 */
+	static final int FLUSH_EVERY = 500;
+
+	public static final String CSV_HEADER = "code,name,priceEUR,priceUSD,isAvailable,description,categoryId\n";
+
+	public enum Format {
+		NDJSON("application/x-ndjson", "ndjson"),
+		CSV("text/csv", "csv");
+
+		private final String contentType;
+		private final String extension;
+
+		Format(String contentType, String extension) {
+			this.contentType = contentType;
+			this.extension = extension;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+
+		/**
+		 * @param value format name, case insensitive
+		 * @return the matching format
+		 * @throws IllegalArgumentException if the format is not supported
+		 */
+		public static Format of(String value) {
+			for (Format format : values()) {
+				if (format.extension.equalsIgnoreCase(value)) {
+					return format;
+				}
+			}
+			throw new IllegalArgumentException("Unsupported export format: " + value);
+		}
+	}
+
+	Logger logger = LoggerFactory.getLogger(ProductExportService.class);
+
+	private final ProductRepo productRepo;
+
+	private final ProductMapper productMapper;
+
+	private final ObjectMapper objectMapper;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	public ProductExportService(ProductRepo productRepo, ProductMapper productMapper, ObjectMapper objectMapper) {
+		this.productRepo = productRepo;
+		this.productMapper = productMapper;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Streams all products to the given output stream. The stream is flushed every {@value #FLUSH_EVERY} rows
+	 * so the client receives data while the export is still running. The output stream is not closed.
+	 *
+	 * @param format output format
+	 * @param outputStream target stream, usually the HTTP response body
+	 * @return number of exported products
+	 * @throws IOException if writing to the output stream fails
+	 */
+	@Transactional(readOnly = true)
+	@Bulkhead(name = ProductServiceImpl.DATABASE_BULKHEAD)
+	public long export(Format format, OutputStream outputStream) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		ObjectWriter jsonWriter = objectMapper.writerFor(ProductDTO.class);
+		long count = 0;
+
+		if (format == Format.CSV) {
+			writer.write(CSV_HEADER);
+		}
+
+		try (Stream<Product> products = productRepo.streamAll()) {
+			Iterator<Product> iterator = products.iterator();
+			while (iterator.hasNext()) {
+				Product product = iterator.next();
+				ProductDTO productDTO = productMapper.map(product);
+				entityManager.detach(product);
+
+				if (format == Format.CSV) {
+					writeCsvLine(writer, productDTO);
+				} else {
+					writer.write(jsonWriter.writeValueAsString(productDTO));
+					writer.write('\n');
+				}
+
+				if (++count % FLUSH_EVERY == 0) {
+					writer.flush();
+				}
+			}
+		}
+		writer.flush();
+
+		logger.debug("Exported {} products as {}", count, format);
+		return count;
+	}
+
+	private void writeCsvLine(Writer writer, ProductDTO productDTO) throws IOException {
+		writer.write(toCsvLine(productDTO));
+	}
+
+	/**
+	 * Formats a product as one CSV line including the line break, in the order of {@link #CSV_HEADER}.
+	 */
+	public static String toCsvLine(ProductDTO productDTO) {
+		return csv(productDTO.getCode()) + ',' + csv(productDTO.getName()) + ',' + csv(productDTO.getPriceEUR()) + ','
+				+ csv(productDTO.getPriceUSD()) + ',' + csv(productDTO.getIsAvailable()) + ',' + csv(productDTO.getDescription()) + ','
+				+ csv(productDTO.getCategoryId()) + '\n';
+	}
+
+	/**
+	 * Quotes a CSV field (RFC 4180) when it contains a separator, a quote or a line break.
+	 */
+	static String csv(Object value) {
+		if (value == null) {
+			return "";
+		}
+		String text = value.toString();
+		if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+			return text;
+		}
+		return '"' + text.replace("\"", "\"\"") + '"';
+	}
+}
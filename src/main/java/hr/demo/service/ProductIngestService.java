@@ -0,0 +1,338 @@
+package hr.demo.service;
+
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import hr.demo.dto.ProductDTO;
+import hr.demo.dto.ProductIngestStatus;
+import hr.demo.exceptions.HandleException;
+import hr.demo.exceptions.IngestQueueFullException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolationException;
+
+/**
+ * Asynchronous ingestion of single product creates (POST /products/add-product with {@code Prefer: respond-async}).
+ * <p>
+ * Creates are queued in memory and written by one worker in micro-batches through
+ * {@link ProductService#createProducts(List)}. See the asynchronous create in the README.
+ *
+ * @author Zoran Džoić
+ */
+@Service
+@Profile("!reactive")
+@ConditionalOnProperty(name = "product.ingest.enabled", havingValue = "true")
+public class ProductIngestService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductIngestService.class);
+
+	private static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+
+	private final ProductService productService;
+
+	private final BlockingQueue<Ingest> queue;
+
+	private final Cache<String, ProductIngestStatus> statuses;
+
+	private final int capacity;
+
+	private final int batchSize;
+
+	private final Duration window;
+
+	private final Duration retryBackoff;
+
+	private final Duration maxRetryBackoff;
+
+	private final AtomicLong accepted = new AtomicLong();
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	private final AtomicLong created = new AtomicLong();
+
+	private final AtomicLong failed = new AtomicLong();
+
+	private final AtomicLong batches = new AtomicLong();
+
+	private final AtomicLong retries = new AtomicLong();
+
+	private final Thread worker = new Thread(this::run, "product-ingest");
+
+	private volatile boolean running = true;
+
+	@Value("${product.ingest.shutdown-timeout:10s}")
+	private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+	public ProductIngestService(ProductService productService,
+			@Value("${product.ingest.queue-capacity:10000}") int capacity,
+			@Value("${product.ingest.batch-size:${spring.jpa.properties.hibernate.jdbc.batch_size:50}}") int batchSize,
+			@Value("${product.ingest.window:10ms}") Duration window,
+			@Value("${product.ingest.status-retention:10m}") Duration statusRetention,
+			@Value("${product.ingest.retry-backoff:100ms}") Duration retryBackoff,
+			@Value("${product.ingest.max-retry-backoff:5s}") Duration maxRetryBackoff) {
+		this.productService = productService;
+		this.capacity = capacity;
+		this.batchSize = batchSize;
+		this.window = window;
+		this.retryBackoff = retryBackoff;
+		this.maxRetryBackoff = maxRetryBackoff;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.statuses = Caffeine.newBuilder()
+				.maximumSize(2L * capacity)
+				.expireAfterWrite(statusRetention)
+				.build();
+	}
+
+	@PostConstruct
+	public void start() {
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Queues a create without waiting.
+	 *
+	 * @param productDTO validated product to be created
+	 * @return the ACCEPTED status of the create
+	 *
+	 * @throws IngestQueueFullException if the queue holds {@code product.ingest.queue-capacity} creates
+	 */
+	public ProductIngestStatus submit(ProductDTO productDTO) {
+		ProductIngestStatus status = ProductIngestStatus.accepted(UUID.randomUUID().toString());
+		statuses.put(status.getId(), status);
+		if (!running || !queue.offer(new Ingest(status, productDTO))) {
+			statuses.invalidate(status.getId());
+			rejected.incrementAndGet();
+			throw new IngestQueueFullException(capacity);
+		}
+		accepted.incrementAndGet();
+		return status;
+	}
+
+	/**
+	 * @param id id returned by {@link #submit(ProductDTO)}
+	 * @return the current status, or null if the id is unknown or its status has expired
+	 */
+	public ProductIngestStatus getStatus(String id) {
+		return statuses.getIfPresent(id);
+	}
+
+	private void run() {
+		while (running || !queue.isEmpty()) {
+			try {
+				writeNextBatch(POLL_TIMEOUT);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (RuntimeException e) {
+				logger.error("Writing a batch of ingested products failed", e);
+			}
+		}
+		if (!queue.isEmpty()) {
+			logger.warn("Stopped with {} ingested products not written", queue.size());
+		}
+	}
+
+	/**
+	 * Collects a batch until it is full or the window has passed and writes it.
+	 *
+	 * @param firstWait how long to wait for the first create
+	 * @return number of creates taken off the queue, 0 if none came in time
+	 */
+	int writeNextBatch(Duration firstWait) throws InterruptedException {
+		Ingest first = queue.poll(firstWait.toNanos(), TimeUnit.NANOSECONDS);
+		if (first == null) {
+			return 0;
+		}
+		List<Ingest> batch = new ArrayList<>(batchSize);
+		batch.add(first);
+		long deadline = System.nanoTime() + window.toNanos();
+		while (batch.size() < batchSize) {
+			queue.drainTo(batch, batchSize - batch.size());
+			long remaining = deadline - System.nanoTime();
+			if (batch.size() == batchSize || remaining <= 0) {
+				break;
+			}
+			Ingest next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+			if (next == null) {
+				break;
+			}
+			batch.add(next);
+		}
+		batches.incrementAndGet();
+		try {
+			writeRetrying(batch);
+		} catch (JsonProcessingException | RuntimeException e) {
+			if (batch.size() == 1) {
+				fail(first, e);
+			} else {
+				logger.warn("Batch of {} ingested products failed, writing them one by one: {}", batch.size(), e.getMessage());
+				for (Ingest ingest : batch) {
+					try {
+						writeRetrying(List.of(ingest));
+					} catch (JsonProcessingException | RuntimeException single) {
+						fail(ingest, single);
+					}
+				}
+			}
+		}
+		return batch.size();
+	}
+
+	/**
+	 * Writes the creates, trying again with a growing backoff for as long as the failure is transient.
+	 *
+	 * @throws InterruptedException if the worker is interrupted while backing off, the creates stay ACCEPTED
+	 */
+	private void writeRetrying(List<Ingest> batch) throws JsonProcessingException, InterruptedException {
+		Duration backoff = retryBackoff;
+		while (true) {
+			try {
+				write(batch);
+				return;
+			} catch (RuntimeException e) {
+				if (!isTransient(e)) {
+					throw e;
+				}
+				retries.incrementAndGet();
+				logger.warn("Writing {} ingested products failed, trying again in {}: {}", batch.size(), backoff, e.getMessage());
+				TimeUnit.NANOSECONDS.sleep(backoff.toNanos());
+				Duration doubled = backoff.multipliedBy(2);
+				backoff = doubled.compareTo(maxRetryBackoff) < 0 ? doubled : maxRetryBackoff;
+			}
+		}
+	}
+
+	/**
+	 * @return whether the failure says nothing about the creates themselves, so writing them again can succeed
+	 */
+	static boolean isTransient(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof BulkheadFullException
+					|| cause instanceof CannotCreateTransactionException
+					|| cause instanceof TransientDataAccessException
+					|| cause instanceof RecoverableDataAccessException
+					|| cause instanceof SQLTransientException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void write(List<Ingest> batch) throws JsonProcessingException {
+		List<ProductDTO> productDTOs = new ArrayList<>(batch.size());
+		for (Ingest ingest : batch) {
+			productDTOs.add(ingest.productDTO());
+		}
+		List<ProductDTO> savedProducts = productService.createProducts(productDTOs);
+		for (int i = 0; i < batch.size(); i++) {
+			ProductIngestStatus status = batch.get(i).status();
+			statuses.put(status.getId(), status.created(savedProducts.get(i)));
+		}
+		created.addAndGet(batch.size());
+		logger.debug("Ingested {} products", batch.size());
+	}
+
+	private void fail(Ingest ingest, Exception e) {
+		ProductIngestStatus status = ingest.status();
+		ProductIngestStatus.Failure failure = failure(e);
+		statuses.put(status.getId(), status.failed(failure));
+		failed.incrementAndGet();
+		if (failure == ProductIngestStatus.Failure.INTERNAL) {
+			logger.error("Ingested product {} failed", status.getId(), e);
+		} else {
+			logger.warn("Ingested product {} failed ({}): {}", status.getId(), failure, e.getMessage());
+		}
+	}
+
+	/**
+	 * Maps a failure like {@link HandleException} does for synchronous creates.
+	 */
+	static ProductIngestStatus.Failure failure(Exception e) {
+		if (e instanceof ConstraintViolationException) {
+			return ProductIngestStatus.Failure.VALIDATION;
+		}
+		if (e instanceof OptimisticLockingFailureException) {
+			return ProductIngestStatus.Failure.CONFLICT;
+		}
+		// integrity violations may reach here untranslated, e.g. from Hibernate on flush
+		String sqlState = HandleException.sqlState(e);
+		if (HandleException.UNIQUE_VIOLATION.equals(sqlState)) {
+			return ProductIngestStatus.Failure.CONFLICT;
+		}
+		if (sqlState != null && HandleException.FOREIGN_KEY_VIOLATIONS.contains(sqlState)) {
+			return ProductIngestStatus.Failure.VALIDATION;
+		}
+		return ProductIngestStatus.Failure.INTERNAL;
+	}
+
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getAcceptedCount() {
+		return accepted.get();
+	}
+
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	public long getCreatedCount() {
+		return created.get();
+	}
+
+	public long getFailedCount() {
+		return failed.get();
+	}
+
+	public long getBatchCount() {
+		return batches.get();
+	}
+
+	public long getRetryCount() {
+		return retries.get();
+	}
+
+	/**
+	 * Stops accepting creates and gives the worker {@code product.ingest.shutdown-timeout} to write the queued ones.
+	 */
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		running = false;
+		if (worker.isAlive()) {
+			worker.join(shutdownTimeout.toMillis());
+			worker.interrupt();
+		}
+	}
+
+	private record Ingest(ProductIngestStatus status, ProductDTO productDTO) {
+	}
+}
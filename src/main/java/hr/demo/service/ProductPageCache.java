@@ -0,0 +1,94 @@
+package hr.demo.service;
+
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import hr.demo.dto.ProductDTO;
+
+/**
+ * Cache of the first pages of GET /products as encoded JSON, so a hit neither queries, maps nor serializes.
+ * <p>
+ * Entries are keyed by the catalog version ({@link ProductService#getLatestChange()}) with page, size and sort,
+ * and entries of older versions are dropped when a newer one is seen.
+ *
+ * @author Zoran Džoić
+ */
+@Service
+@Profile("!reactive")
+public class ProductPageCache {
+
+	private final ObjectMapper objectMapper;
+
+	private final Cache<Key, byte[]> pages;
+
+	private final int cachedPages;
+
+	private final int maxPageSize;
+
+	private volatile long catalogVersion;
+
+	public ProductPageCache(ObjectMapper objectMapper,
+			@Value("${product.page-cache.pages:3}") int cachedPages,
+			@Value("${product.page-cache.max-page-size:100}") int maxPageSize,
+			@Value("${product.page-cache.max-bytes:16MB}") DataSize maxBytes) {
+		this.objectMapper = objectMapper;
+		this.cachedPages = cachedPages;
+		this.maxPageSize = maxPageSize;
+		this.pages = Caffeine.newBuilder()
+				.maximumWeight(maxBytes.toBytes())
+				.<Key, byte[]>weigher((key, json) -> json.length)
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * @param pageable requested page
+	 * @return true if the page is one of the first {@code product.page-cache.pages} pages and not larger than
+	 *         {@code product.page-cache.max-page-size}
+	 */
+	public boolean isCached(Pageable pageable) {
+		return pageable.isPaged() && pageable.getPageNumber() < cachedPages && pageable.getPageSize() <= maxPageSize;
+	}
+
+	/**
+	 * Returns the page as JSON, reading and encoding it on a miss.
+	 *
+	 * @param catalogVersion feed position of the newest product change, read before the page
+	 * @param pageable requested page, see {@link #isCached(Pageable)}
+	 * @param loader reads the page on a miss
+	 * @return UTF-8 encoded JSON of the page, the same array for every hit, callers must not change it
+	 */
+	public byte[] getPage(long catalogVersion, Pageable pageable, Supplier<Page<ProductDTO>> loader) {
+		if (catalogVersion > this.catalogVersion) {
+			this.catalogVersion = catalogVersion;
+			pages.asMap().keySet().removeIf(key -> key.catalogVersion() < catalogVersion);
+		}
+		return pages.get(new Key(catalogVersion, pageable), key -> toJson(loader.get()));
+	}
+
+	public Cache<?, ?> getCache() {
+		return pages;
+	}
+
+	private byte[] toJson(Page<ProductDTO> page) {
+		try {
+			return objectMapper.writeValueAsBytes(page);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Page of products can not be serialized", e);
+		}
+	}
+
+	private record Key(long catalogVersion, Pageable pageable) {
+	}
+}
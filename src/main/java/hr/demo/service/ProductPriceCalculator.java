@@ -0,0 +1,118 @@
+package hr.demo.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ExchangeRateTable;
+import hr.demo.dto.ProductDTO;
+import hr.demo.dto.ProductPricesDTO;
+
+/**
+ * Converts EUR prices to the configured currencies ("product.price.currencies") with the rates of the
+ * in-memory HNB list held by {@link ExchangeRateProvider}, so no HTTP call or stored column is needed per currency.
+ * <p>
+ * Prices are rounded up to the minor unit of the currency (2 decimals for USD, none for JPY), the same way the
+ * stored USD price is rounded, so the calculated USD price matches the stored one.
+ *
+ * @author Zoran Džoić
+ */
+@Service
+public class ProductPriceCalculator {
+
+	private final ExchangeRateProvider exchangeRateProvider;
+
+	private final List<String> currencies;
+
+	/**
+	 * @throws IllegalArgumentException if a configured currency is not an ISO 4217 currency code
+	 */
+	public ProductPriceCalculator(ExchangeRateProvider exchangeRateProvider,
+			@Value("${product.price.currencies:USD}") List<String> currencies) {
+		this.exchangeRateProvider = exchangeRateProvider;
+		this.currencies = currencies.stream().map(ProductPriceCalculator::currencyCode).distinct().toList();
+	}
+
+	/**
+	 * @return configured currency codes, the default of {@link #calculate(ProductDTO, List)}
+	 */
+	public List<String> getCurrencies() {
+		return currencies;
+	}
+
+	/**
+	 * Calculates the prices of a product with the current rates. Only when no rates have been loaded yet
+	 * does this call HNB, see {@link ExchangeRateProvider#getExchangeRateTable()}.
+	 *
+	 * @param product product with its EUR price
+	 * @param requestedCurrencies currencies to calculate, all configured ones if null or empty
+	 * @return prices in the requested currencies, in the requested order
+	 * @throws IllegalArgumentException if a requested currency is not configured or the HNB list has no rate for it
+	 * @throws JsonProcessingException if the cold-start call to HNB returns an unreadable response
+	 */
+	public ProductPricesDTO calculate(ProductDTO product, List<String> requestedCurrencies) throws JsonProcessingException {
+		return calculate(product, exchangeRateProvider.getExchangeRateTable(), requestedCurrencies);
+	}
+
+	/**
+	 * Calculates the prices of a product with the given rates, without any I/O.
+	 *
+	 * @param product product with its EUR price
+	 * @param exchangeRateTable rates to calculate with
+	 * @param requestedCurrencies currencies to calculate, all configured ones if null or empty
+	 * @return prices in the requested currencies, in the requested order
+	 * @throws IllegalArgumentException if a requested currency is not configured or the HNB list has no rate for it
+	 */
+	public ProductPricesDTO calculate(ProductDTO product, ExchangeRateTable exchangeRateTable, List<String> requestedCurrencies) {
+		Map<String, BigDecimal> prices = new LinkedHashMap<>();
+		for (String currency : resolveCurrencies(requestedCurrencies)) {
+			ExchangeRate rate = exchangeRateTable.getRate(currency);
+			if (rate == null) {
+				throw new IllegalArgumentException("HNB exchange rate list has no rate for " + currency);
+			}
+			prices.put(currency, product.getPriceEUR() == null ? null : convert(product.getPriceEUR(), rate.getMiddleRate(), currency));
+		}
+		return new ProductPricesDTO(product.getCode(), product.getPriceEUR(), exchangeRateTable.getEffectiveDate(), Collections.unmodifiableMap(prices));
+	}
+
+	private List<String> resolveCurrencies(List<String> requestedCurrencies) {
+		if (requestedCurrencies == null || requestedCurrencies.isEmpty()) {
+			return currencies;
+		}
+		List<String> resolved = requestedCurrencies.stream().map(currency -> currency.trim().toUpperCase(Locale.ROOT)).distinct().toList();
+		for (String currency : resolved) {
+			if (!currencies.contains(currency)) {
+				throw new IllegalArgumentException("Currency " + currency + " is not one of the configured currencies " + currencies);
+			}
+		}
+		return resolved;
+	}
+
+	/**
+	 * Converts an EUR amount with a HNB middle rate (units of the currency per 1 EUR), rounded up
+	 * to the minor unit of the currency.
+	 *
+	 * @param priceInEUR amount in EUR
+	 * @param middleRate HNB middle exchange rate of the currency
+	 * @param currency ISO 4217 currency code, decides the number of decimals
+	 * @return converted amount
+	 */
+	public static BigDecimal convert(BigDecimal priceInEUR, BigDecimal middleRate, String currency) {
+		return priceInEUR.multiply(middleRate).setScale(Currency.getInstance(currency).getDefaultFractionDigits(), RoundingMode.CEILING);
+	}
+
+	private static String currencyCode(String currency) {
+		return Currency.getInstance(currency.trim().toUpperCase(Locale.ROOT)).getCurrencyCode();
+	}
+}
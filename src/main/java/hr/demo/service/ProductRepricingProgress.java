@@ -0,0 +1,86 @@
+package hr.demo.service;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Progress of the USD repricing run, shared by the blocking and the reactive repricing service and
+ * published as product.repricing.* metrics (see MetricsConfig).
+ *
+ * @author Zoran Džoić
+ */
+@Component
+public class ProductRepricingProgress {
+
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	private final AtomicLong lastProductId = new AtomicLong();
+
+	private final AtomicLong repricedProducts = new AtomicLong();
+
+	private final AtomicLong chunks = new AtomicLong();
+
+	private volatile long maxProductId;
+
+	private volatile LocalDate rateDate;
+
+	/**
+	 * @param rateDate effective date of the rate products are repriced with
+	 * @param maxProductId highest product id when the run started, 0 for an empty catalog
+	 * @return false if a run is already in progress
+	 */
+	public boolean start(LocalDate rateDate, long maxProductId) {
+		if (!running.compareAndSet(false, true)) {
+			return false;
+		}
+		this.rateDate = rateDate;
+		this.maxProductId = maxProductId;
+		this.lastProductId.set(0);
+		return true;
+	}
+
+	/**
+	 * @param lastProductId highest product id of the finished chunk
+	 * @param repriced number of products repriced in the chunk
+	 */
+	public void chunkDone(long lastProductId, long repriced) {
+		this.lastProductId.set(lastProductId);
+		this.repricedProducts.addAndGet(repriced);
+		this.chunks.incrementAndGet();
+	}
+
+	public void finish() {
+		running.set(false);
+	}
+
+	public boolean isRunning() {
+		return running.get();
+	}
+
+	/**
+	 * @return share of the catalog walked by the current or last run, 1 when nothing was to be done
+	 */
+	public double getCompletedRatio() {
+		long max = maxProductId;
+		return max == 0 ? 1.0 : Math.min(1.0, (double) lastProductId.get() / max);
+	}
+
+	public long getLastProductId() {
+		return lastProductId.get();
+	}
+
+	public long getRepricedProducts() {
+		return repricedProducts.get();
+	}
+
+	public long getChunks() {
+		return chunks.get();
+	}
+
+	public LocalDate getRateDate() {
+		return rateDate;
+	}
+}
@@ -0,0 +1,156 @@
+package hr.demo.service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import hr.demo.dto.ExchangeRate;
+import hr.demo.serviceimpl.ProductServiceImpl;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Recomputes the stored USD prices of the whole catalog when a new HNB rate is published.
+ * <p>
+ * Every chunk of product ids is one set-based UPDATE of the products priced with another rate,
+ * see {@link ExchangeRate#supersedes(LocalDate, BigDecimal)} and the "USD repricing" section of the README.
+ *
+ * @author Zoran Džoić
+ */
+@Service
+@Profile("!reactive")
+public class ProductRepricingService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductRepricingService.class);
+
+	static final String CHUNK_END = "select max(product_id) from (select product_id from product where product_id > ? order by product_id limit ?) chunk";
+
+	/**
+	 * Products priced with a rate of an older date, or of the same date with another value.
+	 */
+	static final String OUTDATED = "(usd_rate_date is null or usd_rate_date < ? or (usd_rate_date = ? and (usd_rate is null or usd_rate <> ?)))";
+
+	static final String REPRICE_CHANGES = "insert into product_change (product_code, change_type, product_version, changed_at) "
+			+ "select code, 'UPDATED', version + 1, ? from product "
+			+ "where product_id > ? and product_id <= ? and price_eur is not null and " + OUTDATED;
+
+	static final String REPRICE = "update product set price_usd = ceil(price_eur * ? * 100) / 100, usd_rate_date = ?, usd_rate = ?, version = version + 1, updated_at = current_timestamp "
+			+ "where product_id > ? and product_id <= ? and price_eur is not null and " + OUTDATED;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final ExchangeRateProvider exchangeRateProvider;
+
+	private final ProductRepricingProgress progress;
+
+	private final CacheManager cacheManager;
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "product-repricing"));
+
+	private final AtomicBoolean queued = new AtomicBoolean();
+
+	@Value("${product.repricing.chunk-size:1000}")
+	private int chunkSize = 1000;
+
+	@Value("${product.repricing.pause:100ms}")
+	private Duration pause = Duration.ofMillis(100);
+
+	public ProductRepricingService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, ExchangeRateProvider exchangeRateProvider,
+			ProductRepricingProgress progress, CacheManager cacheManager) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.exchangeRateProvider = exchangeRateProvider;
+		this.progress = progress;
+		this.cacheManager = cacheManager;
+	}
+
+	@EventListener
+	public void onExchangeRateChanged(ExchangeRateChangedEvent event) {
+		logger.info("USD exchange rate changed to {}, repricing products", event.getCurrent());
+		requestRun();
+	}
+
+	/**
+	 * Queues a run with the current rate. Requests that arrive while a run is queued are merged into it.
+	 */
+	public void requestRun() {
+		if (queued.compareAndSet(false, true)) {
+			executor.execute(this::run);
+		}
+	}
+
+	/**
+	 * Reprices every product whose USD price was computed with another rate than the current one.
+	 *
+	 * @return number of repriced products
+	 */
+	public long run() {
+		queued.set(false);
+		ExchangeRate rate = exchangeRateProvider.getSnapshot();
+		if (rate == null || rate.getEffectiveDate() == null) {
+			return 0;
+		}
+		Long maxProductId = jdbcTemplate.queryForObject("select max(product_id) from product", Long.class);
+		if (!progress.start(rate.getEffectiveDate(), maxProductId == null ? 0 : maxProductId)) {
+			return 0;
+		}
+		long repriced = 0;
+		try {
+			long lastProductId = 0;
+			Long chunkEnd;
+			while ((chunkEnd = jdbcTemplate.queryForObject(CHUNK_END, Long.class, lastProductId, chunkSize)) != null) {
+				int updated = repriceChunk(lastProductId, chunkEnd, rate.getMiddleRate(), rate.getEffectiveDate());
+				progress.chunkDone(chunkEnd, updated);
+				repriced += updated;
+				lastProductId = chunkEnd;
+				if (updated > 0 && !pause.isZero()) {
+					Thread.sleep(pause.toMillis());
+				}
+			}
+			logger.info("Repriced {} products with {}", repriced, rate);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.info("Repricing interrupted after {} products, it continues with the next rate change or restart", repriced);
+		} catch (RuntimeException e) {
+			logger.error("Repricing failed after {} products, it continues with the next rate change or restart", repriced, e);
+		} finally {
+			progress.finish();
+			if (repriced > 0) {
+				Cache products = cacheManager.getCache(ProductServiceImpl.PRODUCT_CACHE);
+				if (products != null) {
+					products.clear();
+				}
+			}
+		}
+		return repriced;
+	}
+
+	private int repriceChunk(long afterProductId, long lastProductId, BigDecimal rate, LocalDate rateDate) {
+		return transactionTemplate.execute(status -> {
+			jdbcTemplate.update(REPRICE_CHANGES, Timestamp.from(Instant.now()), afterProductId, lastProductId, rateDate, rateDate, rate);
+			return jdbcTemplate.update(REPRICE, rate, rateDate, rate, afterProductId, lastProductId, rateDate, rateDate, rate);
+		});
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
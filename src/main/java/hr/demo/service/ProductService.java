@@ -11,8 +11,14 @@ import org.springframework.stereotype.Service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 
+import hr.demo.dto.CursorPage;
+import hr.demo.dto.ProductChangeDTO;
+import hr.demo.dto.ProductChangePage;
+import hr.demo.dto.ProductCategoryDTO;
 import hr.demo.dto.ProductDTO;
+import hr.demo.dto.ProductPatchDTO;
 import hr.demo.model.Product;
+import hr.demo.model.ProductCategory;
 
 /**
  * The ProductService interface provides methods for creating, updating, deleting, and retrieving products.
@@ -24,11 +30,29 @@ public interface ProductService {
 
 	ProductDTO createProduct(String name, BigDecimal priceEur, String description, Boolean isAvailable, String categoryId) throws JsonMappingException, JsonProcessingException;
 
-	ProductDTO updateProduct(String code, String name, BigDecimal priceInEur, String description, Boolean isAvailable) throws JsonMappingException, JsonProcessingException;
+	List<ProductDTO> createProducts(List<ProductDTO> productDTOs) throws JsonMappingException, JsonProcessingException;
+
+	ProductDTO updateProduct(String code, String name, BigDecimal priceInEur, String description, Boolean isAvailable, Long version) throws ProductNotFoundException, JsonMappingException, JsonProcessingException;
+
+	ProductDTO patchProduct(String code, ProductPatchDTO patch) throws ProductNotFoundException, JsonProcessingException;
 
 	void deleteProductByCode(String code) throws ProductNotFoundException;
 
+	ProductChangePage getChanges(long since, int limit);
+
+	ProductChangeDTO getLatestChange();
+
 	ProductDTO getProductByCode(String code);
 
 	Page<ProductDTO> findAll(Pageable pageable);
+
+	CursorPage<ProductDTO> findAllAfter(String cursor, int size, String sort);
+
+	ProductCategory createCategory(ProductCategory productCategory);
+
+	List<ProductCategoryDTO> findAllCategories();
+
+	Page<ProductDTO> findAllByCategory(Long categoryId, Pageable pageable);
+
+	List<ProductDTO> search(String text, Boolean isAvailable, Long categoryId, BigDecimal minPriceEur, BigDecimal maxPriceEur, int page, int size);
 }
@@ -1,50 +1,124 @@
 package hr.demo.serviceimpl;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
 
 import hr.demo.exceptions.ProductNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.micrometer.core.annotation.Timed;
+
+import hr.demo.dto.CursorPage;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductChangeDTO;
+import hr.demo.dto.ProductChangePage;
+import hr.demo.dto.ProductCategoryDTO;
 import hr.demo.dto.ProductDTO;
+import hr.demo.dto.ProductPatchDTO;
 import hr.demo.model.Product;
+import hr.demo.utility.CategoryIds;
+import hr.demo.utility.KeysetCursor;
 import hr.demo.utility.ProductMapper;
+import hr.demo.utility.ProductSearchQuery;
 import hr.demo.model.ProductCategory;
+import hr.demo.model.ProductCategoryStats;
+import hr.demo.repository.ProductCategoryRepo;
+import hr.demo.repository.ProductCategoryStatsRepo;
+import hr.demo.repository.ProductChangeRepo;
 import hr.demo.repository.ProductRepo;
+import hr.demo.repository.ProductSearchRepo;
 import hr.demo.service.ProductService;
-import hr.demo.service.HnbCallerService;
+import hr.demo.service.ExchangeRateProvider;
+import hr.demo.service.ProductChangeRelay;
+import hr.demo.service.ProductCodeGenerator;
+import hr.demo.service.ProductPriceCalculator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 /**
  * Implementation of ProductService interface.
  * Implements methods for creating, updating, deleting, and retrieving products.
+ * <p>
+ * Writes and uncached scans go through the "database" bulkhead, which lets at most as many calls in as there are
+ * pooled JDBC connections and rejects the rest after a short wait, instead of queueing an unbounded number
+ * of (virtual) threads on the connection pool. Cached and single-row reads do not take a permit.
  * 
  * @author Zoran Džoić
  */
 @Service
+@Profile("!reactive")
+@Timed(value = "product.service", description = "Time spent in product service operations")
 public class ProductServiceImpl implements ProductService{
 
+	/**
+	 * Name of the cache holding {@link ProductDTO}s by product code, configured in application.properties.
+	 */
+	public static final String PRODUCT_CACHE = "products";
+
+	/**
+	 * Name of the bulkhead limiting concurrent database work, configured in application.properties.
+	 */
+	public static final String DATABASE_BULKHEAD = "database";
+
 	@Autowired
 	private ProductRepo productRepo;
 
+	@Autowired
+	private ProductCategoryRepo productCategoryRepo;
+
+	@Autowired
+	private ProductCategoryStatsRepo productCategoryStatsRepo;
+
+	@Autowired
+	private ProductSearchRepo productSearchRepo;
+
+	@Autowired
+	private ProductChangeRepo productChangeRepo;
+
+	@Autowired
+	private ProductChangeRelay productChangeRelay;
+
 	@Autowired
 	private ProductMapper productMapper;
 
 	Logger logger = LoggerFactory.getLogger(ProductServiceImpl.class);
 
 	@Autowired
-	private HnbCallerService hnbCallerService;
+	private ExchangeRateProvider exchangeRateProvider;
+
+	@Autowired
+	private ProductCodeGenerator productCodeGenerator;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+	private int batchSize = 50;
 
 	/**
-	 * Creates a new product.
+	 * Creates a new product and adds it to the aggregates of its category.
 	 * 
 	 * @param name the name of the product
 	 * @param priceInEur the price of the product in euros
@@ -56,34 +130,92 @@ public class ProductServiceImpl implements ProductService{
 	 * @throws JsonProcessingException if there is an error processing JSON
 	 */
 	@Override
+	@Bulkhead(name = DATABASE_BULKHEAD)
+	@Transactional
 	public ProductDTO createProduct(String name, BigDecimal priceInEur, String description, Boolean isAvailable, String categoryId) throws JsonMappingException, JsonProcessingException {
 
 		Product product = new Product();
 
-		ProductCategory prodCat = new ProductCategory();
-
-		product.setCode(checkWhetherCodeExists(generateProductCode()));
+		product.setCode(generateProductCode());
 		product.setName(name);
 		product.setPriceEur(priceInEur);
-		product.setPriceUsd(calculatePriceInUSD(priceInEur));
+		setUsdPrice(product, this.exchangeRateProvider.getUSDExchangeRate());
 		product.setDescription(description);
 		product.setIsAvailable(isAvailable);
+		product.setCategory(categoryReference(categoryId));
 
-		prodCat.setId(Long.valueOf(categoryId));
-		prodCat.addProduct(product);
-		product.setCategory(prodCat);
+		Product savedProduct = this.productRepo.save(product);
+		applyCategoryChange(savedProduct.getCategory().getId(), 1, availableCount(savedProduct.getIsAvailable()));
+		this.productChangeRepo.append(ProductChangeDTO.Type.CREATED, List.of(savedProduct));
 
-		ProductDTO productDTO = new ProductDTO();
+		ProductDTO productDTO = toProductDTO(savedProduct);
+		logger.debug("Saved {}", productDTO);
+		return productDTO;
+	}
 
-		try {
-			  Product savedProduct = this.productRepo.save(product);
-			  
-			  productDTO = new ProductDTO(savedProduct.getCode(), savedProduct.getName(), savedProduct.getPriceEur(), savedProduct.getPriceUsd(), savedProduct.getIsAvailable(), savedProduct.getDescription(), String.valueOf(savedProduct.getCategory().getId()));
-			  logger.debug("DEBUG: " + productDTO.toString());
-			} catch (Exception e) {
-			  logger.error("Error happened in an attempt to save the product by calling productRepo.save(product); " + e.getMessage());
+	/**
+	 * Creates many products at once.
+	 * <p>
+	 * The exchange rate is resolved once for the whole import, codes come from the in-memory generator,
+	 * and products are persisted in chunks of the JDBC batch size so that Hibernate can send them as
+	 * batched inserts. The persistence context is cleared after every chunk to keep memory flat.
+	 * Category aggregates are updated once per category and chunk.
+	 *
+	 * @param productDTOs products to be created
+	 * @return the created products, in the same order
+	 *
+	 * @throws JsonMappingException if there is an error mapping JSON
+	 * @throws JsonProcessingException if there is an error processing JSON
+	 */
+	@Override
+	@Bulkhead(name = DATABASE_BULKHEAD)
+	@Transactional
+	public List<ProductDTO> createProducts(List<ProductDTO> productDTOs) throws JsonMappingException, JsonProcessingException {
+
+		ExchangeRate dollarExchangeRate = this.exchangeRateProvider.getUSDExchangeRate();
+
+		List<ProductDTO> savedProducts = new ArrayList<>(productDTOs.size());
+		List<Product> batch = new ArrayList<>(batchSize);
+
+		for (ProductDTO productDTO : productDTOs) {
+			Product product = new Product();
+			product.setCode(generateProductCode());
+			product.setName(productDTO.getName());
+			product.setPriceEur(productDTO.getPriceEUR());
+			setUsdPrice(product, dollarExchangeRate);
+			product.setDescription(productDTO.getDescription());
+			product.setIsAvailable(productDTO.getIsAvailable());
+			product.setCategory(categoryReference(productDTO.getCategoryId()));
+
+			batch.add(product);
+			if (batch.size() == batchSize) {
+				saveBatch(batch, savedProducts);
 			}
-		return productDTO;
+		}
+		saveBatch(batch, savedProducts);
+
+		logger.debug("Created {} products in bulk", savedProducts.size());
+		return savedProducts;
+	}
+
+	private void saveBatch(List<Product> batch, List<ProductDTO> savedProducts) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		this.productRepo.saveAll(batch);
+		this.entityManager.flush();
+		// locked in id order, so two batches spanning the same categories do not deadlock
+		Map<Long, long[]> categoryChanges = new TreeMap<>();
+		for (Product product : batch) {
+			savedProducts.add(this.productMapper.map(product));
+			long[] change = categoryChanges.computeIfAbsent(product.getCategory().getId(), categoryId -> new long[2]);
+			change[0]++;
+			change[1] += availableCount(product.getIsAvailable());
+		}
+		categoryChanges.forEach((categoryId, change) -> applyCategoryChange(categoryId, change[0], change[1]));
+		this.productChangeRepo.append(ProductChangeDTO.Type.CREATED, batch);
+		this.entityManager.clear();
+		batch.clear();
 	}
 
 	/**
@@ -91,46 +223,112 @@ public class ProductServiceImpl implements ProductService{
 	 *
 	 * http://localhost:8089/products?size=7&page=0&sort=priceEur,desc
 	 *
+	 * Products are selected straight into DTOs, without loading entities or their categories.
+	 *
 	 * @param pageable
 	 * @return - returns a page of products
 	 */
 	@Override
+	@Bulkhead(name = DATABASE_BULKHEAD)
 	public Page<ProductDTO> findAll(Pageable pageable) {
-		Page<Product> products = productRepo.findAll(pageable);
-		return products.map(this.productMapper::map);
+		return productRepo.findAllProductDTOs(pageable);
+	}
+
+	/**
+	 * Finds a page of products with keyset paging, here is an example of http request:
+	 *
+	 * http://localhost:8089/products?cursor=&size=20&sort=priceEur,desc
+	 *
+	 * Every page is read with a seek predicate on the sort key of the last product of the previous page
+	 * and no total count is computed, so deep pages cost the same as the first one.
+	 *
+	 * @param cursor token from the previous page, null or empty for the first page
+	 * @param size page size
+	 * @param sort productId (default), priceEur,asc or priceEur,desc
+	 * @return page of products with the token for the next page
+	 * @throws IllegalArgumentException if the cursor or sort is invalid, or the cursor was issued for another sort
+	 */
+	@Override
+	@Bulkhead(name = DATABASE_BULKHEAD)
+	public CursorPage<ProductDTO> findAllAfter(String cursor, int size, String sort) {
+		KeysetCursor.Sort keysetSort = KeysetCursor.Sort.of(sort);
+		KeysetCursor after = cursor == null || cursor.isEmpty() ? null : KeysetCursor.decode(cursor);
+		if (after != null && after.getSort() != keysetSort) {
+			throw new IllegalArgumentException("Cursor was issued for sort " + after.getSort().getValue());
+		}
+
+		Pageable limit = PageRequest.of(0, size);
+		List<Product> products = switch (keysetSort) {
+			case PRODUCT_ID -> productRepo.findNextById(after == null ? 0L : after.getProductId(), limit);
+			case PRICE_EUR_ASC -> after == null ? productRepo.findFirstByPriceAsc(limit)
+					: productRepo.findNextByPriceAsc(after.getPriceEur(), after.getProductId(), limit);
+			case PRICE_EUR_DESC -> after == null ? productRepo.findFirstByPriceDesc(limit)
+					: productRepo.findNextByPriceDesc(after.getPriceEur(), after.getProductId(), limit);
+		};
+
+		String nextCursor = null;
+		if (products.size() == size) {
+			Product last = products.get(products.size() - 1);
+			nextCursor = new KeysetCursor(keysetSort, last.getPriceEur(), last.getProductId()).encode();
+		}
+
+		List<ProductDTO> content = new ArrayList<>(products.size());
+		for (Product product : products) {
+			content.add(this.productMapper.map(product));
+		}
+		return new CursorPage<>(content, size, nextCursor);
 	}
 
 
 	/**
 	 * Updates a product.
 	 * This method updates the name, price, description, and availability of a product.
+	 * Category aggregates are updated when the price or availability changed.
 	 * 
 	 * @param code the code of the product to be updated
 	 * @param name the new name of the product
 	 * @param priceInEur the new price of the product in euros
 	 * @param description the new description of the product
 	 * @param isAvailable whether the product is available
+	 * @param version version of the product the update is based on, null to update whatever version is stored
 	 * 
 	 * @return the updated product
 	 * 
+	 * @throws ProductNotFoundException if the product can not be found
+	 * @throws org.springframework.orm.ObjectOptimisticLockingFailureException if the product has a different
+	 *         version than the given one or was changed concurrently
 	 * @throws JsonMappingException if there is an error mapping JSON
 	 * @throws JsonProcessingException if there is an error processing JSON
 	 */
 	@Override
+	@Bulkhead(name = DATABASE_BULKHEAD)
+	@Transactional
+	@CacheEvict(cacheNames = PRODUCT_CACHE, key = "#code")
 	public ProductDTO updateProduct(String code, String name, BigDecimal priceInEur,
-			String description, Boolean isAvailable) throws JsonMappingException, JsonProcessingException {
+			String description, Boolean isAvailable, Long version) throws ProductNotFoundException, JsonMappingException, JsonProcessingException {
 
 		logger.info("Updating product with code: {}", code);
 
 		Product product = this.productRepo.findByCode(code);
+		if (product == null) {
+			throw new ProductNotFoundException(code);
+		}
+		if (version != null && !version.equals(product.getVersion())) {
+			throw new ObjectOptimisticLockingFailureException(Product.class, code);
+		}
+		Long versionBefore = product.getVersion();
 
 		product.setName(name);
 		logger.debug("Product name set to: {}", name);
 
-		if (product.getPriceEur().compareTo(priceInEur) != 0) {
+		long availableDelta = availableCount(isAvailable) - availableCount(product.getIsAvailable());
+		boolean priceChanged = product.getPriceEur().compareTo(priceInEur) != 0;
+		// the USD price is also recomputed when it is older than the current rate, so that saving the
+		// entity does not write back a price the repricing job has already replaced
+		if (priceChanged || isUsdPriceOutdated(product)) {
 			product.setPriceEur(priceInEur);
-			product.setPriceUsd(calculatePriceInUSD(priceInEur));
-			logger.debug("Product price set to: {} EUR / {} USD", product.getPriceEur() + " / " + product.getPriceUsd());
+			setUsdPrice(product, this.exchangeRateProvider.getUSDExchangeRate());
+			logger.debug("Product price set to: {} EUR / {} USD", product.getPriceEur(), product.getPriceUsd());
 		}
 
 		product.setDescription(description);
@@ -138,23 +336,88 @@ public class ProductServiceImpl implements ProductService{
 		 logger.debug("Updated product details - Description: {}, Availability: {}", 
                  description, isAvailable);
 
-		Product savedProduct = this.productRepo.save(product);
-		
-	    ProductDTO productDTO = new ProductDTO(
-	    	      savedProduct.getCode(), 
-	    	      savedProduct.getName(),
-	    	      savedProduct.getPriceEur(),
-	    	      savedProduct.getPriceUsd(),
-	    	      savedProduct.getIsAvailable(),
-	    	      savedProduct.getDescription(),
-	    	      savedProduct.getCategory().getId().toString()
-	    	    );
-	    
-		return productDTO;
+		// flushed here, so the returned product carries the incremented version
+		Product savedProduct = this.productRepo.saveAndFlush(product);
+		if (priceChanged || availableDelta != 0) {
+			applyCategoryChange(savedProduct.getCategory().getId(), 0, availableDelta);
+		}
+		// an update that sets the same values is not written by Hibernate and is no change for consumers either
+		if (!Objects.equals(versionBefore, savedProduct.getVersion())) {
+			this.productChangeRepo.append(ProductChangeDTO.Type.UPDATED, List.of(savedProduct));
+		}
+
+		return toProductDTO(savedProduct);
 	}
 
 	/**
-	 * This method deletes a product from the database.
+	 * Changes only the fields present in the patch. Only changed columns are written (the entity has dynamic
+	 * updates), and a patch that changes nothing returns the product without writing it or touching the category
+	 * aggregates. A concurrent write between reading and flushing the product is detected by its version.
+	 *
+	 * @param code the code of the product to be changed
+	 * @param patch fields to change, optionally with the version of the product the change is based on
+	 * @return the product after the change
+	 * @throws ProductNotFoundException if the product can not be found
+	 * @throws org.springframework.dao.OptimisticLockingFailureException if the product has a different version
+	 *         than the patch or was changed concurrently
+	 * @throws JsonProcessingException if no rate was loaded yet and the cold-start fetch fails
+	 */
+	@Override
+	@Bulkhead(name = DATABASE_BULKHEAD)
+	@Transactional
+	@CacheEvict(cacheNames = PRODUCT_CACHE, key = "#code")
+	public ProductDTO patchProduct(String code, ProductPatchDTO patch) throws ProductNotFoundException, JsonProcessingException {
+		Product product = this.productRepo.findByCode(code);
+		if (product == null) {
+			throw new ProductNotFoundException(code);
+		}
+		if (patch.getVersion() != null && !patch.getVersion().equals(product.getVersion())) {
+			throw new ObjectOptimisticLockingFailureException(Product.class, code);
+		}
+
+		boolean nameChanged = patch.getName() != null && !patch.getName().equals(product.getName());
+		boolean descriptionChanged = patch.getDescription() != null && !patch.getDescription().equals(product.getDescription());
+		boolean priceChanged = patch.getPriceEUR() != null && (product.getPriceEur() == null || product.getPriceEur().compareTo(patch.getPriceEUR()) != 0);
+		long availableDelta = patch.getIsAvailable() == null ? 0 : availableCount(patch.getIsAvailable()) - availableCount(product.getIsAvailable());
+		boolean availabilityChanged = patch.getIsAvailable() != null && !patch.getIsAvailable().equals(product.getIsAvailable());
+
+		if (!nameChanged && !descriptionChanged && !priceChanged && !availabilityChanged) {
+			logger.debug("Patch of product {} changes nothing, not writing it", code);
+			return toProductDTO(product);
+		}
+
+		if (nameChanged) {
+			product.setName(patch.getName());
+		}
+		if (descriptionChanged) {
+			product.setDescription(patch.getDescription());
+		}
+		if (availabilityChanged) {
+			product.setIsAvailable(patch.getIsAvailable());
+		}
+		if (priceChanged) {
+			product.setPriceEur(patch.getPriceEUR());
+			setUsdPrice(product, this.exchangeRateProvider.getUSDExchangeRate());
+		}
+
+		Product savedProduct = this.productRepo.saveAndFlush(product);
+		if (priceChanged || availableDelta != 0) {
+			applyCategoryChange(savedProduct.getCategory().getId(), 0, availableDelta);
+		}
+		this.productChangeRepo.append(ProductChangeDTO.Type.UPDATED, List.of(savedProduct));
+		logger.info("Patched product {} to version {}", code, savedProduct.getVersion());
+
+		return toProductDTO(savedProduct);
+	}
+
+	private static ProductDTO toProductDTO(Product product) {
+		return new ProductDTO(product.getCode(), product.getName(), product.getPriceEur(), product.getPriceUsd(), product.getIsAvailable(),
+				product.getDescription(), CategoryIds.of(product.getCategory().getId()), product.getVersion(),
+				product.getUpdatedAt());
+	}
+
+	/**
+	 * This method deletes a product from the database and removes it from the aggregates of its category.
 	 *
 	 *
 	 * @param code - the code of the product to be deleted
@@ -162,6 +425,9 @@ public class ProductServiceImpl implements ProductService{
 	 * @throws ProductNotFoundException, if the product can not be found
 	 */
 	@Override
+	@Bulkhead(name = DATABASE_BULKHEAD)
+	@Transactional
+	@CacheEvict(cacheNames = PRODUCT_CACHE, key = "#code")
 	public void deleteProductByCode(String code) {
 		Product product = this.productRepo.findByCode(code);
 
@@ -169,71 +435,196 @@ public class ProductServiceImpl implements ProductService{
 			throw new ProductNotFoundException(code);
 		} else {
 			this.productRepo.deleteById(product.getProductId());
+			applyCategoryChange(product.getCategory().getId(), -1, -availableCount(product.getIsAvailable()));
+			this.productChangeRepo.append(ProductChangeDTO.Type.DELETED, List.of(product));
 		}
 	}
 
+	/**
+	 * Reads the change feed after positioning the changes committed since the last read.
+	 *
+	 * @param since position of the last change already read, 0 to read from the oldest change still kept
+	 * @param limit maximum number of changes
+	 * @return changes after {@code since} with the position to continue from
+	 */
+	@Override
+	@Bulkhead(name = DATABASE_BULKHEAD)
+	public ProductChangePage getChanges(long since, int limit) {
+		this.productChangeRelay.assignPositions();
+		return ProductChangePage.of(this.productChangeRepo.findAfter(since, limit), since);
+	}
+
+	/**
+	 * Returns the newest change of the feed, after positioning the changes committed since the last read.
+	 *
+	 * @return the newest change without its product, or null if there is none
+	 */
+	@Override
+	public ProductChangeDTO getLatestChange() {
+		this.productChangeRelay.assignPositions();
+		return this.productChangeRepo.findLatest();
+	}
+
 	/**
 	 * Finds product by code.
+	 * Found products are kept in the bounded "products" cache, so repeated reads of the same code
+	 * do not reach the database until the entry expires or the product is updated or deleted.
+	 * On a cache miss the product is selected straight into a DTO, without loading the entity and its category.
 	 * 
 	 * @param code - the code of the product to be searched for
 	 * @return product object or null
 	 */
 	@Override
+	@Cacheable(cacheNames = PRODUCT_CACHE, key = "#code", unless = "#result == null")
 	public ProductDTO getProductByCode(String code) {
-		Product product = this.productRepo.findByCode(code);
-		return product.map(product);
+		return this.productRepo.findProductDTOByCode(code);
 	}
 
 
 
 	/**
-	 * This is a helper method that uses product repository to search for a product by product code,
-	 * it is used when generating a new code for a new product, because of the fact that product
-	 * code is unique and generated randomly by us
-	 * 
-	 * @param productCode - newly generated product code
-	 * @return products's final code
+	 * Creates a category together with its empty aggregates row.
+	 *
+	 * @param productCategory category to be created
+	 * @return the created category
+	 */
+	@Override
+	@Bulkhead(name = DATABASE_BULKHEAD)
+	@Transactional
+	public ProductCategory createCategory(ProductCategory productCategory) {
+		ProductCategory savedCategory = this.productCategoryRepo.save(productCategory);
+		this.entityManager.persist(new ProductCategoryStats(savedCategory.getId()));
+		return savedCategory;
+	}
+
+	/**
+	 * Returns all categories with the number of their products and their EUR price range,
+	 * read from the precomputed aggregates in one query.
+	 *
+	 * @return categories ordered by name
 	 */
-	public String checkWhetherCodeExists(String productCode) {
-		while (productRepo.existsByCode(productCode)) {
-			productCode = generateProductCode();
+	@Override
+	public List<ProductCategoryDTO> findAllCategories() {
+		return this.productCategoryStatsRepo.findAllCategoryDTOs();
+	}
+
+	/**
+	 * Finds a page of the products of one category, here is an example of http request:
+	 *
+	 * http://localhost:8089/products/categories/1/products?page=0&size=20&sort=priceEur,asc
+	 *
+	 * The total is taken from the category aggregates instead of counting the products, and is not read at all
+	 * when the first page is not full.
+	 *
+	 * @param categoryId category id
+	 * @param pageable page, size and sort
+	 * @return page of products, or null if there is no such category
+	 */
+	@Override
+	@Bulkhead(name = DATABASE_BULKHEAD)
+	public Page<ProductDTO> findAllByCategory(Long categoryId, Pageable pageable) {
+		List<ProductDTO> products = this.productRepo.findProductDTOsByCategoryId(categoryId, pageable);
+		if (products.isEmpty()) {
+			ProductCategoryStats stats = this.productCategoryStatsRepo.findById(categoryId).orElse(null);
+			return stats == null ? null : new PageImpl<>(products, pageable, stats.getProductCount());
+		}
+		return PageableExecutionUtils.getPage(products, pageable,
+				() -> this.productCategoryStatsRepo.findById(categoryId).map(ProductCategoryStats::getProductCount).orElse(0L));
+	}
+
+	/**
+	 * Searches products by words of their name and description, here is an example of http request:
+	 *
+	 * http://localhost:8089/products/search?q=red+sho&available=true&categoryId=1&minPrice=10&maxPrice=50
+	 *
+	 * Every word is matched as a prefix and all words have to match, see {@link ProductSearchQuery}.
+	 *
+	 * @param text search text
+	 * @param isAvailable availability filter, null for none
+	 * @param categoryId category filter, null for none
+	 * @param minPriceEur lowest EUR price, null for none
+	 * @param maxPriceEur highest EUR price, null for none
+	 * @param page page number
+	 * @param size page size
+	 * @return matching products, best match first
+	 * @throws IllegalArgumentException if the text has no word to search for or the price range is empty
+	 */
+	@Override
+	@Bulkhead(name = DATABASE_BULKHEAD)
+	public List<ProductDTO> search(String text, Boolean isAvailable, Long categoryId, BigDecimal minPriceEur, BigDecimal maxPriceEur, int page, int size) {
+		ProductSearchQuery query = ProductSearchQuery.of(text, isAvailable, categoryId, minPriceEur, maxPriceEur);
+		return this.productSearchRepo.search(query, (long) page * size, size);
+	}
+
+	private void setUsdPrice(Product product, ExchangeRate dollarExchangeRate) {
+		product.setPriceUsd(calculatePriceInUSD(product.getPriceEur(), dollarExchangeRate.getMiddleRate()));
+		product.setUsdRateDate(dollarExchangeRate.getEffectiveDate());
+		product.setUsdRate(dollarExchangeRate.getMiddleRate());
+	}
+
+	private boolean isUsdPriceOutdated(Product product) {
+		ExchangeRate currentRate = this.exchangeRateProvider.getSnapshot();
+		return currentRate != null && currentRate.supersedes(product.getUsdRateDate(), product.getUsdRate());
+	}
+
+	private void applyCategoryChange(Long categoryId, long productDelta, long availableDelta) {
+		if (this.productCategoryStatsRepo.lockByCategoryId(categoryId) == null
+				|| this.productCategoryStatsRepo.applyChange(categoryId, productDelta, availableDelta) == 0) {
+			logger.warn("Category {} has no aggregates row, its overview is not updated", categoryId);
 		}
+	}
+
+	private static long availableCount(Boolean isAvailable) {
+		return Boolean.TRUE.equals(isAvailable) ? 1 : 0;
+	}
 
-		return productCode;
-	};
+	/**
+	 * Returns a reference to the category with the given id without selecting it; only its id is needed
+	 * to write the foreign key of a product.
+	 *
+	 * @param categoryId id of an existing category
+	 * @return uninitialized category proxy
+	 */
+	private ProductCategory categoryReference(String categoryId) {
+		return this.entityManager.getReference(ProductCategory.class, Long.valueOf(categoryId));
+	}
 
 	/**
-	 * Helper method that contains logic of generating a random code for a product.
+	 * Helper method that returns a new unique code for a product. Codes are produced by
+	 * {@link ProductCodeGenerator} and are unique without checking the database.
 	 * 
 	 * @return newly generated product code
 	 */
 	public String generateProductCode() {
-		String characters = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwz0123456789";
-		Random random = new Random();
-		String productCode = "";
-		for (int i = 0; i < 10; i++) {
-			productCode += characters.charAt(random.nextInt(characters.length()));
-		}
-
-		return productCode;
+		return productCodeGenerator.nextCode();
 	}
 
 	/**
 	 * Calculates price in USD for every product.
 	 * 
-	 * Price in USD we don't get from the user, but we calculate it by ourselves by calling the HNB API
-	 * and by using middle exchange rate.
+	 * Price in USD we don't get from the user, but we calculate it by ourselves by using the HNB middle
+	 * exchange rate held in memory by {@link ExchangeRateProvider}, so no HTTP call is made here.
 	 * 
 	 * @param priceInEUR - the price in EUR that we get from the user
 	 * @return returns rounded price
-	 * @throws JsonProcessingException if there is an error processing JSON while fetching exchange rate
+	 * @throws JsonProcessingException if no rate was loaded yet and the cold-start fetch fails
 	 */
 	public BigDecimal calculatePriceInUSD(BigDecimal priceInEUR) throws JsonProcessingException {
 
-		BigDecimal dollarExchangeRate = this.hnbCallerService.getUSDMiddleExchangeRate();
+		BigDecimal dollarExchangeRate = this.exchangeRateProvider.getUSDMiddleExchangeRate();
 
-		BigDecimal priceInUSD = priceInEUR.multiply(dollarExchangeRate);
+		return calculatePriceInUSD(priceInEUR, dollarExchangeRate);
+	}
+
+	/**
+	 * Calculates price in USD with an already resolved exchange rate.
+	 *
+	 * @param priceInEUR - the price in EUR that we get from the user
+	 * @param dollarExchangeRate - USD middle exchange rate
+	 * @return returns rounded price
+	 */
+	public BigDecimal calculatePriceInUSD(BigDecimal priceInEUR, BigDecimal dollarExchangeRate) {
 
-		return priceInUSD.setScale(2, RoundingMode.CEILING);
+		return ProductPriceCalculator.convert(priceInEUR, dollarExchangeRate, ExchangeRate.USD);
 	}
 }
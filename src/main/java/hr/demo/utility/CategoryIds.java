@@ -0,0 +1,42 @@
+package hr.demo.utility;
+
+/**
+ * Category ids as the strings sent in {@link hr.demo.dto.ProductDTO#getCategoryId()}, cached like small
+ * {@link Integer}s: a catalog has few categories, so every product of a page would otherwise allocate the
+ * same string again.
+ *
+ * @author Zoran Džoić
+ */
+public final class CategoryIds {
+
+	/**
+	 * Ids below this are cached, larger ones are converted on every call.
+	 */
+	static final int CACHE_SIZE = 4096;
+
+	// racy but safe: strings are immutable, two threads filling the same slot create equal strings
+	private static final String[] CACHE = new String[CACHE_SIZE];
+
+	private CategoryIds() {
+	}
+
+	/**
+	 * @param categoryId category id, may be null
+	 * @return the id as a decimal string, null for null
+	 */
+	public static String of(Long categoryId) {
+		if (categoryId == null) {
+			return null;
+		}
+		long id = categoryId;
+		if (id < 0 || id >= CACHE_SIZE) {
+			return Long.toString(id);
+		}
+		String cached = CACHE[(int) id];
+		if (cached == null) {
+			cached = Long.toString(id);
+			CACHE[(int) id] = cached;
+		}
+		return cached;
+	}
+}
@@ -0,0 +1,106 @@
+package hr.demo.utility;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset (seek) paging over products.
+ * <p>
+ * It remembers the sort order and the sort key of the last product on the previous page,
+ * so the next page is read with a seek predicate instead of an OFFSET.
+ *
+ * @author Zoran Džoić
+ */
+public final class KeysetCursor {
+
+	public enum Sort {
+		PRODUCT_ID("productId"),
+		PRICE_EUR_ASC("priceEur,asc"),
+		PRICE_EUR_DESC("priceEur,desc");
+
+		private final String value;
+
+		Sort(String value) {
+			this.value = value;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		/**
+		 * @param value sort as given in the request, e.g. "priceEur,desc"; "priceEur" means ascending
+		 * @return matching sort
+		 * @throws IllegalArgumentException if the sort is not supported for keyset paging
+		 */
+		public static Sort of(String value) {
+			if (value == null || value.isBlank() || value.equals("productId") || value.equals("productId,asc")) {
+				return PRODUCT_ID;
+			}
+			if (value.equals("priceEur")) {
+				return PRICE_EUR_ASC;
+			}
+			for (Sort sort : values()) {
+				if (sort.value.equals(value)) {
+					return sort;
+				}
+			}
+			throw new IllegalArgumentException("Unsupported sort for cursor paging: " + value);
+		}
+	}
+
+	private static final char SEPARATOR = '|';
+
+	private final Sort sort;
+
+	private final BigDecimal priceEur;
+
+	private final Long productId;
+
+	public KeysetCursor(Sort sort, BigDecimal priceEur, Long productId) {
+		this.sort = sort;
+		this.priceEur = priceEur;
+		this.productId = productId;
+	}
+
+	public Sort getSort() {
+		return sort;
+	}
+
+	public BigDecimal getPriceEur() {
+		return priceEur;
+	}
+
+	public Long getProductId() {
+		return productId;
+	}
+
+	/**
+	 * @return URL safe token
+	 */
+	public String encode() {
+		String raw = sort.name() + SEPARATOR + (priceEur == null ? "" : priceEur.toPlainString()) + SEPARATOR + productId;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param token token previously returned by {@link #encode()}
+	 * @return decoded cursor
+	 * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+	 */
+	public static KeysetCursor decode(String token) {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			String[] parts = raw.split("\\|", -1);
+			if (parts.length != 3) {
+				throw new IllegalArgumentException("Malformed cursor");
+			}
+			return new KeysetCursor(Sort.valueOf(parts[0]),
+					parts[1].isEmpty() ? null : new BigDecimal(parts[1]),
+					Long.valueOf(parts[2]));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor: " + token, e);
+		}
+	}
+}
@@ -1,19 +1,32 @@
 package hr.demo.utility;
 
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.Named;
+import org.mapstruct.ReportingPolicy;
+
 import hr.demo.dto.ProductDTO;
 import hr.demo.model.Product;
-import org.springframework.stereotype.Component;
 
+/**
+ * Maps product entities to {@link ProductDTO}s. The implementation ({@code ProductMapperImpl}) is generated by
+ * MapStruct at compile time as plain getter and setter calls, without reflection, and registered as a Spring bean.
+ * Every DTO property has to be mapped, a new one that is not fails the build. The category id is taken from the
+ * foreign key of the (possibly lazy) category, which is not loaded, and converted with {@link CategoryIds}.
+ *
+ * @author Zoran Džoić
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
 public interface ProductMapper {
-    default ProductDTO map(Product product) {
-        ProductDTO productDTO = new ProductDTO();
-        productDTO.setName(product.getName());
-        productDTO.setCode(product.getCode());
-        productDTO.setDescription(product.getDescription());
-        productDTO.setCategoryId(product.getCategory().getId().toString());
-        productDTO.setIsAvailable(product.getIsAvailable());
-        productDTO.setPriceEUR(product.getPriceEur());
-        productDTO.setPriceUSD(product.getPriceUsd());
-        return productDTO;
-    }
+
+	@Mapping(target = "priceEUR", source = "priceEur")
+	@Mapping(target = "priceUSD", source = "priceUsd")
+	@Mapping(target = "categoryId", source = "category.id", qualifiedByName = "categoryId")
+	ProductDTO map(Product product);
+
+	@Named("categoryId")
+	default String categoryId(Long categoryId) {
+		return CategoryIds.of(categoryId);
+	}
 }
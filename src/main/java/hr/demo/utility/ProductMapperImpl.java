@@ -1,4 +0,0 @@
-package hr.demo.utility;
-
-public class ProductMapperImpl implements ProductMapper {
-}
@@ -0,0 +1,183 @@
+package hr.demo.utility;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Product search by words of the name and description, with optional filters on availability,
+ * category and EUR price range.
+ * <p>
+ * The search text is split into words of letters and digits, every word is matched as a prefix
+ * ("sho" finds "shoe") and all words have to match. Nothing else of the text reaches the query, so user
+ * input can not break the tsquery syntax or add LIKE wildcards.
+ * <p>
+ * On PostgreSQL the words are matched against the GIN indexed {@code search_vector} column and results are
+ * ranked by {@code ts_rank_cd}. Other databases (H2 in tests and benchmarks) get an unindexed LIKE
+ * fallback ordered by id, which matches every word as a prefix of the name or description or of a word in them
+ * after a space, with LIKE wildcards in the word escaped.
+ *
+ * @author Zoran Džoić
+ */
+public final class ProductSearchQuery {
+
+	/**
+	 * Words after this many are ignored, every word is one more index lookup.
+	 */
+	public static final int MAX_TERMS = 8;
+
+	/**
+	 * Shorter words are ignored, a one letter prefix matches a large part of the catalog.
+	 */
+	public static final int MIN_TERM_LENGTH = 2;
+
+	private static final String LIKE_ESCAPE = " escape '\\'";
+
+	private final List<String> terms;
+
+	private final Boolean isAvailable;
+
+	private final Long categoryId;
+
+	private final BigDecimal minPriceEur;
+
+	private final BigDecimal maxPriceEur;
+
+	private ProductSearchQuery(List<String> terms, Boolean isAvailable, Long categoryId, BigDecimal minPriceEur, BigDecimal maxPriceEur) {
+		this.terms = terms;
+		this.isAvailable = isAvailable;
+		this.categoryId = categoryId;
+		this.minPriceEur = minPriceEur;
+		this.maxPriceEur = maxPriceEur;
+	}
+
+	/**
+	 * @param text search text as given in the request
+	 * @param isAvailable only available or only unavailable products, null for both
+	 * @param categoryId only products of the category, null for all
+	 * @param minPriceEur lowest EUR price, inclusive, null for no limit
+	 * @param maxPriceEur highest EUR price, inclusive, null for no limit
+	 * @return search query
+	 * @throws IllegalArgumentException if the text has no word to search for or the price range is empty
+	 */
+	public static ProductSearchQuery of(String text, Boolean isAvailable, Long categoryId, BigDecimal minPriceEur, BigDecimal maxPriceEur) {
+		List<String> terms = terms(text);
+		if (terms.isEmpty()) {
+			throw new IllegalArgumentException("Search text has to contain a word of at least " + MIN_TERM_LENGTH + " letters or digits");
+		}
+		if (minPriceEur != null && maxPriceEur != null && minPriceEur.compareTo(maxPriceEur) > 0) {
+			throw new IllegalArgumentException("Minimum price is greater than maximum price");
+		}
+		return new ProductSearchQuery(terms, isAvailable, categoryId, minPriceEur, maxPriceEur);
+	}
+
+	static List<String> terms(String text) {
+		if (text == null) {
+			return Collections.emptyList();
+		}
+		List<String> terms = new ArrayList<>();
+		for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+			if (word.length() >= MIN_TERM_LENGTH && !terms.contains(word)) {
+				terms.add(word);
+				if (terms.size() == MAX_TERMS) {
+					break;
+				}
+			}
+		}
+		return Collections.unmodifiableList(terms);
+	}
+
+	/**
+	 * @return the word with the LIKE wildcards and the escape character escaped, to be matched literally
+	 */
+	static String escapeLike(String word) {
+		return word.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+
+	public List<String> getTerms() {
+		return terms;
+	}
+
+	/**
+	 * @return PostgreSQL tsquery matching all words as prefixes, e.g. "red:* &amp; sho:*"
+	 */
+	public String toTsQuery() {
+		return String.join(" & ", terms.stream().map(term -> term + ":*").toList());
+	}
+
+	/**
+	 * Builds the search statement with named parameters, see {@link #parameters(boolean, long, int)}.
+	 *
+	 * @param columns product columns to select
+	 * @param fullText true on PostgreSQL, where the full-text index is used
+	 * @return SQL text
+	 */
+	public String toSql(String columns, boolean fullText) {
+		StringBuilder sql = new StringBuilder("select ").append(columns).append(" from product");
+		if (fullText) {
+			sql.append(", to_tsquery('simple', :query) query where search_vector @@ query");
+		} else {
+			sql.append(" where ");
+			for (int i = 0; i < terms.size(); i++) {
+				sql.append(i == 0 ? "" : " and ").append('(')
+						.append("lower(name) like :term").append(i).append(LIKE_ESCAPE)
+						.append(" or lower(name) like :wordTerm").append(i).append(LIKE_ESCAPE)
+						.append(" or lower(description) like :term").append(i).append(LIKE_ESCAPE)
+						.append(" or lower(description) like :wordTerm").append(i).append(LIKE_ESCAPE)
+						.append(')');
+			}
+		}
+		if (isAvailable != null) {
+			sql.append(" and is_available = :isAvailable");
+		}
+		if (categoryId != null) {
+			sql.append(" and category_id = :categoryId");
+		}
+		if (minPriceEur != null) {
+			sql.append(" and price_eur >= :minPriceEur");
+		}
+		if (maxPriceEur != null) {
+			sql.append(" and price_eur <= :maxPriceEur");
+		}
+		sql.append(fullText ? " order by ts_rank_cd(search_vector, query) desc, product_id" : " order by product_id");
+		return sql.append(" limit :limit offset :offset").toString();
+	}
+
+	/**
+	 * @param fullText true on PostgreSQL, where the full-text index is used
+	 * @param offset number of results to skip
+	 * @param limit page size
+	 * @return values of the named parameters of {@link #toSql(String, boolean)}, none of them null
+	 */
+	public Map<String, Object> parameters(boolean fullText, long offset, int limit) {
+		Map<String, Object> parameters = new LinkedHashMap<>();
+		if (fullText) {
+			parameters.put("query", toTsQuery());
+		} else {
+			for (int i = 0; i < terms.size(); i++) {
+				String term = escapeLike(terms.get(i));
+				parameters.put("term" + i, term + "%");
+				parameters.put("wordTerm" + i, "% " + term + "%");
+			}
+		}
+		if (isAvailable != null) {
+			parameters.put("isAvailable", isAvailable);
+		}
+		if (categoryId != null) {
+			parameters.put("categoryId", categoryId);
+		}
+		if (minPriceEur != null) {
+			parameters.put("minPriceEur", minPriceEur);
+		}
+		if (maxPriceEur != null) {
+			parameters.put("maxPriceEur", maxPriceEur);
+		}
+		parameters.put("limit", limit);
+		parameters.put("offset", offset);
+		return parameters;
+	}
+}
@@ -0,0 +1,11 @@
+-- change ids are taken when a write inserts its changes, not when it commits, so the feed is ordered by a position
+-- that ProductChangeRelay assigns to committed changes instead; existing changes were committed in id order
+alter table product_change add column feed_position bigint;
+update product_change set feed_position = change_id;
+create unique index product_change_feed_position_uidx on product_change (feed_position);
+
+alter table product_change_relay rename column last_change_id to last_position;
+-- last position assigned to a change, locked while positions are assigned
+insert into product_change_relay (relay_name, last_position) select 'feed', coalesce(max(change_id), 0) from product_change;
+
+drop table product_change_lock;
@@ -0,0 +1,3 @@
+-- HNB rate price_usd was computed with; together with usd_rate_date it versions the USD price, so a rate corrected
+-- on the same effective date is repriced as well. Existing products have none and are repriced once with the loaded rate
+alter table product add column if not exists usd_rate numeric(19,6);
@@ -0,0 +1,24 @@
+-- Schema as it was managed by spring.jpa.hibernate.ddl-auto=update.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate) and start from V2.
+
+create sequence "ingemark-seq" start with 1 increment by 1;
+create sequence "ingemark-seq2" start with 1 increment by 50;
+
+create table "product-category" (
+    category_id bigint not null,
+    category_name varchar(255),
+    primary key (category_id)
+);
+
+create table product (
+    product_id bigint not null,
+    code varchar(10),
+    name varchar(15) not null,
+    price_eur numeric(38,2),
+    price_usd numeric(38,2),
+    description varchar(255),
+    is_available boolean,
+    category_id bigint,
+    primary key (product_id),
+    constraint fk_product_category foreign key (category_id) references "product-category" (category_id)
+);
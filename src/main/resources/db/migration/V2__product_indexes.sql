@@ -0,0 +1,16 @@
+-- product ids are allocated in blocks of 50 (pooled optimizer), see Product
+alter sequence "ingemark-seq2" increment by 50;
+
+-- code is the lookup key for get, update and delete; a schema created by ddl-auto had no unique constraint on it,
+-- so duplicated codes are copied into a table whose check rejects every row first: the migration then fails naming
+-- product_code_duplicated (PostgreSQL also shows the code) instead of in the index build; resolve them and run again
+create table if not exists product_code_duplicate (code varchar(10), constraint product_code_duplicated check (code is null));
+insert into product_code_duplicate (code) select code from product where code is not null group by code having count(*) > 1;
+drop table product_code_duplicate;
+create unique index if not exists product_code_uidx on product (code);
+
+-- foreign key to the category
+create index if not exists product_category_id_idx on product (category_id);
+
+-- keyset paging sorted by price
+create index if not exists product_price_eur_id_idx on product (price_eur, product_id);
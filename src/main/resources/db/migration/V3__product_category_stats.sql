@@ -0,0 +1,20 @@
+-- per-category aggregates for the category overview, kept up to date by the application on every product write
+create table product_category_stats (
+    category_id bigint not null,
+    product_count bigint not null,
+    available_count bigint not null,
+    min_price_eur numeric(38,2),
+    max_price_eur numeric(38,2),
+    primary key (category_id),
+    constraint fk_product_category_stats_category foreign key (category_id) references "product-category" (category_id)
+);
+
+insert into product_category_stats (category_id, product_count, available_count, min_price_eur, max_price_eur)
+select c.category_id, count(p.product_id), count(case when p.is_available then 1 end), min(p.price_eur), max(p.price_eur)
+from "product-category" c left join product p on p.category_id = c.category_id
+group by c.category_id;
+
+-- browsing a category by price and the min/max price of a category are range scans of this index,
+-- it also serves the foreign key, so the single column index is dropped
+create index if not exists product_category_price_idx on product (category_id, price_eur, product_id);
+drop index if exists product_category_id_idx;
@@ -0,0 +1,3 @@
+-- effective date of the HNB rate price_usd was computed with; products with an older date (or none,
+-- created before this column) are repriced when a new rate is published, see ProductRepricingService
+alter table product add column if not exists usd_rate_date date;
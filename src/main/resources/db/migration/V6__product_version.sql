@@ -0,0 +1,3 @@
+-- optimistic locking: every write of a product increments version, a write based on an older version fails
+-- instead of overwriting a concurrent change (Product#version, PATCH /products/product/{code})
+alter table product add column if not exists version bigint not null default 0;
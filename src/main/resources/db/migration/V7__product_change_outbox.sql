@@ -0,0 +1,20 @@
+-- transactional outbox: every product write appends a change in its own transaction, consumers read
+-- GET /products/changes?since= and ProductChangeRelay publishes them to a sink; rows carry no payload,
+-- the current state is joined from product when the changes are read
+create table product_change (
+    change_id bigint generated by default as identity,
+    product_code varchar(10) not null,
+    change_type varchar(10) not null,
+    product_version bigint not null,
+    changed_at timestamp not null,
+    primary key (change_id)
+);
+
+-- position of the relay: id of the last change handed to the sink, locked while a batch is published
+create table product_change_relay (
+    relay_name varchar(50) not null,
+    last_change_id bigint not null,
+    primary key (relay_name)
+);
+
+insert into product_change_relay (relay_name, last_change_id) values ('sink', 0);
@@ -0,0 +1,3 @@
+-- time of the last write of a product, sent as Last-Modified with GET /products/product/{code};
+-- rows that exist before this migration get the time of the migration
+alter table product add column if not exists updated_at timestamp with time zone not null default current_timestamp;
@@ -0,0 +1,8 @@
+-- product changes are appended while holding the lock on this row, which is kept until commit, so change ids are
+-- taken in commit order and a reader of product_change never sees an id before a lower one has been committed
+create table product_change_lock (
+    lock_name varchar(50) not null,
+    primary key (lock_name)
+);
+
+insert into product_change_lock (lock_name) values ('append');
@@ -0,0 +1,344 @@
+package hr.demo.controller;
+
+import hr.demo.dto.CursorPage;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductCategoryDTO;
+import hr.demo.dto.ProductDTO;
+import hr.demo.service.ExchangeRateProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the reactive stack ("reactive" profile) against an embedded H2 database over R2DBC.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-products;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.flyway.url=jdbc:h2:mem:reactive-products;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.flyway.user=sa",
+        "spring.flyway.password=",
+        "hnb.reactive.refresh-on-startup=false",
+        "hnb.reactive.refresh-cron=-"
+})
+@ActiveProfiles("reactive")
+class ReactiveProductControllerIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ExchangeRateProvider exchangeRateProvider;
+
+    private String categoryId;
+
+    @BeforeEach
+    void setUp() {
+        exchangeRateProvider.update(new ExchangeRate("USD", new BigDecimal("1.0556"), LocalDate.now(), Instant.now()));
+        Map<?, ?> category = webTestClient.post().uri("/products/add-product-category")
+                .bodyValue(Map.of("categoryName", "reactive"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Map.class)
+                .returnResult().getResponseBody();
+        categoryId = String.valueOf(category.get("id"));
+    }
+
+    @Test
+    void ReactiveProductController_createProduct_returnsCreatedProductWithUsdPrice() {
+        ProductDTO created = createProduct("reactive", "10.00");
+
+        assertThat(created.getCode()).hasSize(10);
+        assertThat(created.getPriceUSD()).isEqualByComparingTo("10.56");
+        assertThat(created.getCategoryId()).isEqualTo(categoryId);
+
+        webTestClient.get().uri("/products/product/{code}", created.getCode())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ProductDTO.class)
+                .value(found -> assertThat(found.getName()).isEqualTo("reactive"));
+    }
+
+    @Test
+    void ReactiveProductController_getProductPrices_convertsWithRatesInMemory() {
+        exchangeRateProvider.update(new ExchangeRate("GBP", new BigDecimal("0.8681"), LocalDate.now(), Instant.now()));
+        ProductDTO created = createProduct("priced", "10.00");
+
+        webTestClient.get().uri("/products/product/{code}/prices?currency=USD&currency=GBP", created.getCode())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.prices.USD").isEqualTo(10.56)
+                .jsonPath("$.prices.GBP").isEqualTo(8.69);
+
+        webTestClient.get().uri("/products/product/{code}/prices?currency=JPY", created.getCode())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void ReactiveProductController_patchProduct_rejectsOutdatedVersion() {
+        ProductDTO created = createProduct("to patch", "20.00");
+
+        webTestClient.patch().uri("/products/product/{code}", created.getCode())
+                .bodyValue(Map.of("priceEUR", "30.00", "version", 0))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ProductDTO.class)
+                .value(patched -> {
+                    assertThat(patched.getName()).isEqualTo("to patch");
+                    assertThat(patched.getPriceUSD()).isEqualByComparingTo("31.67");
+                    assertThat(patched.getVersion()).isEqualTo(1L);
+                });
+
+        webTestClient.patch().uri("/products/product/{code}", created.getCode())
+                .bodyValue(Map.of("name", "stale", "version", 0))
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    void ReactiveProductController_updateAndDeleteProduct_returnNotFoundAfterDelete() {
+        Object since = webTestClient.get().uri("/products/changes?since=0&limit=" + ProductController.MAX_CHANGES_SIZE)
+                .exchange()
+                .expectBody(Map.class)
+                .returnResult().getResponseBody().get("nextSince");
+        ProductDTO created = createProduct("to update", "20.00");
+        created.setName("updated");
+        created.setPriceEUR(new BigDecimal("30.00"));
+
+        webTestClient.put().uri("/products/update-product")
+                .bodyValue(created)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ProductDTO.class)
+                .value(updated -> {
+                    assertThat(updated.getName()).isEqualTo("updated");
+                    assertThat(updated.getPriceUSD()).isEqualByComparingTo("31.67");
+                });
+
+        webTestClient.delete().uri("/products/delete-product/{code}", created.getCode())
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.delete().uri("/products/delete-product/{code}", created.getCode())
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.get().uri("/products/product/{code}", created.getCode())
+                .exchange()
+                .expectStatus().isNotFound();
+
+        webTestClient.get().uri("/products/changes?since={since}", since)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.changes.length()").isEqualTo(3)
+                .jsonPath("$.changes[0].code").isEqualTo(created.getCode())
+                .jsonPath("$.changes[0].type").isEqualTo("CREATED")
+                .jsonPath("$.changes[1].type").isEqualTo("UPDATED")
+                .jsonPath("$.changes[1].version").isEqualTo(1)
+                .jsonPath("$.changes[2].type").isEqualTo("DELETED")
+                .jsonPath("$.changes[2].version").isEqualTo(2)
+                .jsonPath("$.changes[2].product").doesNotExist();
+    }
+
+    @Test
+    void ReactiveProductController_categories_keepAggregatesOfProductWrites() {
+        createProduct("cheap", "5.00");
+        ProductDTO expensive = createProduct("expensive", "50.00");
+        webTestClient.delete().uri("/products/delete-product/{code}", expensive.getCode())
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get().uri("/products/categories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ProductCategoryDTO.class)
+                .value(categories -> assertThat(categories)
+                        .filteredOn(category -> String.valueOf(category.getId()).equals(categoryId))
+                        .singleElement()
+                        .satisfies(category -> {
+                            assertThat(category.getProductCount()).isEqualTo(1);
+                            assertThat(category.getAvailableCount()).isEqualTo(1);
+                            assertThat(category.getMinPriceEUR()).isEqualByComparingTo("5.00");
+                            assertThat(category.getMaxPriceEUR()).isEqualByComparingTo("5.00");
+                        }));
+        webTestClient.get().uri("/products/categories/{categoryId}/products", categoryId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ProductDTO.class)
+                .value(products -> assertThat(products).extracting(ProductDTO::getName).containsExactly("cheap"));
+        webTestClient.get().uri("/products/categories/{categoryId}/products", Long.MAX_VALUE)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void ReactiveProductController_rateChange_repricesStoredUsdPrices() throws InterruptedException {
+        ProductDTO created = createProduct("repriced", "10.00");
+
+        exchangeRateProvider.update(new ExchangeRate("USD", new BigDecimal("1.2000"), LocalDate.now().plusDays(1), Instant.now()));
+        BigDecimal priceUsd = null;
+        for (int i = 0; i < 100 && (priceUsd == null || priceUsd.compareTo(new BigDecimal("12.00")) != 0); i++) {
+            Thread.sleep(50);
+            priceUsd = webTestClient.get().uri("/products/product/{code}", created.getCode())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(ProductDTO.class)
+                    .returnResult().getResponseBody().getPriceUSD();
+        }
+
+        assertThat(priceUsd).isEqualByComparingTo("12.00");
+    }
+
+    @Test
+    void ReactiveProductController_search_matchesWordPrefixesWithFilters() {
+        createProduct("plava majica", "15.00");
+        createProduct("plavi šal", "25.00");
+
+        webTestClient.get().uri("/products/search?q={q}&categoryId={categoryId}&maxPrice=20", "PLAV maj", categoryId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ProductDTO.class)
+                .value(found -> assertThat(found).extracting(ProductDTO::getName).containsExactly("plava majica"));
+        webTestClient.get().uri("/products/search?q=*")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void ReactiveProductController_findAll_streamsNdjsonAndPagesWithCursor() {
+        for (int i = 0; i < 5; i++) {
+            createProduct("paged " + i, (i + 1) + ".00");
+        }
+
+        List<ProductDTO> streamed = webTestClient.get().uri("/products?size=3&sort=priceEur,desc")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(ProductDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+        assertThat(streamed).hasSize(3);
+        assertThat(streamed.get(0).getPriceEUR()).isGreaterThanOrEqualTo(streamed.get(1).getPriceEUR());
+
+        CursorPage<ProductDTO> first = webTestClient.get().uri("/products?cursor=&size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<CursorPage<ProductDTO>>() {})
+                .returnResult().getResponseBody();
+        assertThat(first.getContent()).hasSize(2);
+        assertThat(first.getNextCursor()).isNotNull();
+
+        CursorPage<ProductDTO> second = webTestClient.get().uri("/products?cursor={cursor}&size=2", first.getNextCursor())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<CursorPage<ProductDTO>>() {})
+                .returnResult().getResponseBody();
+        assertThat(second.getContent()).extracting(ProductDTO::getCode)
+                .doesNotContainAnyElementsOf(first.getContent().stream().map(ProductDTO::getCode).toList());
+
+        webTestClient.get().uri("/products?cursor=not-a-cursor")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void ReactiveProductController_conditionalGet_answersCurrentETagsWithNotModified() {
+        ProductDTO created = createProduct("conditional", "3.00");
+
+        webTestClient.get().uri("/products/product/{code}", created.getCode())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"v0\"")
+                .expectHeader().exists(HttpHeaders.LAST_MODIFIED);
+        webTestClient.get().uri("/products/product/{code}", created.getCode())
+                .ifNoneMatch("\"v0\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        String eTag = webTestClient.get().uri("/products?size=3")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(ProductDTO.class)
+                .getResponseHeaders().getETag();
+        assertThat(eTag).startsWith("\"c");
+        webTestClient.get().uri("/products?size=3")
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        webTestClient.patch().uri("/products/product/{code}", created.getCode())
+                .bodyValue(Map.of("name", "renamed"))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri("/products?size=3")
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri("/products/product/{code}", created.getCode())
+                .ifNoneMatch("\"v0\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"v1\"");
+    }
+
+    @Test
+    void ReactiveProductController_exportProducts_streamsCsvAndNdjson() {
+        createProduct("exported", "5.00");
+
+        String csv = webTestClient.get().uri("/products/export?format=csv")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertThat(csv).startsWith("code,name,priceEUR,priceUSD,isAvailable,description,categoryId\n");
+        assertThat(csv).contains(",exported,5.00,5.28,true,");
+
+        List<ProductDTO> ndjson = webTestClient.get().uri("/products/export")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(ProductDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+        assertThat(ndjson).extracting(ProductDTO::getName).contains("exported");
+    }
+
+    @Test
+    void ReactiveProductController_createProduct_rejectsInvalidProduct() {
+        webTestClient.post().uri("/products/add-product")
+                .bodyValue(new ProductDTO("x", new BigDecimal("-1"), "", true, categoryId))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private ProductDTO createProduct(String name, String priceEur) {
+        return webTestClient.post().uri("/products/add-product")
+                .bodyValue(new ProductDTO(name, new BigDecimal(priceEur), "description", true, categoryId))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(ProductDTO.class)
+                .returnResult().getResponseBody();
+    }
+}
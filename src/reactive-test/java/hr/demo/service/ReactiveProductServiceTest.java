@@ -0,0 +1,181 @@
+package hr.demo.service;
+
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductChangeDTO;
+import hr.demo.dto.ProductPatchDTO;
+import hr.demo.exceptions.ProductNotFoundException;
+import hr.demo.junitextension.TimingExtension;
+import hr.demo.model.Product;
+import hr.demo.model.ProductCategory;
+import hr.demo.repository.ReactiveProductRepo;
+import hr.demo.serviceimpl.ReactiveProductServiceImpl;
+import hr.demo.utility.KeysetCursor;
+import hr.demo.utility.ProductMapper;
+import hr.demo.utility.ProductMapperImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith({MockitoExtension.class, TimingExtension.class})
+class ReactiveProductServiceTest {
+
+    private static final ExchangeRate RATE = new ExchangeRate("USD", new BigDecimal("1.0556"), LocalDate.now(), Instant.now());
+
+    private Product product;
+
+    @Mock
+    private ReactiveProductRepo productRepo;
+
+    @Mock
+    private ReactiveHnbCallerService hnbCallerService;
+
+    @Mock
+    private ExchangeRateProvider exchangeRateProvider;
+
+    @Spy
+    private ProductMapper productMapper = new ProductMapperImpl();
+
+    @Spy
+    private ProductCodeGenerator productCodeGenerator = new ProductCodeGenerator(1);
+
+    @InjectMocks
+    private ReactiveProductServiceImpl productService;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setProductId(1L);
+        product.setCode("0123456789");
+        product.setName("product_1");
+        product.setPriceEur(BigDecimal.valueOf(10));
+        product.setPriceUsd(new BigDecimal("10.56"));
+        product.setIsAvailable(true);
+        product.setDescription("opis");
+        product.setCategory(new ProductCategory(1L));
+        product.setVersion(2L);
+    }
+
+    @Test
+    public void ReactiveProductService_createProduct_usesCurrentRateAndGeneratedCode() {
+        when(hnbCallerService.currentUSDExchangeRate()).thenReturn(Mono.just(RATE));
+        when(productRepo.insert(any(Product.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(productRepo.applyCategoryChange(1L, 1, 1)).thenReturn(Mono.just(1L));
+        when(productRepo.appendChange(eq(ProductChangeDTO.Type.CREATED), any(Product.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(productService.createProduct("product_1", new BigDecimal("10.00"), "opis", true, "1"))
+                .assertNext(created -> {
+                    assertThat(created.getCode()).hasSize(10);
+                    assertThat(created.getPriceUSD()).isEqualByComparingTo("10.56");
+                    assertThat(created.getCategoryId()).isEqualTo("1");
+                })
+                .verifyComplete();
+        verify(productCodeGenerator).nextCode();
+        verify(productRepo).applyCategoryChange(1L, 1, 1);
+        verify(productRepo).appendChange(eq(ProductChangeDTO.Type.CREATED), any(Product.class));
+    }
+
+    @Test
+    public void ReactiveProductService_updateProduct_keepsUsdPriceWhenEurPriceIsUnchanged() {
+        when(productRepo.findByCode("0123456789")).thenReturn(Mono.just(product));
+        when(productRepo.update(any(Product.class))).thenReturn(Mono.just(1L));
+        when(productRepo.applyCategoryChange(1L, 0, -1)).thenReturn(Mono.just(1L));
+        when(productRepo.appendChange(ProductChangeDTO.Type.UPDATED, product)).thenReturn(Mono.empty());
+
+        StepVerifier.create(productService.updateProduct("0123456789", "renamed", BigDecimal.valueOf(10), "opis", false, null))
+                .assertNext(updated -> {
+                    assertThat(updated.getName()).isEqualTo("renamed");
+                    assertThat(updated.getPriceUSD()).isEqualByComparingTo("10.56");
+                })
+                .verifyComplete();
+        verifyNoInteractions(hnbCallerService);
+    }
+
+    @Test
+    public void ReactiveProductService_patchProduct_writesOnlyChangedColumns() {
+        when(productRepo.findByCode("0123456789")).thenReturn(Mono.just(product));
+        when(productRepo.updateColumns(eq("0123456789"), eq(2L), any(Instant.class), eq(Map.of("name", "renamed")))).thenReturn(Mono.just(1L));
+        when(productRepo.appendChange(ProductChangeDTO.Type.UPDATED, product)).thenReturn(Mono.empty());
+
+        StepVerifier.create(productService.patchProduct("0123456789", new ProductPatchDTO("renamed", new BigDecimal("10.00"), "opis", null, 2L)))
+                .assertNext(patched -> {
+                    assertThat(patched.getName()).isEqualTo("renamed");
+                    assertThat(patched.getVersion()).isEqualTo(3L);
+                })
+                .verifyComplete();
+        verifyNoInteractions(hnbCallerService);
+        verify(productRepo, never()).applyCategoryChange(anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void ReactiveProductService_patchProduct_errorsWhenProductWasChangedConcurrently() {
+        when(productRepo.findByCode("0123456789")).thenReturn(Mono.just(product));
+        when(productRepo.updateColumns(eq("0123456789"), eq(2L), any(Instant.class), anyMap())).thenReturn(Mono.just(0L));
+
+        StepVerifier.create(productService.patchProduct("0123456789", new ProductPatchDTO(null, null, "novi opis", null, null)))
+                .expectError(OptimisticLockingFailureException.class)
+                .verify();
+    }
+
+    @Test
+    public void ReactiveProductService_deleteProductByCode_errorsWhenProductIsMissing() {
+        when(productRepo.findByCode("missing")).thenReturn(Mono.empty());
+
+        StepVerifier.create(productService.deleteProductByCode("missing"))
+                .expectError(ProductNotFoundException.class)
+                .verify();
+        verify(productRepo, never()).deleteByCode("missing");
+    }
+
+    @Test
+    public void ReactiveProductService_deleteProductByCode_removesProductFromCategoryStats() {
+        when(productRepo.findByCode("0123456789")).thenReturn(Mono.just(product));
+        when(productRepo.deleteByCode("0123456789")).thenReturn(Mono.just(1L));
+        when(productRepo.applyCategoryChange(1L, -1, -1)).thenReturn(Mono.just(1L));
+        when(productRepo.appendChange(ProductChangeDTO.Type.DELETED, product)).thenReturn(Mono.empty());
+
+        StepVerifier.create(productService.deleteProductByCode("0123456789"))
+                .verifyComplete();
+        verify(productRepo).applyCategoryChange(1L, -1, -1);
+        verify(productRepo).appendChange(ProductChangeDTO.Type.DELETED, product);
+    }
+
+    @Test
+    public void ReactiveProductService_findAllAfter_returnsCursorOfLastProduct() {
+        when(productRepo.findNext(KeysetCursor.Sort.PRICE_EUR_ASC, null, 1)).thenReturn(Flux.just(product));
+
+        StepVerifier.create(productService.findAllAfter("", 1, "priceEur,asc"))
+                .assertNext(page -> {
+                    KeysetCursor next = KeysetCursor.decode(page.getNextCursor());
+                    assertThat(next.getProductId()).isEqualTo(1L);
+                    assertThat(next.getPriceEur()).isEqualByComparingTo("10");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void ReactiveProductService_findAllAfter_rejectsCursorOfAnotherSort() {
+        String cursor = new KeysetCursor(KeysetCursor.Sort.PRODUCT_ID, null, 1L).encode();
+
+        StepVerifier.create(productService.findAllAfter(cursor, 10, "priceEur,desc"))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        verifyNoInteractions(productRepo);
+    }
+}
@@ -0,0 +1,54 @@
+package hr.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Beans of the reactive stack, active with the "reactive" profile.
+ * <p>
+ * Tomcat is on the classpath for the blocking stack, so the Netty server is chosen explicitly here.
+ * The WebClient used for HNB has the same pool and timeout settings (http.client.*) as the blocking RestTemplate.
+ *
+ * @author Zoran Džoić
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("reactive")
+public class ReactiveConfig {
+
+	@Bean
+	public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+
+	@Bean
+	public WebClient hnbWebClient(WebClient.Builder builder,
+			@Value("${http.client.connect-timeout:2s}") Duration connectTimeout,
+			@Value("${http.client.read-timeout:5s}") Duration readTimeout,
+			@Value("${http.client.pool-timeout:1s}") Duration poolTimeout,
+			@Value("${http.client.keep-alive:30s}") Duration keepAlive,
+			@Value("${http.client.max-connections:20}") int maxConnections) {
+
+		ConnectionProvider connectionProvider = ConnectionProvider.builder("hnb")
+				.maxConnections(maxConnections)
+				.pendingAcquireTimeout(poolTimeout)
+				.maxIdleTime(keepAlive)
+				.build();
+
+		HttpClient httpClient = HttpClient.create(connectionProvider)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+				.responseTimeout(readTimeout);
+
+		return builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+	}
+}
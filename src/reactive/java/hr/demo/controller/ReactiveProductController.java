@@ -0,0 +1,263 @@
+package hr.demo.controller;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import hr.demo.dto.CursorPage;
+import hr.demo.dto.ProductChangePage;
+import hr.demo.dto.ProductCategoryDTO;
+import hr.demo.dto.ProductDTO;
+import hr.demo.dto.ProductPatchDTO;
+import hr.demo.dto.ProductPricesDTO;
+import hr.demo.exceptions.ProductNotFoundException;
+import hr.demo.model.ProductCategory;
+import hr.demo.service.ProductExportService;
+import hr.demo.service.ProductPriceCalculator;
+import hr.demo.service.ReactiveHnbCallerService;
+import hr.demo.service.ReactiveProductService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Valid;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive variant of {@link ProductController} serving the same endpoints, active with the "reactive" profile.
+ * <p>
+ * List results are returned as {@link Flux}: rows are read from R2DBC only as fast as the client consumes them.
+ * GET /products streams a JSON array, or one product per line when the client accepts application/x-ndjson.
+ * Conditional requests are answered as by {@link ProductController}: the page is a lazy Flux inside the response entity,
+ * so on 304 Not Modified it is never subscribed and no products are read.
+ *
+ * @author Zoran Džoić
+ */
+@RestController
+@Profile("reactive")
+@Validated
+@RequestMapping("/products")
+public class ReactiveProductController {
+
+    private final ReactiveProductService productService;
+
+    private final ObjectMapper objectMapper;
+
+    private final ReactiveHnbCallerService hnbCallerService;
+
+    private final ProductPriceCalculator productPriceCalculator;
+
+    public ReactiveProductController(ReactiveProductService productService, ObjectMapper objectMapper,
+                                     ReactiveHnbCallerService hnbCallerService, ProductPriceCalculator productPriceCalculator) {
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.hnbCallerService = hnbCallerService;
+        this.productPriceCalculator = productPriceCalculator;
+    }
+
+    @PostMapping("/add-product")
+    public Mono<ResponseEntity<ProductDTO>> createProduct(@RequestBody @Valid ProductDTO productDTO) {
+        return productService.createProduct(productDTO.getName(), productDTO.getPriceEUR(), productDTO.getDescription(), productDTO.getIsAvailable(), productDTO.getCategoryId())
+                .map(savedProduct -> new ResponseEntity<>(savedProduct, HttpStatus.CREATED));
+    }
+
+    /**
+     * Adds many products in one transaction, at most {@value ProductController#MAX_BULK_SIZE}.
+     */
+    @PostMapping("/add-products")
+    public Mono<ResponseEntity<List<ProductDTO>>> createProducts(@RequestBody List<@Valid ProductDTO> productDTOs) {
+        if (productDTOs.isEmpty() || productDTOs.size() > ProductController.MAX_BULK_SIZE) {
+            return Mono.error(new ResponseStatusException(BAD_REQUEST, "Between 1 and " + ProductController.MAX_BULK_SIZE + " products can be added at once"));
+        }
+        return productService.createProducts(productDTOs)
+                .collectList()
+                .map(savedProducts -> new ResponseEntity<>(savedProducts, HttpStatus.CREATED));
+    }
+
+    /**
+     * Returns a page of products, url: http://localhost:8089/products?page=0&size=20&sort=priceEur,desc
+     */
+    @GetMapping(produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public Mono<ResponseEntity<Flux<ProductDTO>>> findAllPaged(@RequestParam(defaultValue = "0") int page,
+                                                               @RequestParam(defaultValue = "20") int size,
+                                                               @RequestParam(defaultValue = "productId") String sort) {
+        Flux<ProductDTO> products = Flux.defer(() -> productService.findAll(Math.max(0, page), Math.max(1, Math.min(size, ProductController.MAX_PAGE_SIZE)), sort))
+                .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(BAD_REQUEST, e.getMessage()));
+        return productService.getLatestChange()
+                .map(latestChange -> ResponseEntity.ok()
+                        .eTag(ProductController.catalogETag(latestChange))
+                        .lastModified(latestChange.getChangedAt())
+                        .cacheControl(CacheControl.noCache())
+                        .body(products))
+                .defaultIfEmpty(ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(products));
+    }
+
+    /**
+     * Keyset paging, see {@link ProductController#findAllAfter(String, int, String)}.
+     */
+    @GetMapping(params = "cursor")
+    public Mono<CursorPage<ProductDTO>> findAllAfter(@RequestParam String cursor,
+                                                     @RequestParam(defaultValue = "20") int size,
+                                                     @RequestParam(defaultValue = "productId") String sort) {
+        return productService.findAllAfter(cursor, Math.max(1, Math.min(size, ProductController.MAX_PAGE_SIZE)), sort)
+                .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(BAD_REQUEST, e.getMessage()));
+    }
+
+    /**
+     * Change feed, see {@link ProductController#getChanges(long, int)}.
+     */
+    @GetMapping("/changes")
+    public Mono<ProductChangePage> getChanges(@RequestParam(defaultValue = "0") long since,
+                                              @RequestParam(defaultValue = "500") int limit) {
+        return productService.getChanges(Math.max(0, since), Math.max(1, Math.min(limit, ProductController.MAX_CHANGES_SIZE)));
+    }
+
+    /**
+     * Streams all products as NDJSON or CSV, url: http://localhost:8089/products/export?format=csv
+     */
+    @GetMapping("/export")
+    public ResponseEntity<Flux<String>> exportProducts(@RequestParam(defaultValue = "ndjson") String format) {
+        ProductExportService.Format exportFormat;
+        try {
+            exportFormat = ProductExportService.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage());
+        }
+
+        ObjectWriter jsonWriter = objectMapper.writerFor(ProductDTO.class);
+        Flux<String> body = exportFormat == ProductExportService.Format.CSV
+                ? productService.streamAll().map(ProductExportService::toCsvLine).startWith(ProductExportService.CSV_HEADER)
+                : productService.streamAll().handle((productDTO, sink) -> {
+                    try {
+                        sink.next(jsonWriter.writeValueAsString(productDTO) + '\n');
+                    } catch (JsonProcessingException e) {
+                        sink.error(e);
+                    }
+                });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=products." + exportFormat.getExtension())
+                .body(body);
+    }
+
+    @PostMapping("/add-product-category")
+    public Mono<ResponseEntity<ProductCategory>> addNewCategory(@RequestBody ProductCategory productCategory) {
+        return productService.createCategory(productCategory)
+                .map(savedCategory -> new ResponseEntity<>(savedCategory, HttpStatus.CREATED));
+    }
+
+    /**
+     * Product search, see {@link ProductController#search}.
+     */
+    @GetMapping(value = "/search", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public Flux<ProductDTO> search(@RequestParam String q,
+                                   @RequestParam(required = false) Boolean available,
+                                   @RequestParam(required = false) Long categoryId,
+                                   @RequestParam(required = false) BigDecimal minPrice,
+                                   @RequestParam(required = false) BigDecimal maxPrice,
+                                   @RequestParam(defaultValue = "0") int page,
+                                   @RequestParam(defaultValue = "20") int size) {
+        return Flux.defer(() -> productService.search(q, available, categoryId, minPrice, maxPrice, Math.max(0, page), Math.max(1, Math.min(size, ProductController.MAX_SEARCH_SIZE))))
+                .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(BAD_REQUEST, e.getMessage()));
+    }
+
+    @GetMapping("/categories")
+    public Flux<ProductCategoryDTO> findAllCategories() {
+        return productService.findAllCategories();
+    }
+
+    /**
+     * Products of one category, see {@link ProductController#findAllByCategory(Long, org.springframework.data.domain.Pageable)}.
+     */
+    @GetMapping(value = "/categories/{categoryId}/products", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public Flux<ProductDTO> findAllByCategory(@PathVariable("categoryId") Long categoryId,
+                                              @RequestParam(defaultValue = "0") int page,
+                                              @RequestParam(defaultValue = "20") int size,
+                                              @RequestParam(defaultValue = "productId") String sort) {
+        return productService.getCategory(categoryId)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(NOT_FOUND, ProductController.CATEGORY_WAS_NOT_FOUND)))
+                .flatMapMany(category -> productService.findAllByCategory(categoryId, Math.max(0, page), Math.max(1, Math.min(size, ProductController.MAX_PAGE_SIZE)), sort))
+                .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(BAD_REQUEST, e.getMessage()));
+    }
+
+    /**
+     * Product detail with its validators, see {@link ProductController#getProductDetail(String)}.
+     */
+    @GetMapping("/product/{code}")
+    public Mono<ResponseEntity<ProductDTO>> getProductDetail(@PathVariable("code") String code) {
+        return productService.getProductByCode(code)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(NOT_FOUND, ProductController.PRODUCT_WAS_NOT_FOUND)))
+                .map(product -> ProductController.productResponse(product).body(product));
+    }
+
+    /**
+     * Prices of a product in other currencies, see {@link ProductController#getProductPrices(String, List)}.
+     */
+    @GetMapping("/product/{code}/prices")
+    public Mono<ProductPricesDTO> getProductPrices(@PathVariable("code") String code,
+                                                   @RequestParam(required = false) List<String> currency) {
+        return productService.getProductByCode(code)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(NOT_FOUND, ProductController.PRODUCT_WAS_NOT_FOUND)))
+                .zipWith(hnbCallerService.currentExchangeRateTable(), (product, rates) -> productPriceCalculator.calculate(product, rates, currency))
+                .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(BAD_REQUEST, e.getMessage()));
+    }
+
+    @PutMapping("/update-product")
+    public Mono<ProductDTO> updateProduct(@RequestBody @Valid ProductDTO productDTO) {
+        return productService.updateProduct(productDTO.getCode(), productDTO.getName(), productDTO.getPriceEUR(), productDTO.getDescription(), productDTO.getIsAvailable(), productDTO.getVersion())
+                .onErrorMap(ProductNotFoundException.class, e -> new ResponseStatusException(NOT_FOUND, ProductController.PRODUCT_WAS_NOT_FOUND))
+                .onErrorMap(OptimisticLockingFailureException.class, e -> new ResponseStatusException(CONFLICT, ProductController.PRODUCT_WAS_CHANGED));
+    }
+
+    /**
+     * Partial update, see {@link ProductController#patchProduct(String, ProductPatchDTO)}.
+     */
+    @PatchMapping("/product/{code}")
+    public Mono<ProductDTO> patchProduct(@PathVariable("code") String code, @RequestBody @Valid ProductPatchDTO patch) {
+        return productService.patchProduct(code, patch)
+                .onErrorMap(ProductNotFoundException.class, e -> new ResponseStatusException(NOT_FOUND, ProductController.PRODUCT_WAS_NOT_FOUND))
+                .onErrorMap(OptimisticLockingFailureException.class, e -> new ResponseStatusException(CONFLICT, ProductController.PRODUCT_WAS_CHANGED));
+    }
+
+    @DeleteMapping("/delete-product/{code}")
+    public Mono<String> deleteProduct(@PathVariable String code) {
+        return productService.deleteProductByCode(code)
+                .thenReturn(ProductController.PRODUCT_DELETED_SUCCESSFULLY)
+                .onErrorMap(ProductNotFoundException.class, e -> new ResponseStatusException(NOT_FOUND, ProductController.PRODUCT_WAS_NOT_FOUND));
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<String> handleConstraintViolationException(ConstraintViolationException exception) {
+        String violationMessage = exception.getConstraintViolations().stream().map(ConstraintViolation::getMessage).distinct().collect(Collectors.joining(", "));
+        return ResponseEntity.status(BAD_REQUEST).body(violationMessage);
+    }
+}
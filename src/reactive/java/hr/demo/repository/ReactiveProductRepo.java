@@ -0,0 +1,504 @@
+package hr.demo.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import hr.demo.dto.ProductCategoryDTO;
+import hr.demo.dto.ProductChangeDTO;
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.Product;
+import hr.demo.model.ProductCategory;
+import hr.demo.utility.CategoryIds;
+import hr.demo.utility.KeysetCursor;
+import hr.demo.utility.ProductSearchQuery;
+import io.r2dbc.spi.Readable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to products over R2DBC, used by the reactive stack ("reactive" profile).
+ * <p>
+ * Works on the same tables as {@link ProductRepo}; rows are mapped to detached {@link Product} objects
+ * so the existing mapper can be reused. New ids are taken from the same sequence Hibernate allocates from,
+ * each nextval reserves a whole block of the pooled optimizer, so both stacks can write to the same database.
+ *
+ * @author Zoran Džoić
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveProductRepo {
+
+	/**
+	 * Products priced with another rate, as in ProductRepricingService.
+	 */
+	private static final String OUTDATED = "(usd_rate_date is null or usd_rate_date < :rateDate "
+			+ "or (usd_rate_date = :rateDate and (usd_rate is null or usd_rate <> :rate)))";
+
+	private static final String COLUMNS = "product_id, code, name, price_eur, price_usd, usd_rate_date, usd_rate, description, is_available, category_id, version, updated_at";
+
+	private static final String CATEGORY_OVERVIEW = "select c.category_id, c.category_name, s.product_count, s.available_count, s.min_price_eur, s.max_price_eur "
+			+ "from \"product-category\" c join product_category_stats s on s.category_id = c.category_id";
+
+	private final DatabaseClient databaseClient;
+
+	private final String nextProductId;
+
+	private final String nextCategoryId;
+
+	private final boolean fullText;
+
+	public ReactiveProductRepo(DatabaseClient databaseClient) {
+		this.databaseClient = databaseClient;
+		String database = databaseClient.getConnectionFactory().getMetadata().getName();
+		this.nextProductId = nextval(database, "ingemark-seq2");
+		this.nextCategoryId = nextval(database, "ingemark-seq");
+		this.fullText = database.contains("PostgreSQL");
+	}
+
+	public Mono<Product> findByCode(String code) {
+		return databaseClient.sql("select " + COLUMNS + " from product where code = :code")
+				.bind("code", code)
+				.map(ReactiveProductRepo::toProduct)
+				.one();
+	}
+
+	/**
+	 * Offset paging, the order is one of the whitelisted keyset sorts so no user input reaches the SQL text.
+	 *
+	 * @param sort order of the products
+	 * @param offset number of products to skip
+	 * @param limit page size
+	 * @return products of the page
+	 */
+	public Flux<Product> findAll(KeysetCursor.Sort sort, long offset, int limit) {
+		return databaseClient.sql("select " + COLUMNS + " from product order by " + orderBy(sort) + " limit :limit offset :offset")
+				.bind("limit", limit)
+				.bind("offset", offset)
+				.map(ReactiveProductRepo::toProduct)
+				.all();
+	}
+
+	/**
+	 * Keyset paging, see {@link ProductRepo#findNextById} and {@link ProductRepo#findNextByPriceAsc}.
+	 *
+	 * @param sort order of the products
+	 * @param after position of the last product of the previous page, null for the first page
+	 * @param limit page size
+	 * @return products following the given position
+	 */
+	public Flux<Product> findNext(KeysetCursor.Sort sort, KeysetCursor after, int limit) {
+		String where = "";
+		if (after != null) {
+			where = switch (sort) {
+				case PRODUCT_ID -> "where product_id > :lastId ";
+				case PRICE_EUR_ASC -> "where (price_eur, product_id) > (:lastPrice, :lastId) ";
+				case PRICE_EUR_DESC -> "where (price_eur, product_id) < (:lastPrice, :lastId) ";
+			};
+		}
+		DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("select " + COLUMNS + " from product " + where
+				+ "order by " + orderBy(sort) + " limit :limit")
+				.bind("limit", limit);
+		if (after != null) {
+			spec = spec.bind("lastId", after.getProductId());
+			if (sort != KeysetCursor.Sort.PRODUCT_ID) {
+				spec = spec.bind("lastPrice", after.getPriceEur());
+			}
+		}
+		return spec.map(ReactiveProductRepo::toProduct).all();
+	}
+
+	/**
+	 * Streams all products ordered by id. Rows are requested from the database as the subscriber consumes them.
+	 *
+	 * @return all products
+	 */
+	public Flux<Product> streamAll() {
+		return databaseClient.sql("select " + COLUMNS + " from product order by product_id")
+				.map(ReactiveProductRepo::toProduct)
+				.all();
+	}
+
+	public Mono<Product> insert(Product product) {
+		return databaseClient.sql(nextProductId)
+				.map(row -> row.get(0, Long.class))
+				.one()
+				.flatMap(productId -> {
+					product.setProductId(productId);
+					product.setVersion(0L);
+					product.setUpdatedAt(now());
+					return bindProduct(databaseClient.sql("insert into product (" + COLUMNS + ") values "
+							+ "(:productId, :code, :name, :priceEur, :priceUsd, :usdRateDate, :usdRate, :description, :isAvailable, :categoryId, 0, :updatedAt)"), product)
+							.bind("productId", productId)
+							.bind("code", product.getCode())
+							.bind("categoryId", product.getCategory().getId())
+							.then()
+							.thenReturn(product);
+				});
+	}
+
+	/**
+	 * Updates name, prices, rate date, description and availability of the product with the code of the given product,
+	 * if it still has the version of the given product, and increments the version. The time of the write is set on the product.
+	 *
+	 * @param product new state, with the version it was read with
+	 * @return number of updated rows, 0 if there is no product with that code and version
+	 */
+	public Mono<Long> update(Product product) {
+		product.setUpdatedAt(now());
+		return bindProduct(databaseClient.sql("update product set name = :name, price_eur = :priceEur, price_usd = :priceUsd, "
+				+ "usd_rate_date = :usdRateDate, usd_rate = :usdRate, description = :description, is_available = :isAvailable, version = version + 1, "
+				+ "updated_at = :updatedAt "
+				+ "where code = :code and version = :version"), product)
+				.bind("code", product.getCode())
+				.bind("version", product.getVersion())
+				.fetch()
+				.rowsUpdated();
+	}
+
+	/**
+	 * Writes only the given columns of the product with the given code, if it still has the given version,
+	 * and increments the version.
+	 *
+	 * @param code product code
+	 * @param version version the change is based on
+	 * @param updatedAt time of the write
+	 * @param columns new values by column name, the names are bound as parameters of the same name
+	 * @return number of updated rows, 0 if there is no product with that code and version
+	 */
+	public Mono<Long> updateColumns(String code, long version, Instant updatedAt, Map<String, Object> columns) {
+		StringBuilder sql = new StringBuilder("update product set ");
+		columns.keySet().forEach(column -> sql.append(column).append(" = :").append(column).append(", "));
+		sql.append("version = version + 1, updated_at = :updatedAt where code = :code and version = :version");
+		DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+				.bind("code", code)
+				.bind("version", version)
+				.bind("updatedAt", updatedAt.atOffset(ZoneOffset.UTC));
+		for (Map.Entry<String, Object> column : columns.entrySet()) {
+			spec = spec.bind(column.getKey(), column.getValue());
+		}
+		return spec.fetch().rowsUpdated();
+	}
+
+	/**
+	 * Products of one category, see {@link ProductRepo#findProductDTOsByCategoryId}.
+	 *
+	 * @param categoryId category id
+	 * @param sort order of the products
+	 * @param offset number of products to skip
+	 * @param limit page size
+	 * @return products of the page
+	 */
+	public Flux<Product> findByCategory(Long categoryId, KeysetCursor.Sort sort, long offset, int limit) {
+		return databaseClient.sql("select " + COLUMNS + " from product where category_id = :categoryId order by " + orderBy(sort)
+				+ " limit :limit offset :offset")
+				.bind("categoryId", categoryId)
+				.bind("limit", limit)
+				.bind("offset", offset)
+				.map(ReactiveProductRepo::toProduct)
+				.all();
+	}
+
+	/**
+	 * Product search, see {@link ProductSearchRepo}.
+	 *
+	 * @param query search words and filters
+	 * @param offset number of results to skip
+	 * @param limit page size
+	 * @return matching products, best match first on PostgreSQL
+	 */
+	public Flux<Product> search(ProductSearchQuery query, long offset, int limit) {
+		DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(query.toSql(COLUMNS, fullText));
+		for (Map.Entry<String, Object> parameter : query.parameters(fullText, offset, limit).entrySet()) {
+			spec = spec.bind(parameter.getKey(), parameter.getValue());
+		}
+		return spec.map(ReactiveProductRepo::toProduct).all();
+	}
+
+	/**
+	 * @return highest product id, empty for an empty catalog
+	 */
+	public Mono<Long> findMaxProductId() {
+		return databaseClient.sql("select max(product_id) from product")
+				.map(row -> Optional.ofNullable(row.get(0, Long.class)))
+				.one()
+				.flatMap(Mono::justOrEmpty);
+	}
+
+	/**
+	 * Upper product id of the next repricing chunk, see {@link hr.demo.service.ProductRepricingService}.
+	 *
+	 * @return highest id of the next {@code limit} products after {@code afterProductId}, empty after the last product
+	 */
+	public Mono<Long> findRepricingChunkEnd(long afterProductId, int limit) {
+		return databaseClient.sql("select max(product_id) from (select product_id from product where product_id > :afterProductId "
+				+ "order by product_id limit :limit) chunk")
+				.bind("afterProductId", afterProductId)
+				.bind("limit", limit)
+				.map(row -> Optional.ofNullable(row.get(0, Long.class)))
+				.one()
+				.flatMap(Mono::justOrEmpty);
+	}
+
+	/**
+	 * Recomputes the USD price of the products of a chunk that were priced with another rate and appends
+	 * their changes to the outbox, must run in a transaction.
+	 *
+	 * @return number of repriced products
+	 */
+	public Mono<Long> repriceChunk(long afterProductId, long lastProductId, BigDecimal rate, LocalDate rateDate) {
+		return databaseClient.sql("insert into product_change (product_code, change_type, product_version, changed_at) "
+				+ "select code, 'UPDATED', version + 1, :changedAt from product "
+				+ "where product_id > :afterProductId and product_id <= :lastProductId and price_eur is not null "
+				+ "and " + OUTDATED)
+				.bind("changedAt", LocalDateTime.now())
+				.bind("afterProductId", afterProductId)
+				.bind("lastProductId", lastProductId)
+				.bind("rate", rate)
+				.bind("rateDate", rateDate)
+				.then()
+				.then(databaseClient.sql("update product set price_usd = ceil(price_eur * :rate * 100) / 100, usd_rate_date = :rateDate, usd_rate = :rate, "
+				+ "version = version + 1, updated_at = current_timestamp "
+				+ "where product_id > :afterProductId and product_id <= :lastProductId and price_eur is not null "
+				+ "and " + OUTDATED)
+				.bind("rate", rate)
+				.bind("rateDate", rateDate)
+				.bind("afterProductId", afterProductId)
+				.bind("lastProductId", lastProductId)
+				.fetch()
+				.rowsUpdated());
+	}
+
+	public Mono<Long> deleteByCode(String code) {
+		return databaseClient.sql("delete from product where code = :code")
+				.bind("code", code)
+				.fetch()
+				.rowsUpdated();
+	}
+
+	/**
+	 * Appends a change of the product to the outbox, must run in the transaction of the write.
+	 *
+	 * @param type kind of the write
+	 * @param product written product, with the version it has after the write (before it, for deletions)
+	 */
+	public Mono<Void> appendChange(ProductChangeDTO.Type type, Product product) {
+		return databaseClient.sql(ProductChangeRepo.INSERT)
+				.bind("code", product.getCode())
+				.bind("type", type.name())
+				.bind("version", ProductChangeRepo.changeVersion(type, product.getVersion()))
+				.bind("changedAt", LocalDateTime.now())
+				.then();
+	}
+
+	/**
+	 * Changes after the given one with the current state of their products, see {@link ProductChangeRepo#findAfter}.
+	 */
+	public Mono<List<ProductChangeDTO>> findChangesAfter(long since, int limit) {
+		return databaseClient.sql(ProductChangeRepo.FIND_AFTER)
+				.bind("since", since)
+				.bind("limit", limit)
+				.map((Readable row) -> toProductChangeDTO(row))
+				.all()
+				.collectList();
+	}
+
+	/**
+	 * The newest change, see {@link ProductChangeRepo#findLatest}.
+	 *
+	 * @return the newest change without its product, empty if there is none
+	 */
+	public Mono<ProductChangeDTO> findLatestChange() {
+		return databaseClient.sql(ProductChangeRepo.FIND_LATEST)
+				.map((Readable row) -> toProductChangeDTO(row, null))
+				.one();
+	}
+
+	/**
+	 * Positions the next committed changes, must run in a transaction, see {@link ProductChangeRepo#assignPositions(int)}.
+	 *
+	 * @return number of positioned changes
+	 */
+	public Mono<Integer> assignPositions(int limit) {
+		return databaseClient.sql(ProductChangeRepo.LOCK_RELAY_POSITION)
+				.bind("relayName", ProductChangeRepo.FEED_POSITION)
+				.map(row -> row.get(0, Long.class))
+				.one()
+				.flatMap(position -> databaseClient.sql(ProductChangeRepo.FIND_UNPOSITIONED)
+						.bind("limit", limit)
+						.map(row -> row.get(0, Long.class))
+						.all()
+						.index()
+						.concatMap(change -> databaseClient.sql(ProductChangeRepo.ASSIGN_POSITION)
+								.bind("position", position + change.getT1() + 1)
+								.bind("changeId", change.getT2())
+								.then()
+								.thenReturn(change.getT1() + 1))
+						.last(0L)
+						.flatMap(positioned -> positioned == 0 ? Mono.just(0) : databaseClient.sql(ProductChangeRepo.SAVE_RELAY_POSITION)
+								.bind("lastPosition", position + positioned)
+								.bind("relayName", ProductChangeRepo.FEED_POSITION)
+								.then()
+								.thenReturn(positioned.intValue())));
+	}
+
+	/**
+	 * @return true if a committed change has no position yet, read without locking
+	 */
+	public Mono<Boolean> hasUnpositionedChanges() {
+		return databaseClient.sql(ProductChangeRepo.FIND_UNPOSITIONED)
+				.bind("limit", 1)
+				.map(row -> row.get(0, Long.class))
+				.all()
+				.hasElements();
+	}
+
+	/**
+	 * Inserts a category and its empty aggregates row, must run in a transaction.
+	 */
+	public Mono<ProductCategory> insertCategory(ProductCategory productCategory) {
+		return databaseClient.sql(nextCategoryId)
+				.map(row -> row.get(0, Long.class))
+				.one()
+				.flatMap(categoryId -> databaseClient.sql("insert into \"product-category\" (category_id, category_name) values (:categoryId, :categoryName)")
+						.bind("categoryId", categoryId)
+						.bind("categoryName", productCategory.getCategoryName())
+						.then()
+						.then(databaseClient.sql("insert into product_category_stats (category_id, product_count, available_count) values (:categoryId, 0, 0)")
+								.bind("categoryId", categoryId)
+								.then())
+						.thenReturn(new ProductCategory(categoryId, productCategory.getCategoryName())));
+	}
+
+	/**
+	 * Locks the aggregates row of the category and applies a product write to it, see
+	 * {@link ProductCategoryStatsRepo#applyChange}.
+	 *
+	 * @return number of updated rows, 0 if the category has no aggregates row
+	 */
+	public Mono<Long> applyCategoryChange(Long categoryId, long productDelta, long availableDelta) {
+		return databaseClient.sql(ProductCategoryStatsRepo.LOCK)
+				.bind("categoryId", categoryId)
+				.map(row -> row.get(0, Long.class))
+				.all()
+				.then(databaseClient.sql("update product_category_stats set product_count = product_count + :productDelta, "
+				+ "available_count = available_count + :availableDelta, "
+				+ "min_price_eur = (select min(price_eur) from product where category_id = :categoryId), "
+				+ "max_price_eur = (select max(price_eur) from product where category_id = :categoryId) "
+				+ "where category_id = :categoryId")
+				.bind("categoryId", categoryId)
+				.bind("productDelta", productDelta)
+				.bind("availableDelta", availableDelta)
+				.fetch()
+				.rowsUpdated());
+	}
+
+	/**
+	 * Categories with their aggregates, see {@link ProductCategoryStatsRepo#findAllCategoryDTOs}.
+	 */
+	public Flux<ProductCategoryDTO> findAllCategories() {
+		return databaseClient.sql(CATEGORY_OVERVIEW + " order by c.category_name, c.category_id")
+				.map(ReactiveProductRepo::toProductCategoryDTO)
+				.all();
+	}
+
+	public Mono<ProductCategoryDTO> findCategoryById(Long categoryId) {
+		return databaseClient.sql(CATEGORY_OVERVIEW + " where c.category_id = :categoryId")
+				.bind("categoryId", categoryId)
+				.map(ReactiveProductRepo::toProductCategoryDTO)
+				.one();
+	}
+
+	private static DatabaseClient.GenericExecuteSpec bindProduct(DatabaseClient.GenericExecuteSpec spec, Product product) {
+		spec = bindNullable(spec, "name", product.getName(), String.class);
+		spec = bindNullable(spec, "priceEur", product.getPriceEur(), BigDecimal.class);
+		spec = bindNullable(spec, "priceUsd", product.getPriceUsd(), BigDecimal.class);
+		spec = bindNullable(spec, "usdRateDate", product.getUsdRateDate(), LocalDate.class);
+		spec = bindNullable(spec, "usdRate", product.getUsdRate(), BigDecimal.class);
+		spec = bindNullable(spec, "description", product.getDescription(), String.class);
+		spec = spec.bind("updatedAt", product.getUpdatedAt().atOffset(ZoneOffset.UTC));
+		return bindNullable(spec, "isAvailable", product.getIsAvailable(), Boolean.class);
+	}
+
+	/**
+	 * Time of a write, in the microseconds the column stores, so the written product equals the one read back.
+	 */
+	public static Instant now() {
+		return Instant.now().truncatedTo(ChronoUnit.MICROS);
+	}
+
+	private static <T> DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec, String name, T value, Class<T> type) {
+		return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+	}
+
+	/**
+	 * Postgres has nextval(), the standard syntax is used for other databases (H2 in tests).
+	 */
+	private static String nextval(String database, String sequence) {
+		return database.contains("PostgreSQL") ? "select nextval('\"" + sequence + "\"')" : "select next value for \"" + sequence + "\"";
+	}
+
+	private static String orderBy(KeysetCursor.Sort sort) {
+		return switch (sort) {
+			case PRODUCT_ID -> "product_id asc";
+			case PRICE_EUR_ASC -> "price_eur asc, product_id asc";
+			case PRICE_EUR_DESC -> "price_eur desc, product_id desc";
+		};
+	}
+
+	private static ProductCategoryDTO toProductCategoryDTO(Readable row) {
+		return new ProductCategoryDTO(row.get("category_id", Long.class), row.get("category_name", String.class),
+				row.get("product_count", Long.class), row.get("available_count", Long.class),
+				row.get("min_price_eur", BigDecimal.class), row.get("max_price_eur", BigDecimal.class));
+	}
+
+	private static ProductChangeDTO toProductChangeDTO(Readable row) {
+		ProductDTO product = null;
+		if (row.get("code", String.class) != null) {
+			Long categoryId = row.get("category_id", Long.class);
+			product = new ProductDTO(row.get("code", String.class), row.get("name", String.class), row.get("price_eur", BigDecimal.class),
+					row.get("price_usd", BigDecimal.class), row.get("is_available", Boolean.class), row.get("description", String.class),
+					CategoryIds.of(categoryId), row.get("version", Long.class), toInstant(row.get("updated_at", OffsetDateTime.class)));
+		}
+		return toProductChangeDTO(row, product);
+	}
+
+	private static ProductChangeDTO toProductChangeDTO(Readable row, ProductDTO product) {
+		return new ProductChangeDTO(row.get("feed_position", Long.class), row.get("product_code", String.class),
+				ProductChangeDTO.Type.valueOf(row.get("change_type", String.class)), row.get("product_version", Long.class),
+				row.get("changed_at", LocalDateTime.class).atZone(ZoneId.systemDefault()).toInstant(), product);
+	}
+
+	private static Product toProduct(Readable row) {
+		Product product = new Product();
+		product.setProductId(row.get("product_id", Long.class));
+		product.setCode(row.get("code", String.class));
+		product.setName(row.get("name", String.class));
+		product.setPriceEur(row.get("price_eur", BigDecimal.class));
+		product.setPriceUsd(row.get("price_usd", BigDecimal.class));
+		product.setUsdRateDate(row.get("usd_rate_date", LocalDate.class));
+		product.setUsdRate(row.get("usd_rate", BigDecimal.class));
+		product.setDescription(row.get("description", String.class));
+		product.setIsAvailable(row.get("is_available", Boolean.class));
+		product.setCategory(new ProductCategory(row.get("category_id", Long.class)));
+		product.setVersion(row.get("version", Long.class));
+		product.setUpdatedAt(toInstant(row.get("updated_at", OffsetDateTime.class)));
+		return product;
+	}
+
+	private static Instant toInstant(OffsetDateTime dateTime) {
+		return dateTime == null ? null : dateTime.toInstant();
+	}
+}
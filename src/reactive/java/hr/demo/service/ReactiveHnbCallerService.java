@@ -0,0 +1,122 @@
+package hr.demo.service;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ExchangeRateTable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Non-blocking counterpart of {@link HnbCallerService} for the reactive stack ("reactive" profile).
+ * <p>
+ * Fetches the HNB rate list with WebClient and pushes it into {@link ExchangeRateProvider}, which stays the single
+ * holder of the current rates. Failed calls are retried with exponential backoff on I/O errors and 5xx responses;
+ * when all attempts fail the provider keeps its last good rate.
+ *
+ * @author Zoran Džoić
+ */
+@Service
+@Profile("reactive")
+public class ReactiveHnbCallerService {
+
+	Logger logger = LoggerFactory.getLogger(ReactiveHnbCallerService.class);
+
+	private final WebClient hnbWebClient;
+
+	private final ExchangeRateProvider exchangeRateProvider;
+
+	private final String url;
+
+	@Value("${hnb.reactive.refresh-on-startup:true}")
+	private boolean refreshOnStartup = true;
+
+	@Value("${resilience4j.retry.instances.hnb.max-attempts:3}")
+	private int maxAttempts = 3;
+
+	@Value("${resilience4j.retry.instances.hnb.wait-duration:500ms}")
+	private Duration retryBackoff = Duration.ofMillis(500);
+
+	public ReactiveHnbCallerService(WebClient hnbWebClient, ExchangeRateProvider exchangeRateProvider,
+			@Value("${hnb.api.url:https://api.hnb.hr/tecajn-eur/v3}") String url) {
+		this.hnbWebClient = hnbWebClient;
+		this.exchangeRateProvider = exchangeRateProvider;
+		this.url = url;
+	}
+
+	/**
+	 * Calls HNB once and emits the middle exchange rates of all currencies of the list.
+	 *
+	 * @return rate table of the current HNB list
+	 */
+	public Mono<ExchangeRateTable> getExchangeRateTable() {
+		return hnbWebClient.get()
+				.uri(url)
+				.retrieve()
+				.bodyToMono(String.class)
+				.flatMap(response -> Mono.fromCallable(() -> HnbCallerService.parseExchangeRateTable(response)))
+				.retryWhen(Retry.backoff(maxAttempts - 1L, retryBackoff).filter(ReactiveHnbCallerService::isRetryable));
+	}
+
+	/**
+	 * Calls HNB and emits the USD middle exchange rate.
+	 *
+	 * @return USD exchange rate snapshot
+	 */
+	public Mono<ExchangeRate> getUSDExchangeRate() {
+		return getExchangeRateTable().map(HnbCallerService::usdRate);
+	}
+
+	/**
+	 * Returns the rates held by {@link ExchangeRateProvider} and only calls HNB if nothing has been loaded yet.
+	 *
+	 * @return current rate table
+	 */
+	public Mono<ExchangeRateTable> currentExchangeRateTable() {
+		return Mono.justOrEmpty(exchangeRateProvider.getTableSnapshot())
+				.switchIfEmpty(Mono.defer(() -> getExchangeRateTable().doOnNext(exchangeRateProvider::update)));
+	}
+
+	/**
+	 * Returns the rate held by {@link ExchangeRateProvider} and only calls HNB if nothing has been loaded yet.
+	 *
+	 * @return current USD rate
+	 */
+	public Mono<ExchangeRate> currentUSDExchangeRate() {
+		return Mono.justOrEmpty(exchangeRateProvider.getSnapshot())
+				.switchIfEmpty(Mono.defer(() -> getExchangeRateTable().doOnNext(exchangeRateProvider::update).map(HnbCallerService::usdRate)));
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUp() {
+		if (refreshOnStartup) {
+			refresh();
+		}
+	}
+
+	/**
+	 * Fetches a fresh rate list in the background and swaps it into {@link ExchangeRateProvider}.
+	 */
+	@Scheduled(cron = "${hnb.reactive.refresh-cron:0 5 8 * * MON-FRI}", zone = "Europe/Zagreb")
+	public void refresh() {
+		getExchangeRateTable().subscribe(exchangeRateProvider::update,
+				e -> logger.warn("Refreshing exchange rates failed, keeping {}: {}", exchangeRateProvider.getTableSnapshot(), e.getMessage()));
+	}
+
+	private static boolean isRetryable(Throwable e) {
+		return e instanceof WebClientRequestException
+				|| (e instanceof WebClientResponseException response && response.getStatusCode().is5xxServerError());
+	}
+}
@@ -0,0 +1,116 @@
+package hr.demo.service;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import hr.demo.dto.ExchangeRate;
+import hr.demo.repository.ReactiveProductRepo;
+import jakarta.annotation.PreDestroy;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * USD repricing for the reactive stack ("reactive" profile), same chunks and rules as
+ * {@link ProductRepricingService}, without a thread of its own: chunks follow each other on the R2DBC
+ * connection and the pause between them is a timer. Every chunk is one transaction with its outbox changes.
+ *
+ * @author Zoran Džoić
+ */
+@Service
+@Profile("reactive")
+public class ReactiveProductRepricingService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReactiveProductRepricingService.class);
+
+	private final ReactiveProductRepo productRepo;
+
+	private final TransactionalOperator transactionalOperator;
+
+	private final ExchangeRateProvider exchangeRateProvider;
+
+	private final ProductRepricingProgress progress;
+
+	private volatile Disposable currentRun;
+
+	@Value("${product.repricing.chunk-size:1000}")
+	private int chunkSize = 1000;
+
+	@Value("${product.repricing.pause:100ms}")
+	private Duration pause = Duration.ofMillis(100);
+
+	public ReactiveProductRepricingService(ReactiveProductRepo productRepo, TransactionalOperator transactionalOperator,
+			ExchangeRateProvider exchangeRateProvider, ProductRepricingProgress progress) {
+		this.productRepo = productRepo;
+		this.transactionalOperator = transactionalOperator;
+		this.exchangeRateProvider = exchangeRateProvider;
+		this.progress = progress;
+	}
+
+	/**
+	 * Starts a run unless one is in progress; that run finishes with its rate and the products it did not
+	 * reprice for the newer rate are picked up by the next rate change or restart.
+	 */
+	@EventListener
+	public void onExchangeRateChanged(ExchangeRateChangedEvent event) {
+		logger.info("USD exchange rate changed to {}, repricing products", event.getCurrent());
+		currentRun = run().subscribe(
+				repriced -> logger.info("Repriced {} products", repriced),
+				e -> logger.error("Repricing failed, it continues with the next rate change or restart", e));
+	}
+
+	/**
+	 * Reprices every product whose USD price was computed with an older rate than the current one.
+	 *
+	 * @return number of repriced products, 0 if there is no rate or a run is already in progress
+	 */
+	public Mono<Long> run() {
+		ExchangeRate rate = exchangeRateProvider.getSnapshot();
+		if (rate == null || rate.getEffectiveDate() == null) {
+			return Mono.just(0L);
+		}
+		return productRepo.findMaxProductId()
+				.defaultIfEmpty(0L)
+				.flatMap(maxProductId -> progress.start(rate.getEffectiveDate(), maxProductId)
+						? repriceAll(rate).doFinally(signal -> progress.finish())
+						: Mono.just(0L));
+	}
+
+	/**
+	 * Chunks are read one after another: every chunk is expanded into the next one until the last product.
+	 */
+	private Mono<Long> repriceAll(ExchangeRate rate) {
+		return repriceChunkAfter(0, rate)
+				.expand(chunk -> chunk[1] > 0 && !pause.isZero()
+						? Mono.delay(pause).then(repriceChunkAfter(chunk[0], rate))
+						: repriceChunkAfter(chunk[0], rate))
+				.reduce(0L, (repriced, chunk) -> repriced + chunk[1]);
+	}
+
+	/**
+	 * @return last product id of the chunk and the number of repriced products, empty after the last product
+	 */
+	private Mono<long[]> repriceChunkAfter(long afterProductId, ExchangeRate rate) {
+		return productRepo.findRepricingChunkEnd(afterProductId, chunkSize)
+				.flatMap(chunkEnd -> productRepo.repriceChunk(afterProductId, chunkEnd, rate.getMiddleRate(), rate.getEffectiveDate())
+						.as(transactionalOperator::transactional)
+						.map(updated -> {
+							progress.chunkDone(chunkEnd, updated);
+							return new long[] { chunkEnd, updated };
+						}));
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		Disposable run = currentRun;
+		if (run != null) {
+			run.dispose();
+		}
+	}
+}
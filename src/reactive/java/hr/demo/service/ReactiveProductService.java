@@ -0,0 +1,81 @@
+package hr.demo.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import hr.demo.dto.CursorPage;
+import hr.demo.dto.ProductChangeDTO;
+import hr.demo.dto.ProductChangePage;
+import hr.demo.dto.ProductCategoryDTO;
+import hr.demo.dto.ProductDTO;
+import hr.demo.dto.ProductPatchDTO;
+import hr.demo.model.ProductCategory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link ProductService}, used by the reactive stack ("reactive" profile).
+ * List results are returned as {@link Flux} so they can be streamed to the client with backpressure.
+ *
+ * @author Zoran Džoić
+ */
+public interface ReactiveProductService {
+
+	Mono<ProductDTO> createProduct(String name, BigDecimal priceEur, String description, Boolean isAvailable, String categoryId);
+
+	Flux<ProductDTO> createProducts(List<ProductDTO> productDTOs);
+
+	Mono<ProductDTO> updateProduct(String code, String name, BigDecimal priceInEur, String description, Boolean isAvailable, Long version);
+
+	/**
+	 * Changes only the fields present in the patch, see {@link ProductService#patchProduct}.
+	 *
+	 * @param code code of the product to change
+	 * @param patch fields to change and optionally the version the change is based on
+	 * @return the product after the change, errors with {@link hr.demo.exceptions.ProductNotFoundException}
+	 *         if there is no such product and with {@link org.springframework.dao.OptimisticLockingFailureException}
+	 *         if the product has a different version
+	 */
+	Mono<ProductDTO> patchProduct(String code, ProductPatchDTO patch);
+
+	/**
+	 * @param code code of the product to delete
+	 * @return completes empty, or errors with {@link hr.demo.exceptions.ProductNotFoundException}
+	 */
+	Mono<Void> deleteProductByCode(String code);
+
+	/**
+	 * Reads the change feed, see {@link ProductService#getChanges}.
+	 */
+	Mono<ProductChangePage> getChanges(long since, int limit);
+
+	/**
+	 * The newest change, which versions the catalog, see {@link ProductService#getLatestChange}.
+	 */
+	Mono<ProductChangeDTO> getLatestChange();
+
+	Mono<ProductDTO> getProductByCode(String code);
+
+	Flux<ProductDTO> findAll(int page, int size, String sort);
+
+	Mono<CursorPage<ProductDTO>> findAllAfter(String cursor, int size, String sort);
+
+	Flux<ProductDTO> streamAll();
+
+	Mono<ProductCategory> createCategory(ProductCategory productCategory);
+
+	Flux<ProductCategoryDTO> findAllCategories();
+
+	/**
+	 * @param categoryId category id
+	 * @return the category with its aggregates, empty if there is no such category
+	 */
+	Mono<ProductCategoryDTO> getCategory(Long categoryId);
+
+	Flux<ProductDTO> findAllByCategory(Long categoryId, int page, int size, String sort);
+
+	/**
+	 * @throws IllegalArgumentException if the search text has no word to search for or the price range is empty
+	 */
+	Flux<ProductDTO> search(String text, Boolean isAvailable, Long categoryId, BigDecimal minPriceEur, BigDecimal maxPriceEur, int page, int size);
+}
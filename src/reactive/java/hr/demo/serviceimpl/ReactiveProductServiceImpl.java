@@ -0,0 +1,359 @@
+package hr.demo.serviceimpl;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import hr.demo.dto.CursorPage;
+import hr.demo.dto.ProductChangeDTO;
+import hr.demo.dto.ProductChangePage;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductCategoryDTO;
+import hr.demo.dto.ProductDTO;
+import hr.demo.dto.ProductPatchDTO;
+import hr.demo.exceptions.ProductNotFoundException;
+import hr.demo.model.Product;
+import hr.demo.model.ProductCategory;
+import hr.demo.repository.ReactiveProductRepo;
+import hr.demo.service.ExchangeRateProvider;
+import hr.demo.service.ProductCodeGenerator;
+import hr.demo.service.ProductPriceCalculator;
+import hr.demo.service.ReactiveHnbCallerService;
+import hr.demo.service.ReactiveProductService;
+import hr.demo.utility.KeysetCursor;
+import hr.demo.utility.ProductSearchQuery;
+import hr.demo.utility.ProductMapper;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Implementation of ReactiveProductService on R2DBC, active with the "reactive" profile.
+ * Behaves like {@link ProductServiceImpl}: same codes, same USD rounding, same keyset cursors.
+ * 
+ * @author Zoran Džoić
+ */
+@Service
+@Profile("reactive")
+public class ReactiveProductServiceImpl implements ReactiveProductService {
+
+	Logger logger = LoggerFactory.getLogger(ReactiveProductServiceImpl.class);
+
+	private static final int POSITION_BATCH_SIZE = 500;
+
+	private final ReactiveProductRepo productRepo;
+
+	private final ProductMapper productMapper;
+
+	private final ReactiveHnbCallerService hnbCallerService;
+
+	private final ProductCodeGenerator productCodeGenerator;
+
+	private final ExchangeRateProvider exchangeRateProvider;
+
+	private final TransactionalOperator transactionalOperator;
+
+	public ReactiveProductServiceImpl(ReactiveProductRepo productRepo, ProductMapper productMapper,
+			ReactiveHnbCallerService hnbCallerService, ProductCodeGenerator productCodeGenerator,
+			ExchangeRateProvider exchangeRateProvider, TransactionalOperator transactionalOperator) {
+		this.productRepo = productRepo;
+		this.productMapper = productMapper;
+		this.hnbCallerService = hnbCallerService;
+		this.productCodeGenerator = productCodeGenerator;
+		this.exchangeRateProvider = exchangeRateProvider;
+		this.transactionalOperator = transactionalOperator;
+	}
+
+	@Override
+	@Transactional
+	public Mono<ProductDTO> createProduct(String name, BigDecimal priceEur, String description, Boolean isAvailable, String categoryId) {
+		return hnbCallerService.currentUSDExchangeRate()
+				.flatMap(rate -> productRepo.insert(newProduct(name, priceEur, description, isAvailable, categoryId, rate)))
+				.flatMap(product -> applyCategoryChange(product.getCategory().getId(), 1, availableCount(product.getIsAvailable()))
+						.then(productRepo.appendChange(ProductChangeDTO.Type.CREATED, product))
+						.thenReturn(product))
+				.map(productMapper::map)
+				.doOnNext(saved -> logger.debug("Saved {}", saved));
+	}
+
+	/**
+	 * Creates many products in one transaction, resolving the exchange rate once.
+	 * Inserts are issued one after another over a single connection, category aggregates are updated
+	 * once per category after all inserts, followed by the outbox changes.
+	 */
+	@Override
+	@Transactional
+	public Flux<ProductDTO> createProducts(List<ProductDTO> productDTOs) {
+		return hnbCallerService.currentUSDExchangeRate()
+				.flatMapMany(rate -> Flux.fromIterable(productDTOs)
+						.concatMap(dto -> productRepo.insert(newProduct(dto.getName(), dto.getPriceEUR(), dto.getDescription(),
+								dto.getIsAvailable(), dto.getCategoryId(), rate))))
+				.collectList()
+				.flatMapMany(products -> {
+					// locked in id order, so two batches spanning the same categories do not deadlock
+					Map<Long, long[]> categoryChanges = new TreeMap<>();
+					for (Product product : products) {
+						long[] change = categoryChanges.computeIfAbsent(product.getCategory().getId(), categoryId -> new long[2]);
+						change[0]++;
+						change[1] += availableCount(product.getIsAvailable());
+					}
+					return Flux.fromIterable(categoryChanges.entrySet())
+							.concatMap(change -> applyCategoryChange(change.getKey(), change.getValue()[0], change.getValue()[1]))
+							.thenMany(Flux.fromIterable(products).concatMap(product -> productRepo.appendChange(ProductChangeDTO.Type.CREATED, product)))
+							.thenMany(Flux.fromIterable(products));
+				})
+				.map(productMapper::map);
+	}
+
+	@Override
+	@Transactional
+	public Mono<ProductDTO> updateProduct(String code, String name, BigDecimal priceInEur, String description, Boolean isAvailable, Long version) {
+		return productRepo.findByCode(code)
+				.switchIfEmpty(Mono.error(() -> new ProductNotFoundException(code)))
+				.flatMap(product -> {
+					if (version != null && !version.equals(product.getVersion())) {
+						return Mono.error(new OptimisticLockingFailureException("Product " + code + " has version " + product.getVersion() + ", not " + version));
+					}
+					long availableDelta = availableCount(isAvailable) - availableCount(product.getIsAvailable());
+					boolean priceChanged = product.getPriceEur().compareTo(priceInEur) != 0;
+					product.setName(name);
+					product.setDescription(description);
+					product.setIsAvailable(isAvailable);
+					Mono<Product> updated;
+					// as in ProductServiceImpl, an outdated USD price is recomputed instead of being written back
+					if (!priceChanged && !isUsdPriceOutdated(product)) {
+						updated = Mono.just(product);
+					} else {
+						product.setPriceEur(priceInEur);
+						updated = hnbCallerService.currentUSDExchangeRate()
+								.map(rate -> {
+									product.setPriceUsd(calculatePriceInUSD(priceInEur, rate.getMiddleRate()));
+									product.setUsdRateDate(rate.getEffectiveDate());
+									product.setUsdRate(rate.getMiddleRate());
+									return product;
+								});
+					}
+					return updated.flatMap(productRepo::update)
+							.flatMap(rows -> rows == 0 ? Mono.error(new OptimisticLockingFailureException("Product " + code + " was changed concurrently")) : Mono.just(rows))
+							.then(priceChanged || availableDelta != 0
+									? applyCategoryChange(product.getCategory().getId(), 0, availableDelta)
+									: Mono.empty())
+							.then(Mono.defer(() -> {
+								product.setVersion(product.getVersion() + 1);
+								return productRepo.appendChange(ProductChangeDTO.Type.UPDATED, product).thenReturn(product);
+							}));
+				})
+				.map(productMapper::map);
+	}
+
+	/**
+	 * Writes only the columns the patch changes, guarded by the version, see {@link hr.demo.serviceimpl.ProductServiceImpl#patchProduct}.
+	 */
+	@Override
+	@Transactional
+	public Mono<ProductDTO> patchProduct(String code, ProductPatchDTO patch) {
+		return productRepo.findByCode(code)
+				.switchIfEmpty(Mono.error(() -> new ProductNotFoundException(code)))
+				.flatMap(product -> {
+					if (patch.getVersion() != null && !patch.getVersion().equals(product.getVersion())) {
+						return Mono.error(new OptimisticLockingFailureException("Product " + code + " has version " + product.getVersion()
+								+ ", not " + patch.getVersion()));
+					}
+					Map<String, Object> columns = new LinkedHashMap<>();
+					if (patch.getName() != null && !patch.getName().equals(product.getName())) {
+						product.setName(patch.getName());
+						columns.put("name", patch.getName());
+					}
+					if (patch.getDescription() != null && !patch.getDescription().equals(product.getDescription())) {
+						product.setDescription(patch.getDescription());
+						columns.put("description", patch.getDescription());
+					}
+					long availableDelta = 0;
+					if (patch.getIsAvailable() != null && !patch.getIsAvailable().equals(product.getIsAvailable())) {
+						availableDelta = availableCount(patch.getIsAvailable()) - availableCount(product.getIsAvailable());
+						product.setIsAvailable(patch.getIsAvailable());
+						columns.put("is_available", patch.getIsAvailable());
+					}
+					boolean priceChanged = patch.getPriceEUR() != null
+							&& (product.getPriceEur() == null || product.getPriceEur().compareTo(patch.getPriceEUR()) != 0);
+					if (columns.isEmpty() && !priceChanged) {
+						return Mono.just(product);
+					}
+					long categoryAvailableDelta = availableDelta;
+					Mono<Map<String, Object>> changedColumns = !priceChanged ? Mono.just(columns)
+							: hnbCallerService.currentUSDExchangeRate().map(rate -> {
+								product.setPriceEur(patch.getPriceEUR());
+								product.setPriceUsd(calculatePriceInUSD(patch.getPriceEUR(), rate.getMiddleRate()));
+								product.setUsdRateDate(rate.getEffectiveDate());
+								product.setUsdRate(rate.getMiddleRate());
+								columns.put("price_eur", product.getPriceEur());
+								columns.put("price_usd", product.getPriceUsd());
+								columns.put("usd_rate_date", product.getUsdRateDate());
+								columns.put("usd_rate", product.getUsdRate());
+								return columns;
+							});
+					return changedColumns
+							.flatMap(changed -> {
+								product.setUpdatedAt(ReactiveProductRepo.now());
+								return productRepo.updateColumns(code, product.getVersion(), product.getUpdatedAt(), changed);
+							})
+							.flatMap(rows -> rows == 0 ? Mono.error(new OptimisticLockingFailureException("Product " + code + " was changed concurrently")) : Mono.just(rows))
+							.then(priceChanged || categoryAvailableDelta != 0
+									? applyCategoryChange(product.getCategory().getId(), 0, categoryAvailableDelta)
+									: Mono.empty())
+							.then(Mono.defer(() -> {
+								product.setVersion(product.getVersion() + 1);
+								return productRepo.appendChange(ProductChangeDTO.Type.UPDATED, product).thenReturn(product);
+							}));
+				})
+				.map(productMapper::map);
+	}
+
+	@Override
+	@Transactional
+	public Mono<Void> deleteProductByCode(String code) {
+		return productRepo.findByCode(code)
+				.switchIfEmpty(Mono.error(() -> new ProductNotFoundException(code)))
+				.flatMap(product -> productRepo.deleteByCode(code)
+						.then(applyCategoryChange(product.getCategory().getId(), -1, -availableCount(product.getIsAvailable())))
+						.then(productRepo.appendChange(ProductChangeDTO.Type.DELETED, product)))
+				.then();
+	}
+
+	@Override
+	public Mono<ProductChangePage> getChanges(long since, int limit) {
+		return assignPositions().then(productRepo.findChangesAfter(since, limit)).map(changes -> ProductChangePage.of(changes, since));
+	}
+
+	@Override
+	public Mono<ProductChangeDTO> getLatestChange() {
+		return assignPositions().then(productRepo.findLatestChange());
+	}
+
+	/**
+	 * Positions the changes committed since the last read, see {@link hr.demo.service.ProductChangeRelay#assignPositions()}.
+	 */
+	private Mono<Void> assignPositions() {
+		Mono<Integer> batch = productRepo.assignPositions(POSITION_BATCH_SIZE).as(transactionalOperator::transactional);
+		return productRepo.hasUnpositionedChanges()
+				.filter(Boolean::booleanValue)
+				.flatMapMany(pending -> batch.expand(positioned -> positioned == POSITION_BATCH_SIZE ? batch : Mono.empty()))
+				.then();
+	}
+
+	@Override
+	public Mono<ProductDTO> getProductByCode(String code) {
+		return productRepo.findByCode(code).map(productMapper::map);
+	}
+
+	@Override
+	public Flux<ProductDTO> findAll(int page, int size, String sort) {
+		return productRepo.findAll(KeysetCursor.Sort.of(sort), (long) page * size, size).map(productMapper::map);
+	}
+
+	@Override
+	public Mono<CursorPage<ProductDTO>> findAllAfter(String cursor, int size, String sort) {
+		KeysetCursor.Sort keysetSort;
+		KeysetCursor after;
+		try {
+			keysetSort = KeysetCursor.Sort.of(sort);
+			after = cursor == null || cursor.isEmpty() ? null : KeysetCursor.decode(cursor);
+		} catch (IllegalArgumentException e) {
+			return Mono.error(e);
+		}
+		if (after != null && after.getSort() != keysetSort) {
+			return Mono.error(new IllegalArgumentException("Cursor was issued for sort " + after.getSort().getValue()));
+		}
+
+		return productRepo.findNext(keysetSort, after, size)
+				.collectList()
+				.map(products -> {
+					String nextCursor = null;
+					if (products.size() == size) {
+						Product last = products.get(products.size() - 1);
+						nextCursor = new KeysetCursor(keysetSort, last.getPriceEur(), last.getProductId()).encode();
+					}
+					return new CursorPage<>(products.stream().map(productMapper::map).toList(), size, nextCursor);
+				});
+	}
+
+	@Override
+	public Flux<ProductDTO> streamAll() {
+		return productRepo.streamAll().map(productMapper::map);
+	}
+
+	@Override
+	@Transactional
+	public Mono<ProductCategory> createCategory(ProductCategory productCategory) {
+		return productRepo.insertCategory(productCategory);
+	}
+
+	@Override
+	public Flux<ProductCategoryDTO> findAllCategories() {
+		return productRepo.findAllCategories();
+	}
+
+	@Override
+	public Mono<ProductCategoryDTO> getCategory(Long categoryId) {
+		return productRepo.findCategoryById(categoryId);
+	}
+
+	@Override
+	public Flux<ProductDTO> findAllByCategory(Long categoryId, int page, int size, String sort) {
+		return productRepo.findByCategory(categoryId, KeysetCursor.Sort.of(sort), (long) page * size, size).map(productMapper::map);
+	}
+
+	@Override
+	public Flux<ProductDTO> search(String text, Boolean isAvailable, Long categoryId, BigDecimal minPriceEur, BigDecimal maxPriceEur, int page, int size) {
+		ProductSearchQuery query = ProductSearchQuery.of(text, isAvailable, categoryId, minPriceEur, maxPriceEur);
+		return productRepo.search(query, (long) page * size, size).map(productMapper::map);
+	}
+
+	private Mono<Long> applyCategoryChange(Long categoryId, long productDelta, long availableDelta) {
+		return productRepo.applyCategoryChange(categoryId, productDelta, availableDelta)
+				.doOnNext(updated -> {
+					if (updated == 0) {
+						logger.warn("Category {} has no aggregates row, its overview is not updated", categoryId);
+					}
+				});
+	}
+
+	private boolean isUsdPriceOutdated(Product product) {
+		ExchangeRate currentRate = exchangeRateProvider.getSnapshot();
+		return currentRate != null && currentRate.supersedes(product.getUsdRateDate(), product.getUsdRate());
+	}
+
+	private static long availableCount(Boolean isAvailable) {
+		return Boolean.TRUE.equals(isAvailable) ? 1 : 0;
+	}
+
+	/**
+	 * Same rounding as {@link ProductServiceImpl#calculatePriceInUSD(BigDecimal, BigDecimal)}.
+	 */
+	static BigDecimal calculatePriceInUSD(BigDecimal priceInEUR, BigDecimal dollarExchangeRate) {
+		return ProductPriceCalculator.convert(priceInEUR, dollarExchangeRate, ExchangeRate.USD);
+	}
+
+	private Product newProduct(String name, BigDecimal priceEur, String description, Boolean isAvailable, String categoryId, ExchangeRate rate) {
+		Product product = new Product();
+		product.setCode(productCodeGenerator.nextCode());
+		product.setName(name);
+		product.setPriceEur(priceEur);
+		product.setPriceUsd(calculatePriceInUSD(priceEur, rate.getMiddleRate()));
+		product.setUsdRateDate(rate.getEffectiveDate());
+		product.setUsdRate(rate.getMiddleRate());
+		product.setDescription(description);
+		product.setIsAvailable(isAvailable);
+		product.setCategory(new ProductCategory(Long.valueOf(categoryId)));
+		return product;
+	}
+}
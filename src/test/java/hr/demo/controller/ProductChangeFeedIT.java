@@ -0,0 +1,206 @@
+package hr.demo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductChangeDTO;
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.ProductCategory;
+import hr.demo.service.ExchangeRateProvider;
+import hr.demo.service.ProductChangeRelay;
+import hr.demo.service.ProductChangeSink;
+import hr.demo.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Product writes against an embedded H2 database, read back from the change feed and from the sink of the relay.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-change-feed;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "hnb.exchange-rate.refresh-on-startup=false",
+        "hnb.exchange-rate.refresh-cron=-",
+        "product.changes.relay.interval=PT1H"
+})
+@AutoConfigureMockMvc
+class ProductChangeFeedIT {
+
+    @TestConfiguration
+    static class InMemorySinkConfig {
+
+        @Bean
+        InMemoryProductChangeSink inMemoryProductChangeSink() {
+            return new InMemoryProductChangeSink();
+        }
+    }
+
+    /**
+     * Stand-in for a real sink, keeps everything published in memory.
+     */
+    static class InMemoryProductChangeSink implements ProductChangeSink {
+
+        private final List<ProductChangeDTO> published = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(List<ProductChangeDTO> changes) {
+            published.addAll(changes);
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ExchangeRateProvider exchangeRateProvider;
+
+    @Autowired
+    private ProductChangeRelay productChangeRelay;
+
+    @Autowired
+    private InMemoryProductChangeSink sink;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private String categoryId;
+
+    @BeforeEach
+    void setUp() {
+        exchangeRateProvider.update(new ExchangeRate("USD", new BigDecimal("1.0556"), LocalDate.now(), Instant.now()));
+        categoryId = String.valueOf(productService.createCategory(new ProductCategory(null, "changes")).getId());
+    }
+
+    @Test
+    void ProductController_getChanges_returnsWritesInOrderWithCurrentState() throws Exception {
+        long since = latestChangeId();
+
+        String code = productService.createProduct("product", BigDecimal.TEN, "opis", true, categoryId).getCode();
+        mockMvc.perform(patch("/products/product/" + code)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"renamed\"}"))
+                .andExpect(status().isOk());
+        String deleted = productService.createProduct("deleted", BigDecimal.ONE, "opis", true, categoryId).getCode();
+        mockMvc.perform(delete("/products/delete-product/" + deleted)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/products/changes?since=" + since))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes.length()").value(4))
+                .andExpect(jsonPath("$.changes[0].type").value("CREATED"))
+                .andExpect(jsonPath("$.changes[0].version").value(0))
+                .andExpect(jsonPath("$.changes[0].product.name").value("renamed"))
+                .andExpect(jsonPath("$.changes[1].type").value("UPDATED"))
+                .andExpect(jsonPath("$.changes[1].version").value(1))
+                .andExpect(jsonPath("$.changes[2].code").value(deleted))
+                .andExpect(jsonPath("$.changes[3].type").value("DELETED"))
+                .andExpect(jsonPath("$.changes[3].version").value(1))
+                .andExpect(jsonPath("$.changes[3].product").doesNotExist());
+
+        String page = mockMvc.perform(get("/products/changes?since=" + since + "&limit=3"))
+                .andExpect(jsonPath("$.changes.length()").value(3))
+                .andReturn().getResponse().getContentAsString();
+        long nextSince = objectMapper.readTree(page).get("nextSince").asLong();
+        mockMvc.perform(get("/products/changes?since=" + nextSince))
+                .andExpect(jsonPath("$.changes.length()").value(1))
+                .andExpect(jsonPath("$.changes[0].type").value("DELETED"));
+    }
+
+    @Test
+    void ProductChangeRelay_relay_publishesEveryChangeOnce() throws Exception {
+        productChangeRelay.relay();
+        int before = sink.published.size();
+
+        List<ProductDTO> created = List.of(
+                productService.createProduct("first", BigDecimal.TEN, "opis", true, categoryId),
+                productService.createProduct("second", BigDecimal.TEN, "opis", false, categoryId));
+
+        assertThat(productChangeRelay.relay()).isEqualTo(2);
+        assertThat(productChangeRelay.relay()).isZero();
+        assertThat(sink.published.subList(before, sink.published.size()))
+                .extracting(ProductChangeDTO::getCode)
+                .containsExactly(created.get(0).getCode(), created.get(1).getCode());
+        assertThat(productChangeRelay.getLagSeconds()).isZero();
+    }
+
+    @Test
+    void ProductChangeRelay_relay_publishesBulkImportThatCommitsAfterLaterSingleWrites() throws Exception {
+        productChangeRelay.relay();
+        int before = sink.published.size();
+        String bulkCategoryId = String.valueOf(productService.createCategory(new ProductCategory(null, "bulk")).getId());
+        List<ProductDTO> products = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            products.add(new ProductDTO("bulk_" + i, BigDecimal.TEN, "opis", true, bulkCategoryId));
+        }
+        CountDownLatch bulkWritten = new CountDownLatch(1);
+        CountDownLatch singlesRelayed = new CountDownLatch(1);
+
+        // the import has written all of its rows and changes but commits only after the single writes were relayed
+        CompletableFuture<List<ProductDTO>> bulk = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            try {
+                List<ProductDTO> created = productService.createProducts(products);
+                bulkWritten.countDown();
+                singlesRelayed.await(30, TimeUnit.SECONDS);
+                return created;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertThat(bulkWritten.await(30, TimeUnit.SECONDS)).isTrue();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            expected.add(productService.createProduct("single_" + i, BigDecimal.ONE, "opis", true, categoryId).getCode());
+        }
+        assertThat(productChangeRelay.relay()).isEqualTo(3);
+        singlesRelayed.countDown();
+        bulk.get(30, TimeUnit.SECONDS).forEach(product -> expected.add(product.getCode()));
+
+        while (productChangeRelay.relay() > 0) {
+        }
+
+        assertThat(sink.published.subList(before, sink.published.size()))
+                .extracting(ProductChangeDTO::getCode)
+                .containsExactlyElementsOf(expected);
+    }
+
+    private long latestChangeId() throws Exception {
+        long latest = 0;
+        String page;
+        do {
+            page = mockMvc.perform(get("/products/changes?since=" + latest + "&limit=" + ProductController.MAX_CHANGES_SIZE))
+                    .andReturn().getResponse().getContentAsString();
+            latest = objectMapper.readTree(page).get("nextSince").asLong();
+        } while (objectMapper.readTree(page).get("changes").size() == ProductController.MAX_CHANGES_SIZE);
+        return latest;
+    }
+}
@@ -76,7 +76,7 @@ public class ProductControllerIT {
                 "promijenjen",
                 "1");
 
-        given(productService.updateProduct(productDTO.getCode(), productDTO.getName(), productDTO.getPriceEUR(), productDTO.getDescription(), productDTO.getIsAvailable()))
+        given(productService.updateProduct(productDTO.getCode(), productDTO.getName(), productDTO.getPriceEUR(), productDTO.getDescription(), productDTO.getIsAvailable(), productDTO.getVersion()))
                 .willReturn(updatedProduct);
 
         ResultActions response = mockMvc.perform(put("/products/update-product")
@@ -0,0 +1,155 @@
+package hr.demo.controller;
+
+import hr.demo.dto.ExchangeRate;
+import hr.demo.service.ExchangeRateProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fires many concurrent POST /products/add-product requests at the application on an embedded H2 database
+ * and logs throughput and latency, to compare the platform thread pool with the virtual thread mode
+ * and with the reactive stack:
+ * <pre>
+ * ./mvnw test -Dtest=ProductCreateLoadIT
+ * ./mvnw test -Dtest=ProductCreateLoadIT -Dapp.virtual-threads.enabled=true   (Java 21+)
+ * ./mvnw -Preactive test -Dtest=ProductCreateLoadIT -Dspring.profiles.active=reactive
+ * ./mvnw test -Dtest=ProductCreateLoadIT -Dproduct.ingest.enabled=true   (queued with Prefer: respond-async, 202)
+ * </pre>
+ * The load can be changed with -Dload.requests and -Dload.concurrency.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-load;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.r2dbc.url=r2dbc:h2:mem:///product-load;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.flyway.url=jdbc:h2:mem:product-load;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.flyway.user=sa",
+        "spring.flyway.password=",
+        "hnb.reactive.refresh-on-startup=false",
+        "hnb.reactive.refresh-cron=-",
+        "hnb.exchange-rate.refresh-on-startup=false",
+        "hnb.exchange-rate.refresh-cron=-",
+        "logging.level.org.springframework.web=warn",
+        "logging.level.org.hibernate=warn"
+})
+class ProductCreateLoadIT {
+
+    private static final Logger logger = Logger.getLogger(ProductCreateLoadIT.class.getName());
+
+    private static final int REQUESTS = Integer.getInteger("load.requests", 2_000);
+
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 200);
+
+    private static final String PRODUCT = "{\"name\":\"load test\",\"priceEUR\":19.99,\"description\":\"load test\",\"isAvailable\":true,\"categoryId\":\"%s\"}";
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${app.virtual-threads.enabled}")
+    private boolean virtualThreads;
+
+    @Value("${product.ingest.enabled}")
+    private boolean ingest;
+
+    @Value("${spring.main.web-application-type:servlet}")
+    private String webApplicationType;
+
+    @Autowired
+    private ExchangeRateProvider exchangeRateProvider;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private String product;
+
+    @BeforeEach
+    void setUp() {
+        exchangeRateProvider.update(new ExchangeRate("USD", new BigDecimal("1.0556"), LocalDate.now(), Instant.now()));
+        Map<?, ?> category = restTemplate.postForObject("/products/add-product-category", Map.of("categoryName", "load test"), Map.class);
+        product = String.format(PRODUCT, category.get("id"));
+    }
+
+    @Test
+    void ProductController_createProduct_underConcurrentLoad() throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(5)).build();
+        URI uri = URI.create("http://localhost:" + port + "/products/add-product");
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        long[] latencies = new long[REQUESTS];
+        AtomicInteger next = new AtomicInteger();
+
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            workers.add(CompletableFuture.runAsync(() -> {
+                int request;
+                while ((request = next.getAndIncrement()) < REQUESTS) {
+                    long sent = System.nanoTime();
+                    int status = post(client, uri, product, ingest);
+                    latencies[request] = System.nanoTime() - sent;
+                    if (status == 201 || status == 202) {
+                        created.incrementAndGet();
+                    } else if (status == 503) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }, clients));
+        }
+        CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new)).join();
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+
+        Arrays.sort(latencies);
+        String mode = "reactive".equals(webApplicationType) ? "reactive"
+                : ingest ? "async ingest"
+                : virtualThreads && Runtime.version().feature() >= 21 ? "virtual threads" : "platform threads";
+        logger.info(String.format("%s, %d requests, %d concurrent: %.0f req/s, p50 %.1f ms, p99 %.1f ms, %d created, %d rejected (503)",
+                mode, REQUESTS, CONCURRENCY, REQUESTS / (elapsed / 1e9),
+                latencies[REQUESTS / 2] / 1e6, latencies[REQUESTS * 99 / 100] / 1e6, created.get(), rejected.get()));
+        assertThat(created.get() + rejected.get()).isEqualTo(REQUESTS);
+    }
+
+    private static int post(HttpClient client, URI uri, String product, boolean respondAsync) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json");
+        if (respondAsync) {
+            builder.header("Prefer", ProductController.RESPOND_ASYNC);
+        }
+        HttpRequest request = builder
+                .POST(HttpRequest.BodyPublishers.ofString(product))
+                .build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
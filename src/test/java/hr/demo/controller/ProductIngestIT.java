@@ -0,0 +1,123 @@
+package hr.demo.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.ProductCategory;
+import hr.demo.service.ExchangeRateProvider;
+import hr.demo.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asynchronous creates (product.ingest.enabled=true) against an embedded H2 database.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-ingest;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.cache.type=none",
+        "product.ingest.enabled=true",
+        "hnb.exchange-rate.refresh-on-startup=false",
+        "hnb.exchange-rate.refresh-cron=-"
+})
+@AutoConfigureMockMvc
+class ProductIngestIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ExchangeRateProvider exchangeRateProvider;
+
+    private String categoryId;
+
+    @BeforeEach
+    void setUp() {
+        exchangeRateProvider.update(new ExchangeRate("USD", new BigDecimal("1.0556"), LocalDate.now(), Instant.now()));
+        categoryId = String.valueOf(productService.createCategory(new ProductCategory(null, "ingest")).getId());
+    }
+
+    @Test
+    void ProductController_createProduct_queuesProductWithRespondAsyncAndReportsItCreated() throws Exception {
+        String location = mockMvc.perform(post("/products/add-product")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ProductDTO("queued", BigDecimal.TEN, "opis", true, categoryId))))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.state").value("ACCEPTED"))
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+        assertThat(location).contains("/products/ingest/");
+
+        JsonNode status = awaitWritten(location);
+
+        assertThat(status.path("state").asText()).isEqualTo("CREATED");
+        assertThat(status.path("product").path("priceUSD").decimalValue()).isEqualByComparingTo("10.56");
+        mockMvc.perform(get("/products/product/" + status.path("product").path("code").asText()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("queued"));
+    }
+
+    @Test
+    void ProductController_createProduct_reportsQueuedProductOfMissingCategoryFailed() throws Exception {
+        String location = mockMvc.perform(post("/products/add-product")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ProductDTO("orphan", BigDecimal.TEN, "opis", true, String.valueOf(Long.MAX_VALUE)))))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+        JsonNode status = awaitWritten(location);
+
+        assertThat(status.path("state").asText()).isEqualTo("FAILED");
+        assertThat(status.path("error").asText()).isEqualTo("VALIDATION");
+    }
+
+    @Test
+    void ProductController_createProduct_withoutPreferenceCreatesRightAway() throws Exception {
+        mockMvc.perform(post("/products/add-product")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ProductDTO("direct", BigDecimal.TEN, "opis", true, categoryId))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.code").exists());
+        mockMvc.perform(get("/products/ingest/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    private JsonNode awaitWritten(String location) throws Exception {
+        JsonNode status = null;
+        for (int i = 0; i < 100 && (status == null || "ACCEPTED".equals(status.path("state").asText())); i++) {
+            Thread.sleep(20);
+            String response = mockMvc.perform(get(location))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            status = objectMapper.readTree(response);
+        }
+        return status;
+    }
+}
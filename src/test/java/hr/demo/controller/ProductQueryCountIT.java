@@ -0,0 +1,363 @@
+package hr.demo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.ProductCategory;
+import hr.demo.service.ExchangeRateProvider;
+import hr.demo.service.ProductService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the SQL statements Hibernate prepares per request against an embedded H2 database,
+ * so that a change bringing back per-row category selects fails here.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-query-count;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.cache.type=none",
+        "hnb.exchange-rate.refresh-on-startup=false",
+        "hnb.exchange-rate.refresh-cron=-"
+})
+@AutoConfigureMockMvc
+class ProductQueryCountIT {
+
+    private static final int PRODUCTS = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ExchangeRateProvider exchangeRateProvider;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    private String code;
+
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        exchangeRateProvider.update(new ExchangeRate("USD", new BigDecimal("1.0556"), LocalDate.now(), Instant.now()));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            ProductCategory category = productService.createCategory(new ProductCategory(null, "category_" + i));
+            code = createProduct(String.valueOf(category.getId())).getCode();
+            categoryId = category.getId();
+        }
+    }
+
+    @Test
+    void ProductController_createProduct_insertsAndUpdatesCategoryStatsWithoutSelectingCategory() throws Exception {
+        ProductCategory category = productService.createCategory(new ProductCategory(null, "new"));
+
+        long statements = statements(post("/products/add-product")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new ProductDTO("product", BigDecimal.TEN, "opis", true, String.valueOf(category.getId()))))
+        );
+
+        // ids come from a block of the pooled sequence, so only the insert, the category stats row lock and its update are sent
+        assertThat(statements).isEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void ProductController_createProduct_answersMissingCategoryWithBadRequest() throws Exception {
+        mockMvc.perform(post("/products/add-product")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ProductDTO("orphan", BigDecimal.TEN, "opis", true, String.valueOf(Long.MAX_VALUE)))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.reason").value(ProductController.CATEGORY_DOES_NOT_EXIST))
+                .andExpect(jsonPath("$.developerMessage").value(ProductController.CATEGORY_DOES_NOT_EXIST));
+    }
+
+    @Test
+    void ProductController_findAllPaged_runsPageAndCountQueries() throws Exception {
+        // the catalog version is read over JDBC and not counted by Hibernate
+        assertThat(statements(get("/products?page=0&size=" + (PRODUCTS / 2) + "&sort=priceEur,desc"))).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void ProductController_findAllPaged_sendsFirstPagesFromEncodedPageCache() throws Exception {
+        String first = mockMvc.perform(get("/products?page=0&size=5&sort=priceEur,desc"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(statements(get("/products?page=0&size=5&sort=priceEur,desc"))).isZero();
+        String cached = mockMvc.perform(get("/products?page=0&size=5&sort=priceEur,desc"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.content.length()").value(5))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(cached).isEqualTo(first);
+
+        mockMvc.perform(patch("/products/product/" + code)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"renamed\"}"))
+                .andExpect(status().isOk());
+        // the write changed the catalog version, the page is read again
+        assertThat(statements(get("/products?page=0&size=5&sort=priceEur,desc"))).isEqualTo(2);
+    }
+
+    @Test
+    void ProductController_findAllPaged_answersCurrentETagWithNotModifiedWithoutReadingProducts() throws Exception {
+        String eTag = mockMvc.perform(get("/products?page=0&size=5"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).matches("\"c\\d+\"");
+
+        statistics.clear();
+        mockMvc.perform(get("/products?page=0&size=5").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        mockMvc.perform(patch("/products/product/" + code)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"renamed\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/products?page=0&size=5").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+    }
+
+    @Test
+    void ProductController_findAllPaged_changesETagWhenBulkImportCommitsAfterLaterWrite() throws Exception {
+        CountDownLatch eTagRead = new CountDownLatch(1);
+        CompletableFuture<?> bulk = openBulkImport(eTagRead);
+
+        // a later write commits while the import is still open, the client reads the page after it
+        createProduct(String.valueOf(categoryId));
+        String eTag = mockMvc.perform(get("/products?page=0&size=5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        eTagRead.countDown();
+        bulk.get(30, TimeUnit.SECONDS);
+
+        mockMvc.perform(get("/products?page=0&size=5").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+    }
+
+    @Test
+    void ProductController_findAllPaged_readsCachedPageAgainWhenBulkImportCommitsAfterLaterWrite() throws Exception {
+        CountDownLatch pageCached = new CountDownLatch(1);
+        CompletableFuture<?> bulk = openBulkImport(pageCached);
+
+        createProduct(String.valueOf(categoryId));
+        String cached = mockMvc.perform(get("/products?page=0&size=5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        pageCached.countDown();
+        bulk.get(30, TimeUnit.SECONDS);
+
+        String afterImport = mockMvc.perform(get("/products?page=0&size=5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(objectMapper.readTree(afterImport).get("totalElements").asLong())
+                .isEqualTo(objectMapper.readTree(cached).get("totalElements").asLong() + 60);
+    }
+
+    /**
+     * Starts a bulk import in another thread, returns once all of its products and changes are written and keeps
+     * its transaction open until {@code commit} is counted down.
+     */
+    private CompletableFuture<?> openBulkImport(CountDownLatch commit) throws Exception {
+        ProductCategory bulkCategory = productService.createCategory(new ProductCategory(null, "bulk"));
+        CountDownLatch bulkWritten = new CountDownLatch(1);
+        CompletableFuture<?> bulk = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            try {
+                productService.createProducts(products(60, String.valueOf(bulkCategory.getId())));
+                bulkWritten.countDown();
+                commit.await(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertThat(bulkWritten.await(30, TimeUnit.SECONDS)).isTrue();
+        return bulk;
+    }
+
+    @Test
+    void ProductController_findAllAfter_doesNotLoadCategories() throws Exception {
+        assertThat(statements(get("/products?cursor=&size=" + PRODUCTS))).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(PRODUCTS);
+        assertThat(statistics.getEntityFetchCount()).isZero();
+    }
+
+    @Test
+    void ProductController_findAllCategories_runsOneQuery() throws Exception {
+        assertThat(statements(get("/products/categories"))).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void ProductController_findAllByCategory_doesNotCountProducts() throws Exception {
+        // the first page is not full, so the total is known without reading the category stats
+        assertThat(statements(get("/products/categories/" + categoryId + "/products"))).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void ProductController_getProductDetail_runsOneQuery() throws Exception {
+        assertThat(statements(get("/products/product/" + code))).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void ProductController_getProductDetail_answersVersionETagWithNotModified() throws Exception {
+        mockMvc.perform(get("/products/product/" + code))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v0\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(jsonPath("$.updatedAt").exists());
+
+        mockMvc.perform(get("/products/product/" + code).header(HttpHeaders.IF_NONE_MATCH, "\"v0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(patch("/products/product/" + code)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"renamed\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/products/product/" + code).header(HttpHeaders.IF_NONE_MATCH, "\"v0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"v1\""));
+    }
+
+    @Test
+    void ProductController_getProductPrices_readsProductOnlyAndConvertsWithRatesInMemory() throws Exception {
+        exchangeRateProvider.update(new ExchangeRate("GBP", new BigDecimal("0.8681"), LocalDate.now(), Instant.now()));
+
+        assertThat(statements(get("/products/product/" + code + "/prices?currency=USD&currency=GBP"))).isEqualTo(1);
+        mockMvc.perform(get("/products/product/" + code + "/prices?currency=GBP"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.prices.GBP").value(8.69));
+        mockMvc.perform(get("/products/product/" + code + "/prices?currency=JPY"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void ProductController_updateProduct_rejectsUnknownCodeAndOutdatedVersion() throws Exception {
+        mockMvc.perform(put("/products/update-product")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ProductDTO("missing", "renamed", BigDecimal.TEN, null, true, "opis", String.valueOf(categoryId), null))))
+                .andExpect(status().isNotFound());
+
+        long version = objectMapper.readTree(mockMvc.perform(get("/products/product/" + code))
+                .andReturn().getResponse().getContentAsString()).path("version").asLong();
+        mockMvc.perform(put("/products/update-product")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ProductDTO(code, "stale", BigDecimal.TEN, null, true, "opis", String.valueOf(categoryId), version - 1))))
+                .andExpect(status().isConflict());
+        mockMvc.perform(put("/products/update-product")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ProductDTO(code, "product", BigDecimal.TEN, null, true, "opis", String.valueOf(categoryId), version))))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void ProductController_patchProduct_writesOnlyWhenSomethingChanged() throws Exception {
+        assertThat(statements(patch("/products/product/" + code)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"product\",\"priceEUR\":10.00}"))).isEqualTo(1);
+
+        assertThat(statements(patch("/products/product/" + code)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"renamed\",\"version\":0}"))).isEqualTo(2);
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(1);
+
+        mockMvc.perform(patch("/products/product/" + code)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"stale\",\"version\":0}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(get("/products/product/" + code))
+                .andExpect(jsonPath("$.name").value("renamed"))
+                .andExpect(jsonPath("$.version").value(1));
+    }
+
+    @Test
+    void ProductController_exportProducts_runsOneQuery() throws Exception {
+        assertThat(statements(get("/products/export?format=csv"))).isEqualTo(1);
+        assertThat(statistics.getEntityFetchCount()).isZero();
+    }
+
+    private long statements(RequestBuilder request) throws Exception {
+        statistics.clear();
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        } else {
+            assertThat(result.getResponse().getStatus()).isBetween(200, 299);
+        }
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static List<ProductDTO> products(int count, String categoryId) {
+        List<ProductDTO> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(new ProductDTO("bulk_" + i, BigDecimal.TEN, "opis", true, categoryId));
+        }
+        return products;
+    }
+
+    private ProductDTO createProduct(String categoryId) throws Exception {
+        String response = mockMvc.perform(post("/products/add-product")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ProductDTO("product", BigDecimal.TEN, "opis", true, categoryId))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, ProductDTO.class);
+    }
+}
@@ -0,0 +1,92 @@
+package hr.demo.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.ProductCategory;
+import hr.demo.service.ExchangeRateProvider;
+import hr.demo.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs GET /products/search against an embedded H2 database, where the LIKE fallback of
+ * {@link hr.demo.utility.ProductSearchQuery} is used; the filters are the same SQL on PostgreSQL.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-search;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "hnb.exchange-rate.refresh-on-startup=false",
+        "hnb.exchange-rate.refresh-cron=-"
+})
+@AutoConfigureMockMvc
+class ProductSearchIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ExchangeRateProvider exchangeRateProvider;
+
+    private String categoryId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        exchangeRateProvider.update(new ExchangeRate("USD", new BigDecimal("1.0556"), LocalDate.now(), Instant.now()));
+        categoryId = String.valueOf(productService.createCategory(new ProductCategory(null, "search")).getId());
+        String otherCategoryId = String.valueOf(productService.createCategory(new ProductCategory(null, "other")).getId());
+
+        productService.createProduct("crvena majica", new BigDecimal("15.00"), "pamuk", true, categoryId);
+        productService.createProduct("crvene cipele", new BigDecimal("60.00"), "koža", true, categoryId);
+        productService.createProduct("plava majica", new BigDecimal("12.00"), "crveni rub", false, categoryId);
+        productService.createProduct("crvena kapa", new BigDecimal("8.00"), "vuna", true, otherCategoryId);
+    }
+
+    @Test
+    void ProductController_search_matchesAllWordsAsPrefixesInNameOrDescription() throws Exception {
+        assertThat(search("q=CRVEN maj&categoryId=" + categoryId)).extracting(ProductDTO::getName)
+                .containsExactlyInAnyOrder("crvena majica", "plava majica");
+        // the middle of a word is no prefix
+        assertThat(search("q=ajica&categoryId=" + categoryId)).isEmpty();
+    }
+
+    @Test
+    void ProductController_search_appliesAvailabilityCategoryAndPriceFilters() throws Exception {
+        assertThat(search("q=crven&available=true&categoryId=" + categoryId + "&minPrice=10&maxPrice=20")).extracting(ProductDTO::getName)
+                .containsExactly("crvena majica");
+    }
+
+    @Test
+    void ProductController_search_rejectsTextWithoutWords() throws Exception {
+        mockMvc.perform(get("/products/search").param("q", "% *")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/products/search?q=crven&minPrice=20&maxPrice=10")).andExpect(status().isBadRequest());
+    }
+
+    private List<ProductDTO> search(String query) throws Exception {
+        String response = mockMvc.perform(get("/products/search?" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, new TypeReference<>() {});
+    }
+}
@@ -16,7 +16,6 @@ import static org.junit.jupiter.api.Assertions.*;
 @SpringBootTest
 public class ProductDTOTest {
 
-    @Autowired
     private ProductDTO productDTO;
 
     @Autowired
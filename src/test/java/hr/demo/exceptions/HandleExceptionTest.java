@@ -0,0 +1,50 @@
+package hr.demo.exceptions;
+
+import hr.demo.controller.ProductController;
+import hr.demo.utility.HttpResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HandleExceptionTest {
+
+    private final HandleException handleException = new HandleException(new SimpleMeterRegistry());
+
+    @Test
+    public void HandleException_handleDataIntegrityViolationException_answersMissingCategoryWithBadRequest() {
+        ResponseEntity<?> response = handleException.handleDataIntegrityViolationException(violation("23503",
+                "insert or update on table \"product\" violates foreign key constraint \"fk_product_category\""));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        HttpResponse body = (HttpResponse) response.getBody();
+        assertThat(body.getReason()).isEqualTo(ProductController.CATEGORY_DOES_NOT_EXIST);
+        assertThat(body.getDeveloperMessage()).doesNotContain("fk_product_category");
+    }
+
+    @Test
+    public void HandleException_handleDataIntegrityViolationException_answersTakenCodeWithConflict() {
+        ResponseEntity<?> response = handleException.handleDataIntegrityViolationException(violation("23505",
+                "duplicate key value violates unique constraint \"product_code_uidx\""));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(((HttpResponse) response.getBody()).getReason()).isEqualTo(ProductController.PRODUCT_ALREADY_EXISTS);
+    }
+
+    @Test
+    public void HandleException_handleDataIntegrityViolationException_answersOtherViolationsWithServerError() {
+        ResponseEntity<?> response = handleException.handleDataIntegrityViolationException(violation("23502",
+                "null value in column \"name\" violates not-null constraint"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private static DataIntegrityViolationException violation(String sqlState, String message) {
+        return new DataIntegrityViolationException("could not execute statement", new SQLException(message, sqlState));
+    }
+}
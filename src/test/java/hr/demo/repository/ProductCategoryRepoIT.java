@@ -0,0 +1,77 @@
+package hr.demo.repository;
+
+import hr.demo.model.ProductCategory;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Runs without a test transaction: the second-level cache is only filled when a transaction commits.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductCategoryRepoIT {
+
+    @Autowired
+    private ProductCategoryRepo productCategoryRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        productCategoryRepo.deleteAll();
+        SessionFactory sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+    }
+
+    @Test
+    void ProductCategoryRepo_findById_readsCategoryFromSecondLevelCache() {
+        Long id = save("cached").getId();
+        statistics.clear();
+
+        ProductCategory category = productCategoryRepo.findById(id).orElseThrow();
+
+        Assertions.assertThat(category.getCategoryName()).isEqualTo("cached");
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isZero();
+        Assertions.assertThat(statistics.getDomainDataRegionStatistics(ProductCategory.CACHE_REGION).getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void ProductCategoryRepo_findAll_isAnsweredFromQueryCacheUntilCategoryIsSaved() {
+        save("first");
+        productCategoryRepo.findAll();
+        statistics.clear();
+
+        List<ProductCategory> cached = productCategoryRepo.findAll();
+
+        Assertions.assertThat(cached).extracting(ProductCategory::getCategoryName).containsExactly("first");
+        Assertions.assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        save("second");
+        statistics.clear();
+
+        Assertions.assertThat(productCategoryRepo.findAll()).extracting(ProductCategory::getCategoryName).containsExactlyInAnyOrder("first", "second");
+        Assertions.assertThat(statistics.getQueryCacheMissCount()).isEqualTo(1);
+    }
+
+    private ProductCategory save(String name) {
+        return productCategoryRepo.save(new ProductCategory(null, name));
+    }
+}
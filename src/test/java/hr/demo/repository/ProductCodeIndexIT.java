@@ -0,0 +1,130 @@
+package hr.demo.repository;
+
+import hr.demo.service.ProductCodeGenerator;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Measures lookups by product code on a large product table before and after the V2 index migration.
+ * The table size can be changed with -Dbenchmark.rows, it defaults to 1 000 000 rows.
+ * <p>
+ * Runs on H2 in PostgreSQL mode, so the numbers only approximate PostgreSQL, whose planner, page cache and
+ * index implementation differ; there, compare EXPLAIN ANALYZE of the lookup before and after the migration.
+ */
+class ProductCodeIndexIT {
+
+    private static final Logger logger = Logger.getLogger(ProductCodeIndexIT.class.getName());
+
+    private static final String URL = "jdbc:h2:mem:product-index;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+
+    private static final int LOOKUPS = Integer.getInteger("benchmark.lookups", 200);
+
+    private Connection connection;
+
+    private final List<String> codes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection(URL, "sa", "");
+        migrateTo("1");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (PreparedStatement drop = connection.prepareStatement("drop all objects")) {
+            drop.execute();
+        }
+        connection.close();
+    }
+
+    @Test
+    void ProductCode_lookupByCode_isFasterAfterIndexMigration() throws SQLException {
+        seed();
+        long withoutIndex = averageLookupNanos();
+
+        migrateTo("2");
+        long withIndex = averageLookupNanos();
+
+        logger.info(String.format("findByCode on %d rows (H2): %.3f ms without index, %.3f ms with product_code_uidx",
+                ROWS, withoutIndex / 1_000_000.0, withIndex / 1_000_000.0));
+        assertThat(withIndex).isLessThan(withoutIndex);
+    }
+
+    @Test
+    void ProductCode_indexMigration_failsOnDuplicatedCodes() throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into product (product_id, code, name, is_available) values (1, 'DUPLICATE1', 'first', true), (2, 'DUPLICATE1', 'second', true)")) {
+            insert.execute();
+        }
+
+        assertThatThrownBy(() -> migrateTo("2"))
+                .isInstanceOf(FlywayException.class)
+                .hasMessageContaining("PRODUCT_CODE_DUPLICATED");
+    }
+
+    private void migrateTo(String version) {
+        Flyway.configure().dataSource(URL, "sa", "").target(version).load().migrate();
+    }
+
+    private void seed() throws SQLException {
+        ProductCodeGenerator codeGenerator = new ProductCodeGenerator(0);
+        Random random = new Random(42);
+        connection.setAutoCommit(false);
+        try (PreparedStatement category = connection.prepareStatement("insert into \"product-category\" (category_id, category_name) values (1, 'benchmark')");
+             PreparedStatement insert = connection.prepareStatement(
+                     "insert into product (product_id, code, name, price_eur, price_usd, description, is_available, category_id) values (?, ?, ?, ?, ?, ?, true, 1)")) {
+            category.execute();
+            for (int i = 1; i <= ROWS; i++) {
+                String code = codeGenerator.nextCode();
+                insert.setLong(1, i);
+                insert.setString(2, code);
+                insert.setString(3, "product_" + (i % 1000));
+                insert.setBigDecimal(4, BigDecimal.valueOf(random.nextInt(100_000), 2));
+                insert.setBigDecimal(5, BigDecimal.valueOf(random.nextInt(100_000), 2));
+                insert.setString(6, "benchmark product");
+                insert.addBatch();
+                if (i % 1000 == 0) {
+                    insert.executeBatch();
+                }
+                if (i % (ROWS / LOOKUPS) == 0) {
+                    codes.add(code);
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    private long averageLookupNanos() throws SQLException {
+        try (PreparedStatement lookup = connection.prepareStatement("select product_id, name, price_eur from product where code = ?")) {
+            long start = System.nanoTime();
+            for (String code : codes) {
+                lookup.setString(1, code);
+                try (ResultSet resultSet = lookup.executeQuery()) {
+                    assertThat(resultSet.next()).isTrue();
+                }
+            }
+            return (System.nanoTime() - start) / codes.size();
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package hr.demo.repository;
 
+import hr.demo.dto.ProductDTO;
 import hr.demo.model.Product;
+import hr.demo.model.ProductCategory;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,10 +14,15 @@ import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
 //@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
 class ProductRepoIT {
@@ -22,6 +32,12 @@ class ProductRepoIT {
     @Autowired
     private ProductRepo productRepo;
 
+    @Autowired
+    private ProductCategoryRepo productCategoryRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+
     @BeforeEach
     void setUp() {
         this.product = new Product();
@@ -71,4 +87,104 @@ class ProductRepoIT {
 
         Assertions.assertThat(isInside).isEqualTo(true);
     }
-}
\ No newline at end of file
+
+    @Test
+    void ProductRepo_findNextByPriceAsc_seeksPastLastPriceAndId() {
+        this.productRepo.saveAll(Arrays.asList(product("a", 10), product("b", 20), product("c", 20), product("d", 30)));
+        List<Product> firstPage = this.productRepo.findFirstByPriceAsc(PageRequest.of(0, 2));
+        Product last = firstPage.get(1);
+
+        List<Product> secondPage = this.productRepo.findNextByPriceAsc(last.getPriceEur(), last.getProductId(), PageRequest.of(0, 2));
+
+        Assertions.assertThat(firstPage).extracting(Product::getName).containsExactly("a", "b");
+        Assertions.assertThat(secondPage).extracting(Product::getName).containsExactly("c", "d");
+    }
+
+    @Test
+    void ProductRepo_findNextByPriceDesc_seeksPastLastPriceAndId() {
+        this.productRepo.saveAll(Arrays.asList(product("a", 10), product("b", 20), product("c", 20), product("d", 30)));
+        List<Product> firstPage = this.productRepo.findFirstByPriceDesc(PageRequest.of(0, 2));
+        Product last = firstPage.get(1);
+
+        List<Product> secondPage = this.productRepo.findNextByPriceDesc(last.getPriceEur(), last.getProductId(), PageRequest.of(0, 2));
+
+        Assertions.assertThat(firstPage).extracting(Product::getName).containsExactly("d", "c");
+        Assertions.assertThat(secondPage).extracting(Product::getName).containsExactly("b", "a");
+    }
+
+    @Test
+    void ProductRepo_findNextById_returnsProductsAfterGivenId() {
+        this.productRepo.saveAll(Arrays.asList(product("a", 10), product("b", 20), product("c", 30)));
+        Long firstId = this.productRepo.findNextById(0L, PageRequest.of(0, 1)).get(0).getProductId();
+
+        List<Product> nextPage = this.productRepo.findNextById(firstId, PageRequest.of(0, 5));
+
+        Assertions.assertThat(nextPage).extracting(Product::getName).containsExactly("b", "c");
+    }
+
+    @Test
+    void ProductRepo_findAllProductDTOs_selectsPageWithoutLoadingCategories() {
+        Page<Product> entities = savePerCategory(3);
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<ProductDTO> page = this.productRepo.findAllProductDTOs(PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "priceEur")));
+
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(3);
+        Assertions.assertThat(page.getContent()).extracting(ProductDTO::getName).containsExactly("c", "b");
+        Assertions.assertThat(page.getContent().get(0).getCategoryId()).isEqualTo(String.valueOf(entities.getContent().get(2).getCategory().getId()));
+        Assertions.assertThat(statistics.getEntityLoadCount()).isZero();
+        // page query and count query
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void ProductRepo_findAll_doesNotLoadCategories() {
+        savePerCategory(3);
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<Product> page = this.productRepo.findAll(PageRequest.of(0, 3));
+        page.forEach(product -> product.getCategory().getId());
+
+        Assertions.assertThat(statistics.getEntityLoadCount()).isEqualTo(3);
+        // page query and count query, categories stay uninitialized proxies
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void ProductRepo_findProductDTOByCode_returnsDtoOrNull() {
+        savePerCategory(1);
+
+        ProductDTO found = this.productRepo.findProductDTOByCode("code_a");
+
+        Assertions.assertThat(found.getName()).isEqualTo("a");
+        Assertions.assertThat(found.getPriceEUR()).isEqualByComparingTo("10");
+        Assertions.assertThat(this.productRepo.findProductDTOByCode("missing")).isNull();
+    }
+
+    /**
+     * Saves products a, b, c... priced 10, 20, 30... each in its own category, and clears the persistence context.
+     */
+    private Page<Product> savePerCategory(int count) {
+        for (int i = 0; i < count; i++) {
+            ProductCategory category = this.productCategoryRepo.save(new ProductCategory(null, "category_" + i));
+            Product product = product(String.valueOf((char) ('a' + i)), 10 * (i + 1));
+            product.setCode("code_" + product.getName());
+            product.setCategory(category);
+            this.productRepo.save(product);
+        }
+        this.entityManager.flush();
+        this.entityManager.clear();
+        Page<Product> products = this.productRepo.findAll(PageRequest.of(0, count, Sort.by("priceEur")));
+        this.entityManager.clear();
+        return products;
+    }
+
+    private Product product(String name, int priceEur) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPriceEur(BigDecimal.valueOf(priceEur));
+        return product;
+    }
+}
@@ -0,0 +1,99 @@
+package hr.demo.repository;
+
+import hr.demo.dto.ProductDTO;
+import hr.demo.utility.ProductSearchQuery;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the full-text product search against PostgreSQL in Docker, where the tsquery, its ranking and the GIN
+ * index of the V4 migration are used instead of the LIKE fallback that {@link hr.demo.controller.ProductSearchIT}
+ * covers on H2. Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ProductSearchPostgresIT {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static SingleConnectionDataSource dataSource;
+
+    private static NamedParameterJdbcTemplate jdbcTemplate;
+
+    private static ProductSearchRepo productSearchRepo;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        Flyway.configure().dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration", "classpath:db/vendor/postgresql").load().migrate();
+        // one connection, so the planner settings of a test apply to its EXPLAIN
+        dataSource = new SingleConnectionDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword(), true);
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        productSearchRepo = new ProductSearchRepo(jdbcTemplate, dataSource);
+
+        jdbcTemplate.getJdbcTemplate().update("insert into \"product-category\" (category_id, category_name) values (1, 'search')");
+        insertProduct(1, "plava majica", "vuna");
+        insertProduct(2, "crvena majica", "pamuk, majica kratkih rukava");
+        insertProduct(3, "crvene cipele", "koža");
+        insertProduct(4, "kapa", "crveni rub");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    void ProductSearchRepo_search_matchesAllWordsAsPrefixes() {
+        assertThat(search("CRVEN maj")).containsExactly("crvena majica");
+        assertThat(search("crven")).containsExactlyInAnyOrder("crvena majica", "crvene cipele", "kapa");
+        // the middle of a word is no prefix
+        assertThat(search("ajica")).isEmpty();
+    }
+
+    @Test
+    void ProductSearchRepo_search_ranksDenserMatchesFirst() {
+        // "crvena majica" has the word twice, "plava majica" once and a lower id
+        assertThat(search("majica")).containsExactly("crvena majica", "plava majica");
+    }
+
+    @Test
+    void ProductSearchRepo_search_usesGinIndex() {
+        ProductSearchQuery query = ProductSearchQuery.of("crven maj", null, null, null, null);
+        // the table is tiny, without this the planner reads it sequentially
+        jdbcTemplate.getJdbcTemplate().execute("set enable_seqscan = off");
+        try {
+            List<String> plan = jdbcTemplate.queryForList("explain " + query.toSql("code, name", true),
+                    query.parameters(true, 0, 20), String.class);
+
+            assertThat(String.join("\n", plan)).contains("product_search_idx");
+        } finally {
+            jdbcTemplate.getJdbcTemplate().execute("reset enable_seqscan");
+        }
+    }
+
+    private static List<String> search(String text) {
+        return productSearchRepo.search(ProductSearchQuery.of(text, null, null, null, null), 0, 20).stream()
+                .map(ProductDTO::getName).toList();
+    }
+
+    private static void insertProduct(long productId, String name, String description) {
+        jdbcTemplate.update("insert into product (product_id, code, name, price_eur, description, is_available, category_id) "
+                + "values (:productId, :code, :name, 10.00, :description, true, 1)",
+                Map.of("productId", productId, "code", "SEARCH" + productId, "name", name, "description", description));
+    }
+}
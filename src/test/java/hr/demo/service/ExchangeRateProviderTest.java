@@ -0,0 +1,96 @@
+package hr.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ExchangeRateTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExchangeRateProviderTest {
+
+    @Mock
+    private HnbCallerService hnbCallerService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private ExchangeRateProvider exchangeRateProvider;
+
+    private final ExchangeRate rate = new ExchangeRate("USD", new BigDecimal("1.0557"), LocalDate.of(2023, 10, 18), Instant.now());
+
+    private final ExchangeRate gbpRate = new ExchangeRate("GBP", new BigDecimal("0.8695"), LocalDate.of(2023, 10, 18), Instant.now());
+
+    @Test
+    public void ExchangeRateProvider_getUSDMiddleExchangeRate_callsHnbOnlyOnColdStart() throws JsonProcessingException {
+        when(hnbCallerService.getExchangeRateTable()).thenReturn(ExchangeRateTable.of(List.of(gbpRate, rate)));
+
+        exchangeRateProvider.getUSDMiddleExchangeRate();
+        BigDecimal middleRate = exchangeRateProvider.getUSDMiddleExchangeRate();
+
+        assertThat(middleRate).isEqualTo(new BigDecimal("1.0557"));
+        assertThat(exchangeRateProvider.getTableSnapshot().getRate("GBP")).isSameAs(gbpRate);
+        verify(hnbCallerService, times(1)).getExchangeRateTable();
+    }
+
+    @Test
+    public void ExchangeRateProvider_refresh_keepsLastRateWhenHnbFails() throws JsonProcessingException {
+        exchangeRateProvider.update(rate);
+        when(hnbCallerService.getExchangeRateTable()).thenThrow(new ResourceAccessException("timeout"));
+
+        exchangeRateProvider.refresh();
+
+        assertThat(exchangeRateProvider.getSnapshot()).isSameAs(rate);
+        assertThat(exchangeRateProvider.getEffectiveDate()).isEqualTo(LocalDate.of(2023, 10, 18));
+    }
+
+    @Test
+    public void ExchangeRateProvider_refresh_replacesSnapshot() throws JsonProcessingException {
+        ExchangeRate newRate = new ExchangeRate("USD", new BigDecimal("1.0601"), LocalDate.of(2023, 10, 19), Instant.now());
+        exchangeRateProvider.update(rate);
+        when(hnbCallerService.getExchangeRateTable()).thenReturn(ExchangeRateTable.of(List.of(gbpRate, newRate)));
+
+        exchangeRateProvider.refresh();
+
+        assertThat(exchangeRateProvider.getUSDMiddleExchangeRate()).isEqualTo(new BigDecimal("1.0601"));
+        assertThat(exchangeRateProvider.getTableSnapshot().getCurrencies()).containsExactly("GBP", "USD");
+    }
+
+    @Test
+    public void ExchangeRateProvider_update_publishesOnlyUsdChanges() {
+        exchangeRateProvider.update(ExchangeRateTable.of(List.of(gbpRate, rate)));
+        exchangeRateProvider.update(ExchangeRateTable.of(List.of(new ExchangeRate("GBP", new BigDecimal("0.8701"), LocalDate.of(2023, 10, 18), Instant.now()), rate)));
+
+        verify(eventPublisher, times(1)).publishEvent(any(ExchangeRateChangedEvent.class));
+        assertThat(exchangeRateProvider.getTableSnapshot().getRate("GBP").getMiddleRate()).isEqualTo(new BigDecimal("0.8701"));
+    }
+
+    @Test
+    public void ExchangeRateProvider_update_publishesOnlyChangedRates() {
+        ExchangeRate newRate = new ExchangeRate("USD", new BigDecimal("1.0601"), LocalDate.of(2023, 10, 19), Instant.now());
+
+        exchangeRateProvider.update(rate);
+        exchangeRateProvider.update(new ExchangeRate("USD", new BigDecimal("1.05570"), LocalDate.of(2023, 10, 18), Instant.now()));
+        exchangeRateProvider.update(newRate);
+
+        ArgumentCaptor<ExchangeRateChangedEvent> events = ArgumentCaptor.forClass(ExchangeRateChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues().get(0).getPrevious()).isNull();
+        assertThat(events.getAllValues().get(1).getCurrent()).isSameAs(newRate);
+    }
+}
@@ -16,8 +16,8 @@ class HnbCallerServiceIT {
     private HnbCallerService hnbCallerService;
 
     @Test
-    void HnbCallerService_testGetUSDMiddleExchangeRate_returnsExchangeRateGreaterThanZero() throws JsonProcessingException {
-        BigDecimal usdMiddleExchangeRate = hnbCallerService.getUSDMiddleExchangeRate();
+    void HnbCallerService_testGetExchangeRateTable_returnsUSDExchangeRateGreaterThanZero() throws JsonProcessingException {
+        BigDecimal usdMiddleExchangeRate = HnbCallerService.usdRate(hnbCallerService.getExchangeRateTable()).getMiddleRate();
 
         assertNotNull(usdMiddleExchangeRate);
         assertTrue(usdMiddleExchangeRate.compareTo(BigDecimal.ZERO) > 0);
@@ -0,0 +1,206 @@
+package hr.demo.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import hr.demo.config.Config;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ExchangeRateTable;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the HNB client against a local stub server to check timeouts, retries, the circuit breaker
+ * and the fallback to the last good rate, without touching the real HNB API.
+ */
+@SpringBootTest(classes = HnbCallerServiceStubServerTest.StubApplication.class, properties = {
+        "hnb.exchange-rate.refresh-on-startup=false",
+        "http.client.read-timeout=300ms",
+        "resilience4j.retry.instances.hnb.wait-duration=10ms",
+        "resilience4j.circuitbreaker.instances.hnb.minimum-number-of-calls=4",
+        "resilience4j.circuitbreaker.instances.hnb.sliding-window-size=4"
+})
+class HnbCallerServiceStubServerTest {
+
+    private static final String RATE_RESPONSE = "[{\"datum_primjene\":\"2023-10-02\",\"srednji_tecaj\":\"0,86810\",\"valuta\":\"GBP\"},"
+            + "{\"datum_primjene\":\"2023-10-02\",\"srednji_tecaj\":\"155,93\",\"valuta\":\"JPY\"},"
+            + "{\"datum_primjene\":\"2023-10-02\",\"srednji_tecaj\":\"1,0556\",\"valuta\":\"USD\"}]";
+
+    private static HttpServer server;
+
+    private static final Queue<Response> responses = new ConcurrentLinkedQueue<>();
+
+    private static final AtomicInteger requests = new AtomicInteger();
+
+    @Autowired
+    private HnbCallerService hnbCallerService;
+
+    @Autowired
+    private ExchangeRateProvider exchangeRateProvider;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/tecajn-eur/v3", HnbCallerServiceStubServerTest::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+    }
+
+    @DynamicPropertySource
+    static void hnbUrl(DynamicPropertyRegistry registry) {
+        registry.add("hnb.api.url", () -> "http://localhost:" + server.getAddress().getPort() + "/tecajn-eur/v3");
+    }
+
+    @BeforeEach
+    void reset() {
+        responses.clear();
+        requests.set(0);
+        circuitBreakerRegistry.circuitBreaker(HnbCallerService.RESILIENCE_NAME).reset();
+    }
+
+    @Test
+    public void HnbCallerService_getExchangeRateTable_parsesUSDRateAndEffectiveDate() throws Exception {
+        responses.add(new Response(200, RATE_RESPONSE, 0));
+
+        ExchangeRate rate = HnbCallerService.usdRate(hnbCallerService.getExchangeRateTable());
+
+        assertEquals(new BigDecimal("1.0556"), rate.getMiddleRate());
+        assertEquals(LocalDate.of(2023, 10, 2), rate.getEffectiveDate());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void HnbCallerService_getExchangeRateTable_readsAllCurrenciesInOneCall() throws Exception {
+        responses.add(new Response(200, RATE_RESPONSE, 0));
+
+        ExchangeRateTable table = hnbCallerService.getExchangeRateTable();
+
+        assertEquals(List.of("GBP", "JPY", "USD"), List.copyOf(table.getCurrencies()));
+        assertEquals(new BigDecimal("155.93"), table.getRate("JPY").getMiddleRate());
+        assertEquals(LocalDate.of(2023, 10, 2), table.getEffectiveDate());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void HnbCallerService_getExchangeRateTable_retriesServerErrors() throws Exception {
+        responses.add(new Response(503, "{}", 0));
+        responses.add(new Response(502, "{}", 0));
+        responses.add(new Response(200, RATE_RESPONSE, 0));
+
+        ExchangeRateTable table = hnbCallerService.getExchangeRateTable();
+
+        assertEquals(new BigDecimal("1.0556"), table.getRate("USD").getMiddleRate());
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void HnbCallerService_getExchangeRateTable_givesUpAfterReadTimeout() {
+        for (int i = 0; i < 3; i++) {
+            responses.add(new Response(200, RATE_RESPONSE, 1000));
+        }
+
+        long start = System.nanoTime();
+        assertThrows(ResourceAccessException.class, () -> hnbCallerService.getExchangeRateTable());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(3, requests.get());
+        assertTrue(elapsedMillis < 3000, "three attempts should be cut by the read timeout, took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    public void HnbCallerService_getExchangeRateTable_failsFastWhenCircuitIsOpen() {
+        for (int i = 0; i < 12; i++) {
+            responses.add(new Response(500, "{}", 0));
+        }
+        // every failed attempt is recorded, the circuit opens after 4 of them
+        for (int i = 0; i < 4; i++) {
+            assertThrows(Exception.class, () -> hnbCallerService.getExchangeRateTable());
+        }
+        int requestsBeforeOpen = requests.get();
+
+        assertThrows(CallNotPermittedException.class, () -> hnbCallerService.getExchangeRateTable());
+        assertEquals(requestsBeforeOpen, requests.get());
+    }
+
+    @Test
+    public void ExchangeRateProvider_refresh_keepsLastGoodRateWhenHnbIsDown() {
+        responses.add(new Response(200, RATE_RESPONSE, 0));
+        exchangeRateProvider.refresh();
+        ExchangeRate lastGood = exchangeRateProvider.getSnapshot();
+
+        for (int i = 0; i < 3; i++) {
+            responses.add(new Response(503, "{}", 0));
+        }
+        exchangeRateProvider.refresh();
+
+        assertSame(lastGood, exchangeRateProvider.getSnapshot());
+        assertEquals(new BigDecimal("1.0556"), exchangeRateProvider.getSnapshot().getMiddleRate());
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        Response response = responses.poll();
+        if (response == null) {
+            response = new Response(404, "{}", 0);
+        }
+        try {
+            Thread.sleep(response.delayMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        } catch (IOException e) {
+            // client already gave up (read timeout)
+        }
+        exchange.close();
+    }
+
+    private record Response(int status, String body, long delayMillis) {
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableAutoConfiguration(exclude = {DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class, FlywayAutoConfiguration.class})
+    @Import({Config.class, HnbCallerService.class, ExchangeRateProvider.class})
+    static class StubApplication {
+    }
+}
@@ -43,14 +43,14 @@ class HnbCallerServiceTest {
     @Test
     public void testGetUSDMiddleExchangeRate() throws JsonProcessingException {
 
-        String mockResponse = "[{\"srednji_tecaj\":\"1.5555\"}]";
+        String mockResponse = "[{\"srednji_tecaj\":\"0,8695\",\"valuta\":\"GBP\"},{\"srednji_tecaj\":\"1.5555\",\"valuta\":\"USD\"}]";
 
         server.expect(ExpectedCount.once(),
-                        requestTo("https://api.hnb.hr/tecajn-eur/v3?valuta=USD"))
+                        requestTo("https://api.hnb.hr/tecajn-eur/v3"))
                 .andExpect(method(GET))
                 .andRespond(withSuccess(mockResponse, MediaType.TEXT_PLAIN));
 
-        BigDecimal result = hnbCallerService.getUSDMiddleExchangeRate();
+        BigDecimal result = hnbCallerService.getExchangeRateTable().getRate("USD").getMiddleRate();
         assertEquals(new BigDecimal("1.5555"), result);
     }
 
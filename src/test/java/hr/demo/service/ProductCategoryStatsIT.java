@@ -0,0 +1,127 @@
+package hr.demo.service;
+
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductCategoryDTO;
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.ProductCategory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the category aggregates maintained on every product write match the aggregates recomputed
+ * from the products, against an embedded H2 database.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-category-stats;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.cache.type=none",
+        "hnb.exchange-rate.refresh-on-startup=false",
+        "hnb.exchange-rate.refresh-cron=-"
+})
+class ProductCategoryStatsIT {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ExchangeRateProvider exchangeRateProvider;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        exchangeRateProvider.update(new ExchangeRate("USD", new BigDecimal("1.0556"), LocalDate.now(), Instant.now()));
+        categoryId = productService.createCategory(new ProductCategory(null, "stats")).getId();
+    }
+
+    @Test
+    void ProductService_createCategory_startsWithEmptyAggregates() {
+        ProductCategoryDTO category = category();
+
+        assertThat(category.getCategoryName()).isEqualTo("stats");
+        assertThat(category.getProductCount()).isZero();
+        assertThat(category.getMinPriceEUR()).isNull();
+    }
+
+    @Test
+    void ProductService_productWrites_keepAggregatesEqualToRecomputedOnes() throws Exception {
+        ProductDTO cheapest = create("cheapest", "5.00", true);
+        create("middle", "10.00", false);
+        ProductDTO mostExpensive = create("most expensive", "20.00", true);
+        List<ProductDTO> batch = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            batch.add(new ProductDTO("batch " + i, new BigDecimal("12.00"), "opis", i % 2 == 0, String.valueOf(categoryId)));
+        }
+        productService.createProducts(batch);
+        assertAggregatesMatchProducts();
+
+        productService.updateProduct(mostExpensive.getCode(), "cheaper", new BigDecimal("8.00"), "opis", false, null);
+        assertAggregatesMatchProducts();
+
+        productService.deleteProductByCode(cheapest.getCode());
+        assertAggregatesMatchProducts();
+
+        ProductCategoryDTO category = category();
+        assertThat(category.getProductCount()).isEqualTo(5);
+        assertThat(category.getAvailableCount()).isEqualTo(2);
+        assertThat(category.getMinPriceEUR()).isEqualByComparingTo("8.00");
+        assertThat(category.getMaxPriceEUR()).isEqualByComparingTo("12.00");
+    }
+
+    @Test
+    void ProductService_findAllByCategory_returnsProductsOfCategoryWithTotalFromAggregates() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            create("product " + i, (i + 1) + ".00", true);
+        }
+        Long otherCategoryId = productService.createCategory(new ProductCategory(null, "other")).getId();
+        productService.createProduct("other", BigDecimal.ONE, "opis", true, String.valueOf(otherCategoryId));
+
+        Page<ProductDTO> page = productService.findAllByCategory(categoryId, PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "priceEur")));
+
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getContent()).extracting(ProductDTO::getName).containsExactly("product 2", "product 1");
+        assertThat(productService.findAllByCategory(Long.MAX_VALUE, PageRequest.of(0, 20))).isNull();
+    }
+
+    private ProductDTO create(String name, String priceEur, boolean isAvailable) throws Exception {
+        return productService.createProduct(name, new BigDecimal(priceEur), "opis", isAvailable, String.valueOf(categoryId));
+    }
+
+    private ProductCategoryDTO category() {
+        return productService.findAllCategories().stream()
+                .filter(category -> category.getId().equals(categoryId))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private void assertAggregatesMatchProducts() {
+        Object[] recomputed = entityManager.createQuery("select count(p), sum(case when p.isAvailable = true then 1 else 0 end), min(p.priceEur), max(p.priceEur) "
+                        + "from Product p where p.category.id = :categoryId", Object[].class)
+                .setParameter("categoryId", categoryId)
+                .getSingleResult();
+        ProductCategoryDTO category = category();
+
+        assertThat(category.getProductCount()).isEqualTo(((Number) recomputed[0]).longValue());
+        assertThat(category.getAvailableCount()).isEqualTo(((Number) recomputed[1]).longValue());
+        assertThat(category.getMinPriceEUR()).isEqualByComparingTo((BigDecimal) recomputed[2]);
+        assertThat(category.getMaxPriceEUR()).isEqualByComparingTo((BigDecimal) recomputed[3]);
+    }
+}
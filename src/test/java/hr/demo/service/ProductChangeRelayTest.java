@@ -0,0 +1,107 @@
+package hr.demo.service;
+
+import hr.demo.dto.ProductChangeDTO;
+import hr.demo.repository.ProductChangeRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductChangeRelayTest {
+
+    @Mock
+    private ProductChangeRepo productChangeRepo;
+
+    @Mock
+    private ObjectProvider<ProductChangeSink> sinkProvider;
+
+    @Mock
+    private ProductChangeSink sink;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private ProductChangeRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new ProductChangeRelay(productChangeRepo, sinkProvider, transactionTemplate);
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+    }
+
+    @Test
+    public void ProductChangeRelay_relay_publishesBatchesAndMovesPositionPastThem() throws IOException {
+        when(sinkProvider.getIfAvailable()).thenReturn(sink);
+        when(productChangeRepo.lockRelayPosition(ProductChangeRelay.RELAY_NAME)).thenReturn(0L, 2L, 3L);
+        when(productChangeRepo.findAfter(0L, 2)).thenReturn(List.of(change(1), change(2)));
+        when(productChangeRepo.findAfter(2L, 2)).thenReturn(List.of(change(3)));
+
+        assertThat(relay.relay()).isEqualTo(3);
+
+        verify(sink, times(2)).publish(anyList());
+        verify(productChangeRepo).saveRelayPosition(ProductChangeRelay.RELAY_NAME, 2L);
+        verify(productChangeRepo).saveRelayPosition(ProductChangeRelay.RELAY_NAME, 3L);
+        assertThat(relay.getPublishedChanges()).isEqualTo(3);
+        assertThat(relay.getLagSeconds()).isZero();
+    }
+
+    @Test
+    public void ProductChangeRelay_assignPositions_positionsInBatchesUntilNoneIsLeft() {
+        when(productChangeRepo.hasUnpositionedChanges()).thenReturn(true);
+        when(productChangeRepo.assignPositions(2)).thenReturn(2, 2, 1);
+
+        assertThat(relay.assignPositions()).isEqualTo(5);
+
+        verify(transactionTemplate, times(3)).execute(any());
+    }
+
+    @Test
+    public void ProductChangeRelay_assignPositions_takesNoLockWithoutUnpositionedChanges() {
+        assertThat(relay.assignPositions()).isZero();
+
+        verify(productChangeRepo, never()).assignPositions(anyInt());
+        verifyNoInteractions(transactionTemplate);
+    }
+
+    @Test
+    public void ProductChangeRelay_relay_keepsPositionWhenSinkFails() throws IOException {
+        when(sinkProvider.getIfAvailable()).thenReturn(sink);
+        when(productChangeRepo.lockRelayPosition(ProductChangeRelay.RELAY_NAME)).thenReturn(0L);
+        when(productChangeRepo.findAfter(0L, 2)).thenReturn(List.of(change(1)));
+        doThrow(new IOException("disk full")).when(sink).publish(anyList());
+        when(productChangeRepo.findOldestChangedAtAfter(0L)).thenReturn(Instant.now().minusSeconds(60));
+
+        assertThat(relay.relay()).isZero();
+
+        verify(productChangeRepo, never()).saveRelayPosition(anyString(), anyLong());
+        assertThat(relay.getLagSeconds()).isGreaterThanOrEqualTo(60);
+    }
+
+    @Test
+    public void ProductChangeRelay_relay_doesNothingWithoutSink() {
+        assertThat(relay.relay()).isZero();
+
+        verifyNoInteractions(productChangeRepo, transactionTemplate);
+    }
+
+    private static ProductChangeDTO change(long changeId) {
+        return new ProductChangeDTO(changeId, "0123456789", ProductChangeDTO.Type.UPDATED, changeId, Instant.now(), null);
+    }
+}
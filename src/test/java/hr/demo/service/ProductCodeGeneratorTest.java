@@ -0,0 +1,77 @@
+package hr.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProductCodeGeneratorTest {
+
+    @Test
+    public void ProductCodeGenerator_nextCode_returnsTenCharactersFromAlphabet() {
+        String code = new ProductCodeGenerator(0).nextCode();
+
+        assertThat(code).hasSize(10);
+        assertThat(code.chars().allMatch(c -> ProductCodeGenerator.ALPHABET.indexOf(c) >= 0)).isTrue();
+    }
+
+    @Test
+    public void ProductCodeGenerator_nextCode_isUniqueAcrossThreads() throws Exception {
+        ProductCodeGenerator generator = new ProductCodeGenerator(3);
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    codes.add(generator.nextCode());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(codes).hasSize(8 * 20_000);
+    }
+
+    @Test
+    public void ProductCodeGenerator_nextCode_keepsCountingWhenClockGoesBackwards() {
+        AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+        ProductCodeGenerator generator = new ProductCodeGenerator(0, clock::get);
+
+        String first = generator.nextCode();
+        clock.addAndGet(-10_000);
+        String second = generator.nextCode();
+
+        assertThat(second).isNotEqualTo(first);
+    }
+
+    @Test
+    public void ProductCodeGenerator_nextCode_differsBetweenNodesAtTheSameInstant() {
+        long now = 1_700_000_000_000L;
+
+        String node1 = new ProductCodeGenerator(1, () -> now).nextCode();
+        String node2 = new ProductCodeGenerator(2, () -> now).nextCode();
+
+        assertThat(node1).isNotEqualTo(node2);
+    }
+
+    @Test
+    public void ProductCodeGenerator_rejectsNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new ProductCodeGenerator(256));
+    }
+}
@@ -0,0 +1,78 @@
+package hr.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.demo.model.Product;
+import hr.demo.model.ProductCategory;
+import hr.demo.repository.ProductRepo;
+import hr.demo.utility.ProductMapperImpl;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductExportServiceTest {
+
+    @Mock
+    private ProductRepo productRepo;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private ProductExportService productExportService;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        productExportService = new ProductExportService(productRepo, new ProductMapperImpl(), new ObjectMapper());
+        ReflectionTestUtils.setField(productExportService, "entityManager", entityManager);
+
+        product = new Product(1L, "0123456789", "product_1", BigDecimal.valueOf(10), BigDecimal.valueOf(11), "opis, \"novi\"", true, new ProductCategory(1L), "1");
+    }
+
+    @Test
+    public void ProductExportService_export_writesOneJsonObjectPerLine() throws IOException {
+        when(productRepo.streamAll()).thenReturn(Stream.of(product, product));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long count = productExportService.export(ProductExportService.Format.NDJSON, outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(count).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"code\":\"0123456789\"");
+        verify(entityManager, times(2)).detach(product);
+    }
+
+    @Test
+    public void ProductExportService_export_writesCsvWithHeaderAndQuotedFields() throws IOException {
+        when(productRepo.streamAll()).thenReturn(Stream.of(product));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        productExportService.export(ProductExportService.Format.CSV, outputStream);
+
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "code,name,priceEUR,priceUSD,isAvailable,description,categoryId\n"
+                        + "0123456789,product_1,10,11,true,\"opis, \"\"novi\"\"\",1\n");
+    }
+
+    @Test
+    public void ProductExportService_formatOf_rejectsUnknownFormat() {
+        assertThat(ProductExportService.Format.of("CSV")).isEqualTo(ProductExportService.Format.CSV);
+        assertThatThrownBy(() -> ProductExportService.Format.of("xml")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
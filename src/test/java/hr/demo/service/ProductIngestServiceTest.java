@@ -0,0 +1,143 @@
+package hr.demo.service;
+
+import hr.demo.dto.ProductDTO;
+import hr.demo.dto.ProductIngestStatus;
+import hr.demo.exceptions.IngestQueueFullException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductIngestServiceTest {
+
+    @Mock
+    private ProductService productService;
+
+    private ProductIngestService productIngestService;
+
+    @BeforeEach
+    void setUp() {
+        // the worker thread is not started, batches are taken by the test
+        productIngestService = new ProductIngestService(productService, 3, 2, Duration.ZERO, Duration.ofMinutes(1), Duration.ZERO, Duration.ZERO);
+    }
+
+    @Test
+    public void ProductIngestService_writeNextBatch_writesQueuedCreatesInBatchesOfBatchSize() throws Exception {
+        when(productService.createProducts(anyList())).thenAnswer(invocation -> created(invocation.getArgument(0)));
+        ProductIngestStatus first = productIngestService.submit(product("first", "1"));
+        ProductIngestStatus second = productIngestService.submit(product("second", "1"));
+        ProductIngestStatus third = productIngestService.submit(product("third", "1"));
+
+        assertThat(productIngestService.writeNextBatch(Duration.ZERO)).isEqualTo(2);
+        assertThat(productIngestService.writeNextBatch(Duration.ZERO)).isEqualTo(1);
+        assertThat(productIngestService.writeNextBatch(Duration.ZERO)).isZero();
+
+        verify(productService, times(2)).createProducts(anyList());
+        assertThat(productIngestService.getStatus(first.getId()).getState()).isEqualTo(ProductIngestStatus.State.CREATED);
+        assertThat(productIngestService.getStatus(second.getId()).getProduct().getName()).isEqualTo("second");
+        assertThat(productIngestService.getStatus(third.getId()).getProduct().getCode()).isEqualTo("code-third");
+        assertThat(productIngestService.getBatchCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void ProductIngestService_writeNextBatch_writesFailedBatchOneByOneAndFailsOnlyTheInvalidCreate() throws Exception {
+        ProductDTO invalid = product("invalid", "999");
+        when(productService.createProducts(anyList())).thenAnswer(invocation -> {
+            List<ProductDTO> products = invocation.getArgument(0);
+            if (products.contains(invalid)) {
+                throw new DataIntegrityViolationException("category 999 does not exist", new SQLException("category 999 does not exist", "23506"));
+            }
+            return created(products);
+        });
+        ProductIngestStatus valid = productIngestService.submit(product("valid", "1"));
+        ProductIngestStatus failed = productIngestService.submit(invalid);
+
+        productIngestService.writeNextBatch(Duration.ZERO);
+
+        assertThat(productIngestService.getStatus(valid.getId()).getState()).isEqualTo(ProductIngestStatus.State.CREATED);
+        assertThat(productIngestService.getStatus(failed.getId()).getState()).isEqualTo(ProductIngestStatus.State.FAILED);
+        assertThat(productIngestService.getStatus(failed.getId()).getError()).isEqualTo(ProductIngestStatus.Failure.VALIDATION);
+        assertThat(productIngestService.getCreatedCount()).isEqualTo(1);
+        assertThat(productIngestService.getFailedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void ProductIngestService_writeNextBatch_reportsUnexpectedFailureWithoutItsMessage() throws Exception {
+        when(productService.createProducts(anyList())).thenThrow(new IllegalStateException("jdbc:postgresql://db:5432/demo is read only"));
+        ProductIngestStatus failed = productIngestService.submit(product("failed", "1"));
+
+        productIngestService.writeNextBatch(Duration.ZERO);
+
+        assertThat(productIngestService.getStatus(failed.getId()).getError()).isEqualTo(ProductIngestStatus.Failure.INTERNAL);
+        assertThat(productIngestService.getStatus(failed.getId()).toString()).doesNotContain("postgresql");
+    }
+
+    @Test
+    public void ProductIngestService_writeNextBatch_writesBatchAgainAfterTransientFailureWithoutFailingIt() throws Exception {
+        when(productService.createProducts(anyList()))
+                .thenThrow(new CannotCreateTransactionException("Could not open JPA EntityManager for transaction",
+                        new SQLTransientConnectionException("HikariPool-1 - Connection is not available, request timed out after 5000ms.")))
+                .thenAnswer(invocation -> created(invocation.getArgument(0)));
+        ProductIngestStatus first = productIngestService.submit(product("first", "1"));
+        ProductIngestStatus second = productIngestService.submit(product("second", "1"));
+
+        assertThat(productIngestService.writeNextBatch(Duration.ZERO)).isEqualTo(2);
+
+        verify(productService, times(2)).createProducts(argThat(products -> products.size() == 2));
+        assertThat(productIngestService.getStatus(first.getId()).getState()).isEqualTo(ProductIngestStatus.State.CREATED);
+        assertThat(productIngestService.getStatus(second.getId()).getState()).isEqualTo(ProductIngestStatus.State.CREATED);
+        assertThat(productIngestService.getCreatedCount()).isEqualTo(2);
+        assertThat(productIngestService.getFailedCount()).isZero();
+        assertThat(productIngestService.getRetryCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void ProductIngestService_isTransient_tellsOverloadFromInvalidCreates() {
+        assertThat(ProductIngestService.isTransient(BulkheadFullException.createBulkheadFullException(Bulkhead.ofDefaults("database")))).isTrue();
+        assertThat(ProductIngestService.isTransient(new CannotCreateTransactionException("no connection"))).isTrue();
+        assertThat(ProductIngestService.isTransient(new DataIntegrityViolationException("category 999 does not exist"))).isFalse();
+        assertThat(ProductIngestService.isTransient(new IllegalArgumentException("invalid"))).isFalse();
+    }
+
+    @Test
+    public void ProductIngestService_submit_rejectsCreateWhenQueueIsFull() {
+        for (int i = 0; i < 3; i++) {
+            productIngestService.submit(product("product_" + i, "1"));
+        }
+
+        assertThatThrownBy(() -> productIngestService.submit(product("too many", "1")))
+                .isInstanceOf(IngestQueueFullException.class);
+        assertThat(productIngestService.getQueueSize()).isEqualTo(3);
+        assertThat(productIngestService.getRejectedCount()).isEqualTo(1);
+        verifyNoInteractions(productService);
+    }
+
+    private static ProductDTO product(String name, String categoryId) {
+        return new ProductDTO(name, BigDecimal.TEN, "opis", true, categoryId);
+    }
+
+    private static List<ProductDTO> created(List<ProductDTO> products) {
+        return products.stream()
+                .map(product -> new ProductDTO("code-" + product.getName(), product.getName(), product.getPriceEUR(), new BigDecimal("10.56"), true, "opis", product.getCategoryId()))
+                .toList();
+    }
+}
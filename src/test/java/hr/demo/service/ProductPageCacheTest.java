@@ -0,0 +1,76 @@
+package hr.demo.service;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import hr.demo.dto.ProductDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductPageCacheTest {
+
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 20, Sort.by("priceEur"));
+
+    @Mock
+    private Supplier<Page<ProductDTO>> loader;
+
+    private ProductPageCache productPageCache;
+
+    @BeforeEach
+    void setUp() {
+        productPageCache = new ProductPageCache(JsonMapper.builder().findAndAddModules().build(), 3, 100, DataSize.ofMegabytes(1));
+    }
+
+    @Test
+    public void ProductPageCache_getPage_readsAndEncodesPageOncePerCatalogVersion() {
+        when(loader.get()).thenReturn(page("product"));
+
+        byte[] first = productPageCache.getPage(7L, FIRST_PAGE, loader);
+        byte[] second = productPageCache.getPage(7L, PageRequest.of(0, 20, Sort.by("priceEur")), loader);
+
+        assertThat(second).isSameAs(first);
+        assertThat(new String(first, StandardCharsets.UTF_8)).contains("\"name\":\"product\"");
+        verify(loader, times(1)).get();
+    }
+
+    @Test
+    public void ProductPageCache_getPage_readsPageAgainAndDropsOlderVersionsAfterWrite() {
+        when(loader.get()).thenReturn(page("product"), page("renamed"));
+
+        productPageCache.getPage(7L, FIRST_PAGE, loader);
+        byte[] afterWrite = productPageCache.getPage(8L, FIRST_PAGE, loader);
+
+        assertThat(new String(afterWrite, StandardCharsets.UTF_8)).contains("\"name\":\"renamed\"");
+        assertThat(productPageCache.getCache().estimatedSize()).isEqualTo(1);
+        verify(loader, times(2)).get();
+    }
+
+    @Test
+    public void ProductPageCache_isCached_onlyForFirstPagesOfLimitedSize() {
+        assertThat(productPageCache.isCached(FIRST_PAGE)).isTrue();
+        assertThat(productPageCache.isCached(PageRequest.of(2, 100))).isTrue();
+        assertThat(productPageCache.isCached(PageRequest.of(3, 20))).isFalse();
+        assertThat(productPageCache.isCached(PageRequest.of(0, 101))).isFalse();
+        assertThat(productPageCache.isCached(Pageable.unpaged())).isFalse();
+    }
+
+    private static Page<ProductDTO> page(String name) {
+        return new PageImpl<>(List.of(new ProductDTO("0123456789", name, BigDecimal.TEN, new BigDecimal("10.56"), true, "opis", "1")), FIRST_PAGE, 1);
+    }
+}
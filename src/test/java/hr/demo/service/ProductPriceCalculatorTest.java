@@ -0,0 +1,90 @@
+package hr.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ExchangeRateTable;
+import hr.demo.dto.ProductDTO;
+import hr.demo.dto.ProductPricesDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductPriceCalculatorTest {
+
+    private static final LocalDate RATE_DATE = LocalDate.of(2023, 10, 18);
+
+    private static final ExchangeRateTable RATES = ExchangeRateTable.of(List.of(
+            new ExchangeRate("GBP", new BigDecimal("0.86810"), RATE_DATE, Instant.now()),
+            new ExchangeRate("JPY", new BigDecimal("155.93"), RATE_DATE, Instant.now()),
+            new ExchangeRate("USD", new BigDecimal("1.0556"), RATE_DATE, Instant.now())));
+
+    @Mock
+    private ExchangeRateProvider exchangeRateProvider;
+
+    private ProductPriceCalculator productPriceCalculator;
+
+    private final ProductDTO product = new ProductDTO("0123456789", "product", new BigDecimal("10.99"), null, true, "opis", "1");
+
+    @BeforeEach
+    void setUp() {
+        productPriceCalculator = new ProductPriceCalculator(exchangeRateProvider, List.of("usd", " GBP", "JPY", "USD"));
+    }
+
+    @Test
+    public void ProductPriceCalculator_calculate_convertsToAllConfiguredCurrenciesFromRatesInMemory() throws JsonProcessingException {
+        when(exchangeRateProvider.getExchangeRateTable()).thenReturn(RATES);
+
+        ProductPricesDTO prices = productPriceCalculator.calculate(product, null);
+
+        assertThat(prices.getPrices()).containsExactly(
+                entry("USD", new BigDecimal("11.61")),
+                entry("GBP", new BigDecimal("9.55")),
+                entry("JPY", new BigDecimal("1714")));
+        assertThat(prices.getRateDate()).isEqualTo(RATE_DATE);
+        assertThat(prices.getPriceEUR()).isEqualTo(new BigDecimal("10.99"));
+    }
+
+    @Test
+    public void ProductPriceCalculator_calculate_roundsUpToTheNextCent() {
+        ProductDTO tenEuros = new ProductDTO("0123456789", "product", new BigDecimal("10.00"), null, true, "opis", "1");
+
+        ProductPricesDTO prices = productPriceCalculator.calculate(tenEuros, RATES, List.of("usd"));
+
+        assertThat(prices.getPrices()).containsExactly(entry("USD", new BigDecimal("10.56")));
+    }
+
+    @Test
+    public void ProductPriceCalculator_calculate_rejectsCurrencyThatIsNotConfigured() {
+        assertThatThrownBy(() -> productPriceCalculator.calculate(product, RATES, List.of("CHF")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("CHF");
+    }
+
+    @Test
+    public void ProductPriceCalculator_calculate_rejectsCurrencyMissingFromRateList() {
+        ExchangeRateTable usdOnly = ExchangeRateTable.of(List.of(new ExchangeRate("USD", new BigDecimal("1.0556"), RATE_DATE, Instant.now())));
+
+        assertThatThrownBy(() -> productPriceCalculator.calculate(product, usdOnly, List.of("GBP")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("GBP");
+    }
+
+    @Test
+    public void ProductPriceCalculator_new_rejectsUnknownCurrencyCode() {
+        assertThatThrownBy(() -> new ProductPriceCalculator(exchangeRateProvider, List.of("XYZW")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,150 @@
+package hr.demo.service;
+
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.ProductCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the USD repricing against an embedded H2 database, in chunks of 3 products.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-repricing;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "product.repricing.chunk-size=3",
+        "product.repricing.pause=0ms",
+        "hnb.exchange-rate.refresh-on-startup=false",
+        "hnb.exchange-rate.refresh-cron=-"
+})
+class ProductRepricingServiceIT {
+
+    private static final int PRODUCTS = 10;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepricingService productRepricingService;
+
+    @Autowired
+    private ProductRepricingProgress progress;
+
+    @Autowired
+    private ExchangeRateProvider exchangeRateProvider;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private LocalDate rateDate;
+
+    private List<String> codes;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        rateDate = LocalDate.of(2023, 10, 18).plusDays(jdbcTemplate.queryForObject("select count(*) from product", Long.class));
+        ExchangeRate rate = new ExchangeRate("USD", new BigDecimal("1.0556"), rateDate, Instant.now());
+        exchangeRateProvider.update(rate);
+        awaitRepriced(rate);
+
+        String categoryId = String.valueOf(productService.createCategory(new ProductCategory(null, "repricing")).getId());
+        List<ProductDTO> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new ProductDTO("product " + i, new BigDecimal(i + ".99"), "opis", true, categoryId));
+        }
+        codes = productService.createProducts(products).stream().map(ProductDTO::getCode).toList();
+    }
+
+    @Test
+    void ProductRepricingService_rateChange_repricesAllProductsInChunks() throws Exception {
+        // a product created before the rate date column existed
+        jdbcTemplate.update("update product set usd_rate_date = null where code = ?", codes.get(0));
+        productService.getProductByCode(codes.get(1));
+        long chunks = progress.getChunks();
+
+        LocalDate nextDate = rateDate.plusDays(1);
+        ExchangeRate nextRate = new ExchangeRate("USD", new BigDecimal("1.1003"), nextDate, Instant.now());
+        exchangeRateProvider.update(nextRate);
+        awaitRepriced(nextRate);
+
+        for (Map<String, Object> row : jdbcTemplate.queryForList("select price_eur, price_usd, usd_rate_date from product where code in ("
+                + String.join(",", codes.stream().map(code -> "'" + code + "'").toList()) + ")")) {
+            BigDecimal priceEur = (BigDecimal) row.get("price_eur");
+            assertThat((BigDecimal) row.get("price_usd")).isEqualByComparingTo(priceEur.multiply(new BigDecimal("1.1003")).setScale(2, RoundingMode.CEILING));
+            assertThat(row.get("usd_rate_date").toString()).isEqualTo(nextDate.toString());
+        }
+        assertThat(progress.getChunks() - chunks).isGreaterThanOrEqualTo(PRODUCTS / 3);
+        assertThat(progress.getCompletedRatio()).isEqualTo(1.0);
+        // cached product details are dropped after a run
+        assertThat(productService.getProductByCode(codes.get(1)).getPriceUSD())
+                .isEqualByComparingTo(new BigDecimal("1.99").multiply(new BigDecimal("1.1003")).setScale(2, RoundingMode.CEILING));
+    }
+
+    @Test
+    void ProductRepricingService_run_isIdempotent() {
+        ExchangeRate nextRate = new ExchangeRate("USD", new BigDecimal("1.0900"), rateDate.plusDays(1), Instant.now());
+        exchangeRateProvider.update(nextRate);
+        awaitRepriced(nextRate);
+
+        assertThat(productRepricingService.run()).isZero();
+    }
+
+    @Test
+    void ProductRepricingService_sameDayCorrection_repricesAllProducts() {
+        ExchangeRate correction = new ExchangeRate("USD", new BigDecimal("1.0612"), rateDate, Instant.now());
+        exchangeRateProvider.update(correction);
+        awaitRepriced(correction);
+
+        for (Map<String, Object> row : jdbcTemplate.queryForList("select price_eur, price_usd, usd_rate from product where code in ("
+                + String.join(",", codes.stream().map(code -> "'" + code + "'").toList()) + ")")) {
+            BigDecimal priceEur = (BigDecimal) row.get("price_eur");
+            assertThat((BigDecimal) row.get("price_usd")).isEqualByComparingTo(priceEur.multiply(new BigDecimal("1.0612")).setScale(2, RoundingMode.CEILING));
+            assertThat((BigDecimal) row.get("usd_rate")).isEqualByComparingTo("1.0612");
+        }
+        assertThat(productRepricingService.run()).isZero();
+    }
+
+    @Test
+    void ProductRepricingService_run_doesNotGoBackToOlderRate() {
+        jdbcTemplate.update("update product set usd_rate_date = ? where code = ?", rateDate.plusDays(5), codes.get(0));
+
+        assertThat(productRepricingService.run()).isZero();
+        assertThat(jdbcTemplate.queryForObject("select usd_rate_date from product where code = ?", LocalDate.class, codes.get(0)))
+                .isEqualTo(rateDate.plusDays(5));
+    }
+
+    /**
+     * Runs start asynchronously on the rate change event, waits until no product has another rate and the run is over.
+     */
+    private void awaitRepriced(ExchangeRate rate) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        try {
+            while ((outdatedProducts(rate) > 0 || progress.isRunning()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        assertThat(outdatedProducts(rate)).isZero();
+        assertThat(progress.isRunning()).isFalse();
+    }
+
+    private long outdatedProducts(ExchangeRate rate) {
+        return jdbcTemplate.queryForObject("select count(*) from product where " + ProductRepricingService.OUTDATED, Long.class,
+                rate.getEffectiveDate(), rate.getEffectiveDate(), rate.getMiddleRate());
+    }
+}
@@ -0,0 +1,129 @@
+package hr.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import hr.demo.dto.ProductDTO;
+import hr.demo.model.Product;
+import hr.demo.model.ProductCategory;
+import hr.demo.repository.ProductCategoryRepo;
+import hr.demo.repository.ProductCategoryStatsRepo;
+import hr.demo.repository.ProductRepo;
+import hr.demo.repository.ProductChangeRepo;
+import hr.demo.repository.ProductSearchRepo;
+import hr.demo.serviceimpl.ProductServiceImpl;
+import hr.demo.utility.ProductMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig
+class ProductServiceCachingTest {
+
+    @Configuration
+    @EnableCaching
+    @Import(ProductServiceImpl.class)
+    static class CachingConfig {
+        @Bean
+        CacheManager cacheManager() {
+            return new CaffeineCacheManager(ProductServiceImpl.PRODUCT_CACHE);
+        }
+    }
+
+    @MockBean
+    private ProductRepo productRepo;
+
+    @MockBean
+    private ProductCategoryRepo productCategoryRepo;
+
+    @MockBean
+    private ProductCategoryStatsRepo productCategoryStatsRepo;
+
+    @MockBean
+    private ProductSearchRepo productSearchRepo;
+
+    @MockBean
+    private ProductChangeRepo productChangeRepo;
+
+    @MockBean
+    private ProductChangeRelay productChangeRelay;
+
+    @MockBean
+    private ProductMapper productMapper;
+
+    @MockBean
+    private ExchangeRateProvider exchangeRateProvider;
+
+    @MockBean
+    private ProductCodeGenerator productCodeGenerator;
+
+    @MockBean
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(ProductServiceImpl.PRODUCT_CACHE).clear();
+        product = new Product(1L, "0123456789", "product_1", BigDecimal.TEN, BigDecimal.TEN, "opis", true, new ProductCategory(1L), "1");
+        when(productRepo.findByCode("0123456789")).thenReturn(product);
+        when(productRepo.findProductDTOByCode("0123456789")).thenAnswer(invocation -> new ProductDTO("0123456789", "product_1",
+                BigDecimal.TEN, BigDecimal.TEN, true, "opis", "1"));
+    }
+
+    @Test
+    public void ProductService_getProductByCode_readsDatabaseOnlyOnce() {
+        ProductDTO first = productService.getProductByCode("0123456789");
+        ProductDTO second = productService.getProductByCode("0123456789");
+
+        assertThat(second).isSameAs(first);
+        verify(productRepo, times(1)).findProductDTOByCode("0123456789");
+    }
+
+    @Test
+    public void ProductService_getProductByCode_doesNotCacheMissingProducts() {
+        assertThat(productService.getProductByCode("missing")).isNull();
+        assertThat(productService.getProductByCode("missing")).isNull();
+
+        verify(productRepo, times(2)).findProductDTOByCode("missing");
+    }
+
+    @Test
+    public void ProductService_updateProduct_evictsCachedProduct() throws JsonProcessingException {
+        when(productRepo.saveAndFlush(any(Product.class))).thenReturn(product);
+        productService.getProductByCode("0123456789");
+
+        productService.updateProduct("0123456789", "product_2", BigDecimal.TEN, "opis", true, null);
+        productService.getProductByCode("0123456789");
+
+        verify(productRepo, times(2)).findProductDTOByCode("0123456789");
+    }
+
+    @Test
+    public void ProductService_deleteProductByCode_evictsCachedProduct() {
+        productService.getProductByCode("0123456789");
+
+        productService.deleteProductByCode("0123456789");
+        productService.getProductByCode("0123456789");
+
+        verify(productRepo, times(2)).findProductDTOByCode("0123456789");
+    }
+}
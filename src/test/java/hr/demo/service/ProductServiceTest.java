@@ -1,29 +1,44 @@
 package hr.demo.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import hr.demo.dto.CursorPage;
+import hr.demo.dto.ExchangeRate;
+import hr.demo.dto.ProductChangeDTO;
 import hr.demo.dto.ProductDTO;
+import hr.demo.dto.ProductPatchDTO;
 import hr.demo.exceptions.ProductNotFoundException;
 import hr.demo.junitextension.TimingExtension;
 import hr.demo.model.Product;
 import hr.demo.model.ProductCategory;
+import hr.demo.model.ProductCategoryStats;
+import hr.demo.repository.ProductCategoryStatsRepo;
 import hr.demo.repository.ProductRepo;
+import hr.demo.repository.ProductChangeRepo;
+import hr.demo.repository.ProductSearchRepo;
 import hr.demo.serviceimpl.ProductServiceImpl;
+import hr.demo.utility.KeysetCursor;
 import hr.demo.utility.ProductMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
-import java.util.Arrays;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNoException;
@@ -39,11 +54,26 @@ class ProductServiceTest {
     private ProductRepo productRepo;
 
     @Mock
-    private HnbCallerService hnbCallerService;
+    private ProductCategoryStatsRepo productCategoryStatsRepo;
+
+    @Mock
+    private ProductSearchRepo productSearchRepo;
+
+    @Mock
+    private ProductChangeRepo productChangeRepo;
+
+    @Mock
+    private ExchangeRateProvider exchangeRateProvider;
 
     @Mock
     private ProductMapper productMapper;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private ProductCodeGenerator productCodeGenerator = new ProductCodeGenerator(1);
+
     @InjectMocks
     private ProductServiceImpl productService;
 
@@ -65,89 +95,248 @@ class ProductServiceTest {
     public void ProductService_createProduct_returnProductDTO() throws JsonProcessingException {
 
         when(productRepo.save(Mockito.any(Product.class))).thenReturn(this.product);
-        when(this.hnbCallerService.getUSDMiddleExchangeRate()).thenReturn(BigDecimal.valueOf(11));
+        when(this.exchangeRateProvider.getUSDExchangeRate()).thenReturn(new ExchangeRate("USD", BigDecimal.valueOf(11), LocalDate.of(2023, 10, 18), Instant.now()));
 
         ProductDTO savedProduct = productService.createProduct(product.getName(), product.getPriceEur(), product.getDescription(), product.getIsAvailable(), product.getCategory().getId().toString());
 
         assertThat(savedProduct).isNotNull();
+        verify(productCategoryStatsRepo, times(1)).applyChange(1L, 1, 1);
+        verify(productChangeRepo, times(1)).append(ProductChangeDTO.Type.CREATED, List.of(this.product));
     }
 
     @Test
-    public void ProductService_findAllProducts_returnPageOfProductDTOs() {
-        List<Product> products = Arrays.asList(new Product("Product 1", new BigDecimal(100.00), "This is the first product.", true, "1"));
-        Mockito.when(productRepo.findAll(Mockito.any(Pageable.class))).thenReturn(new PageImpl<>(products));
+    public void ProductService_createProducts_resolvesExchangeRateOnceAndSavesInBatches() throws JsonProcessingException {
+        when(exchangeRateProvider.getUSDExchangeRate()).thenReturn(new ExchangeRate("USD", BigDecimal.valueOf(1.1), LocalDate.of(2023, 10, 18), Instant.now()));
+        when(entityManager.getReference(eq(ProductCategory.class), any())).thenAnswer(invocation -> new ProductCategory(invocation.getArgument(1)));
+        List<ProductDTO> productDTOs = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            productDTOs.add(new ProductDTO("product_" + i, BigDecimal.TEN, "opis", true, "1"));
+        }
+
+        List<ProductDTO> savedProducts = productService.createProducts(productDTOs);
+
+        assertThat(savedProducts).hasSize(120);
+        verify(exchangeRateProvider, times(1)).getUSDExchangeRate();
+        verify(productRepo, times(3)).saveAll(anyList());
+        verify(entityManager, times(3)).clear();
+        verify(productCategoryStatsRepo, times(2)).applyChange(1L, 50, 50);
+        verify(productCategoryStatsRepo, times(1)).applyChange(1L, 20, 20);
+        verify(productChangeRepo, times(3)).append(eq(ProductChangeDTO.Type.CREATED), anyList());
+    }
 
+    @Test
+    public void ProductService_findAllProducts_returnPageOfProductDTOs() {
         ProductDTO productDTO = new ProductDTO("Product 1", new BigDecimal(100.00), "This is the first product.", true, "1");
-        Mockito.when(productMapper.map(Mockito.any(Product.class))).thenReturn(productDTO);
+        Mockito.when(productRepo.findAllProductDTOs(Mockito.any(Pageable.class))).thenReturn(new PageImpl<>(List.of(productDTO)));
 
         Page<ProductDTO> productDTOPage = productService.findAll(PageRequest.of(0, 1));
 
-        assertThat(productDTOPage).isNotNull();
+        assertThat(productDTOPage).containsExactly(productDTO);
+        verifyNoInteractions(productMapper);
+    }
+
+    @Test
+    public void ProductService_findAllAfter_returnsCursorForNextPage() {
+        when(productRepo.findNextById(eq(0L), any(Pageable.class))).thenReturn(List.of(this.product));
+
+        CursorPage<ProductDTO> firstPage = productService.findAllAfter("", 1, "productId");
+
+        assertThat(firstPage.getNextCursor()).isNotNull();
+        assertThat(KeysetCursor.decode(firstPage.getNextCursor()).getProductId()).isEqualTo(1L);
+
+        when(productRepo.findNextById(eq(1L), any(Pageable.class))).thenReturn(List.of());
+
+        CursorPage<ProductDTO> lastPage = productService.findAllAfter(firstPage.getNextCursor(), 1, "productId");
+
+        assertThat(lastPage.getContent()).isEmpty();
+        assertThat(lastPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void ProductService_findAllAfter_rejectsCursorOfAnotherSort() {
+        String cursor = new KeysetCursor(KeysetCursor.Sort.PRODUCT_ID, null, 1L).encode();
+
+        assertThrows(IllegalArgumentException.class, () -> productService.findAllAfter(cursor, 10, "priceEur,desc"));
     }
 
     @Test
     public void ProductService_updateProduct_returnsProductDTO() throws JsonProcessingException {
         when(this.productRepo.findByCode(Mockito.any(String.class))).thenReturn(this.product);
-        when(this.productRepo.save(Mockito.any(Product.class))).thenReturn(this.product);
+        when(this.productRepo.saveAndFlush(Mockito.any(Product.class))).thenReturn(this.product);
 
-        ProductDTO savedProduct = this.productService.updateProduct(this.product.getCode(), this.product.getName(), this.product.getPriceEur(), this.product.getDescription(), this.product.getIsAvailable());
+        ProductDTO savedProduct = this.productService.updateProduct(this.product.getCode(), this.product.getName(), this.product.getPriceEur(), this.product.getDescription(), this.product.getIsAvailable(), null);
 
         assertThat(savedProduct).isNotNull();
+        verifyNoInteractions(productCategoryStatsRepo);
     }
 
     @Test
-    public void ProductService_getProductByCode_returnProductDTO() {
-        when(this.productRepo.findByCode(Mockito.any(String.class))).thenReturn(this.product);
+    public void ProductService_updateProduct_appendsChangeOnlyWhenProductWasWritten() throws JsonProcessingException {
+        this.product.setVersion(1L);
+        Product written = new Product();
+        written.setCode(this.product.getCode());
+        written.setCategory(this.product.getCategory());
+        written.setVersion(2L);
+        when(this.productRepo.findByCode(this.product.getCode())).thenReturn(this.product);
+        when(this.productRepo.saveAndFlush(Mockito.any(Product.class))).thenReturn(this.product, written);
+
+        this.productService.updateProduct(this.product.getCode(), this.product.getName(), this.product.getPriceEur(), this.product.getDescription(), true, null);
+        verifyNoInteractions(productChangeRepo);
+
+        this.productService.updateProduct(this.product.getCode(), "renamed", this.product.getPriceEur(), this.product.getDescription(), true, null);
+        verify(productChangeRepo, times(1)).append(ProductChangeDTO.Type.UPDATED, List.of(written));
+    }
 
-        ProductDTO foundProduct = this.productService.getProductByCode(this.product.getCode());
+    @Test
+    public void ProductService_updateProduct_throwsForUnknownProduct() {
+        assertThrows(ProductNotFoundException.class,
+                () -> this.productService.updateProduct("missing", "renamed", BigDecimal.TEN, "opis", true, null));
+        verify(productRepo, never()).saveAndFlush(Mockito.any(Product.class));
+    }
 
-        assertThat(foundProduct).isNotNull();
+    @Test
+    public void ProductService_updateProduct_rejectsOutdatedVersion() {
+        this.product.setVersion(4L);
+        when(this.productRepo.findByCode(this.product.getCode())).thenReturn(this.product);
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> this.productService.updateProduct(this.product.getCode(), "renamed", this.product.getPriceEur(), this.product.getDescription(), true, 3L));
+        verify(productRepo, never()).saveAndFlush(Mockito.any(Product.class));
     }
 
     @Test
-    public void ProductService_deleteProductByCode_Success() {
-        when(productRepo.findByCode("test_delete")).thenReturn(product);
+    public void ProductService_updateProduct_updatesCategoryStatsWhenAvailabilityChanges() throws JsonProcessingException {
+        when(this.productRepo.findByCode(this.product.getCode())).thenReturn(this.product);
+        when(this.productRepo.saveAndFlush(Mockito.any(Product.class))).thenReturn(this.product);
 
-        assertAll(() -> productService.deleteProductByCode("test_delete"));
+        this.productService.updateProduct(this.product.getCode(), this.product.getName(), this.product.getPriceEur(), this.product.getDescription(), false, null);
 
-        verify(productRepo, times(1)).findByCode("test_delete");
-        verify(productRepo, times(1)).deleteById(1L);
+        verify(productCategoryStatsRepo, times(1)).applyChange(1L, 0, -1);
     }
 
     @Test
-    public void ProductService_deleteProductByCode_ProductNotFound() {
-        when(productRepo.findByCode("test_delete")).thenReturn(null);
+    public void ProductService_updateProduct_recomputesUsdPriceOfOutdatedRate() throws JsonProcessingException {
+        this.product.setPriceUsd(BigDecimal.valueOf(10));
+        this.product.setUsdRateDate(LocalDate.of(2023, 10, 17));
+        when(this.productRepo.findByCode(this.product.getCode())).thenReturn(this.product);
+        when(this.productRepo.saveAndFlush(Mockito.any(Product.class))).thenReturn(this.product);
+        ExchangeRate rate = new ExchangeRate("USD", BigDecimal.valueOf(1.1), LocalDate.of(2023, 10, 18), Instant.now());
+        when(this.exchangeRateProvider.getSnapshot()).thenReturn(rate);
+        when(this.exchangeRateProvider.getUSDExchangeRate()).thenReturn(rate);
+
+        ProductDTO savedProduct = this.productService.updateProduct(this.product.getCode(), "renamed", this.product.getPriceEur(), this.product.getDescription(), true, null);
+
+        assertThat(savedProduct.getPriceUSD()).isEqualByComparingTo("11.00");
+        assertThat(this.product.getUsdRateDate()).isEqualTo(LocalDate.of(2023, 10, 18));
+    }
 
-        org.junit.jupiter.api.Assertions.assertThrows(ProductNotFoundException.class, () -> {
-            productService.deleteProductByCode("test_delete");
-        });
+    @Test
+    public void ProductService_patchProduct_writesNothingWhenPatchMatchesProduct() throws JsonProcessingException {
+        this.product.setVersion(3L);
+        when(this.productRepo.findByCode(this.product.getCode())).thenReturn(this.product);
 
-        verify(productRepo, times(1)).findByCode("test_delete");
+        ProductDTO patched = this.productService.patchProduct(this.product.getCode(), new ProductPatchDTO("product_1", new BigDecimal("10.00"), null, true, 3L));
+
+        assertThat(patched.getVersion()).isEqualTo(3L);
+        verify(productRepo, never()).saveAndFlush(any(Product.class));
+        verifyNoInteractions(productCategoryStatsRepo, exchangeRateProvider, productChangeRepo);
+    }
+
+    @Test
+    public void ProductService_patchProduct_changesOnlyGivenFields() throws JsonProcessingException {
+        this.product.setDescription("opis");
+        when(this.productRepo.findByCode(this.product.getCode())).thenReturn(this.product);
+        when(this.productRepo.saveAndFlush(this.product)).thenReturn(this.product);
+
+        ProductDTO patched = this.productService.patchProduct(this.product.getCode(), new ProductPatchDTO(null, null, null, false, null));
+
+        assertThat(patched.getIsAvailable()).isFalse();
+        assertThat(patched.getName()).isEqualTo("product_1");
+        assertThat(patched.getDescription()).isEqualTo("opis");
+        verify(productCategoryStatsRepo, times(1)).applyChange(1L, 0, -1);
+        verifyNoInteractions(exchangeRateProvider);
+    }
+
+    @Test
+    public void ProductService_patchProduct_rejectsOutdatedVersion() {
+        this.product.setVersion(4L);
+        when(this.productRepo.findByCode(this.product.getCode())).thenReturn(this.product);
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> this.productService.patchProduct(this.product.getCode(), new ProductPatchDTO("renamed", null, null, null, 3L)));
+        verify(productRepo, never()).saveAndFlush(any(Product.class));
+    }
+
+    @Test
+    public void ProductService_patchProduct_throwsForUnknownProduct() {
+        assertThrows(ProductNotFoundException.class, () -> this.productService.patchProduct("missing", new ProductPatchDTO("renamed", null, null, null, null)));
+    }
+
+    @Test
+    public void ProductService_findAllByCategory_takesTotalFromCategoryStats() {
+        ProductDTO productDTO = new ProductDTO("Product 1", BigDecimal.TEN, "opis", true, "1");
+        when(productRepo.findProductDTOsByCategoryId(eq(1L), any(Pageable.class))).thenReturn(List.of(productDTO));
+        when(productCategoryStatsRepo.findById(1L)).thenReturn(Optional.of(new ProductCategoryStats(1L)));
+
+        Page<ProductDTO> page = productService.findAllByCategory(1L, PageRequest.of(1, 1));
+
+        assertThat(page.getContent()).containsExactly(productDTO);
+        verify(productRepo, never()).count();
+    }
+
+    @Test
+    public void ProductService_findAllByCategory_returnsNullForMissingCategory() {
+        when(productRepo.findProductDTOsByCategoryId(eq(99L), any(Pageable.class))).thenReturn(List.of());
+        when(productCategoryStatsRepo.findById(99L)).thenReturn(Optional.empty());
+
+        assertThat(productService.findAllByCategory(99L, PageRequest.of(0, 20))).isNull();
     }
 
     @Test
-    public void ProductService_checkWhetherCodeExists_returnsProductCodeIfProductCodeDoesNotExist() {
-        when(productRepo.existsByCode("some-code")).thenReturn(false);
+    public void ProductService_search_pagesBySize() {
+        ProductDTO productDTO = new ProductDTO("Product 1", BigDecimal.TEN, "opis", true, "1");
+        when(productSearchRepo.search(any(), eq(40L), eq(20))).thenReturn(List.of(productDTO));
 
-        String productCode = productService.checkWhetherCodeExists("some-code");
+        assertThat(productService.search("product", true, 1L, null, null, 2, 20)).containsExactly(productDTO);
+    }
 
-        assertThat(productCode).isEqualTo("some-code");
+    @Test
+    public void ProductService_search_rejectsTextWithoutWords() {
+        assertThrows(IllegalArgumentException.class, () -> productService.search("*", null, null, null, null, 0, 20));
+        verifyNoInteractions(productSearchRepo);
     }
 
     @Test
-    public void ProductService_checkWhetherCodeExists_returnsUniqueProductCode() {
-        when(productRepo.existsByCode("existing-code")).thenReturn(true);
+    public void ProductService_getProductByCode_returnProductDTO() {
+        when(this.productRepo.findProductDTOByCode(this.product.getCode())).thenReturn(new ProductDTO(this.product.getCode(), this.product.getName(),
+                this.product.getPriceEur(), this.product.getPriceUsd(), this.product.getIsAvailable(), this.product.getDescription(), "1"));
+
+        ProductDTO foundProduct = this.productService.getProductByCode(this.product.getCode());
+
+        assertThat(foundProduct).isNotNull();
+    }
+
+    @Test
+    public void ProductService_deleteProductByCode_Success() {
+        when(productRepo.findByCode("test_delete")).thenReturn(product);
 
-        String productCode = productService.checkWhetherCodeExists("existing-code");
+        assertAll(() -> productService.deleteProductByCode("test_delete"));
 
-        assertThat(productCode).isNotEqualTo("existing-code");
+        verify(productRepo, times(1)).findByCode("test_delete");
+        verify(productRepo, times(1)).deleteById(1L);
+        verify(productCategoryStatsRepo, times(1)).applyChange(1L, -1, -1);
+        verify(productChangeRepo, times(1)).append(ProductChangeDTO.Type.DELETED, List.of(product));
     }
 
     @Test
-    public void ProductService_checkWhetherCodeExists_doesNotThrowAnyExceptions() {
-        String productCode = productService.checkWhetherCodeExists("random-product-code");
+    public void ProductService_deleteProductByCode_ProductNotFound() {
+        when(productRepo.findByCode("test_delete")).thenReturn(null);
 
-        assertThatNoException().isThrownBy(() -> productService.checkWhetherCodeExists("random-product-code"));
+        org.junit.jupiter.api.Assertions.assertThrows(ProductNotFoundException.class, () -> {
+            productService.deleteProductByCode("test_delete");
+        });
+
+        verify(productRepo, times(1)).findByCode("test_delete");
     }
 
     @Test
@@ -155,11 +344,12 @@ class ProductServiceTest {
         String productCode = productService.generateProductCode();
 
         assertThat(productCode.length()).isEqualTo(10);
+        verifyNoInteractions(productRepo);
     }
 
     @Test
     public void ProductService_calculatePriceInUSD_returnCorrectPriceInUSD() throws JsonProcessingException {
-        when(hnbCallerService.getUSDMiddleExchangeRate()).thenReturn(BigDecimal.valueOf(1.1555));
+        when(exchangeRateProvider.getUSDMiddleExchangeRate()).thenReturn(BigDecimal.valueOf(1.1555));
 
         BigDecimal priceInUSD = productService.calculatePriceInUSD(BigDecimal.valueOf(100));
 
@@ -168,7 +358,7 @@ class ProductServiceTest {
 
     @Test
     public void ProductService_calculatePriceInUSD_throwsJsonProcessingException() throws JsonProcessingException {
-        when(hnbCallerService.getUSDMiddleExchangeRate()).thenThrow(JsonProcessingException.class);
+        when(exchangeRateProvider.getUSDMiddleExchangeRate()).thenThrow(JsonProcessingException.class);
 
         assertThrows(JsonProcessingException.class, () -> {
             productService.calculatePriceInUSD(new BigDecimal("10"));
@@ -0,0 +1,49 @@
+package hr.demo.utility;
+
+import hr.demo.dto.ProductDTO;
+import hr.demo.junitextension.TimingExtension;
+import hr.demo.model.Product;
+import hr.demo.model.ProductCategory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(TimingExtension.class)
+class ProductMapperTest {
+
+    private final ProductMapper productMapper = new ProductMapperImpl();
+
+    @Test
+    public void ProductMapper_map_copiesAllFieldsOfProduct() {
+        Instant updatedAt = Instant.parse("2023-10-18T10:15:30Z");
+        Product product = new Product(1L, "0123456789", "product_1", new BigDecimal("19.99"), new BigDecimal("21.11"), "opis", true, new ProductCategory(7L), "7");
+        product.setVersion(3L);
+        product.setUpdatedAt(updatedAt);
+
+        ProductDTO productDTO = productMapper.map(product);
+
+        assertThat(productDTO.getCode()).isEqualTo("0123456789");
+        assertThat(productDTO.getName()).isEqualTo("product_1");
+        assertThat(productDTO.getPriceEUR()).isEqualTo(new BigDecimal("19.99"));
+        assertThat(productDTO.getPriceUSD()).isEqualTo(new BigDecimal("21.11"));
+        assertThat(productDTO.getDescription()).isEqualTo("opis");
+        assertThat(productDTO.getIsAvailable()).isTrue();
+        assertThat(productDTO.getCategoryId()).isEqualTo("7");
+        assertThat(productDTO.getVersion()).isEqualTo(3L);
+        assertThat(productDTO.getUpdatedAt()).isEqualTo(updatedAt);
+    }
+
+    @Test
+    public void ProductMapper_map_reusesCategoryIdStrings() {
+        Product first = new Product(1L, "0123456789", "product_1", BigDecimal.TEN, null, "opis", true, new ProductCategory(42L), null);
+        Product second = new Product(2L, "9876543210", "product_2", BigDecimal.ONE, null, "opis", false, new ProductCategory(42L), null);
+
+        assertThat(productMapper.map(second).getCategoryId()).isSameAs(productMapper.map(first).getCategoryId());
+        assertThat(CategoryIds.of((long) CategoryIds.CACHE_SIZE)).isEqualTo(String.valueOf(CategoryIds.CACHE_SIZE));
+        assertThat(CategoryIds.of(null)).isNull();
+    }
+}
@@ -0,0 +1,57 @@
+package hr.demo.utility;
+
+import hr.demo.junitextension.TimingExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(TimingExtension.class)
+class ProductSearchQueryTest {
+
+    @Test
+    public void ProductSearchQuery_of_keepsOnlyWordsOfLettersAndDigits() {
+        ProductSearchQuery query = ProductSearchQuery.of("Crvena  'čaša' & x | 0.5L!:* crvena", null, null, null, null);
+
+        assertThat(query.getTerms()).containsExactly("crvena", "čaša", "5l");
+        assertThat(query.toTsQuery()).isEqualTo("crvena:* & čaša:* & 5l:*");
+    }
+
+    @Test
+    public void ProductSearchQuery_of_limitsNumberOfWords() {
+        ProductSearchQuery query = ProductSearchQuery.of("aa bb cc dd ee ff gg hh ii jj", null, null, null, null);
+
+        assertThat(query.getTerms()).hasSize(ProductSearchQuery.MAX_TERMS);
+    }
+
+    @Test
+    public void ProductSearchQuery_of_rejectsTextWithoutWords() {
+        assertThrows(IllegalArgumentException.class, () -> ProductSearchQuery.of(" % _ a ", null, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> ProductSearchQuery.of(null, null, null, null, null));
+    }
+
+    @Test
+    public void ProductSearchQuery_of_rejectsEmptyPriceRange() {
+        assertThrows(IllegalArgumentException.class, () -> ProductSearchQuery.of("shoe", null, null, BigDecimal.TEN, BigDecimal.ONE));
+    }
+
+    @Test
+    public void ProductSearchQuery_toSql_addsOnlyGivenFilters() {
+        ProductSearchQuery query = ProductSearchQuery.of("shoe", true, null, BigDecimal.ONE, null);
+
+        String sql = query.toSql("code", true);
+
+        assertThat(sql).contains("search_vector @@ query", "is_available = :isAvailable", "price_eur >= :minPriceEur", "ts_rank_cd")
+                .doesNotContain("category_id", "maxPriceEur");
+        assertThat(query.parameters(true, 20, 10)).containsOnlyKeys("query", "isAvailable", "minPriceEur", "limit", "offset");
+        assertThat(query.parameters(false, 20, 10)).containsEntry("term0", "shoe%").containsEntry("wordTerm0", "% shoe%").doesNotContainKey("query");
+    }
+
+    @Test
+    public void ProductSearchQuery_escapeLike_escapesWildcardsAndEscapeCharacter() {
+        assertThat(ProductSearchQuery.escapeLike("50%_off\\")).isEqualTo("50\\%\\_off\\\\");
+    }
+}